@@ -14,6 +14,7 @@ import schooled.datatypes.LOG_TYPE;
 import schooled.engines.Engine;
 import schooled.engines.Logger;
 import schooled.engines.RenderEngine;
+import schooled.entities.BasicEntity;
 import schooled.entities.Entity;
 import schooled.entities.EntityArea;
 import schooled.entities.ItemEntity;
@@ -110,6 +111,12 @@ public class Game implements Runnable {
   private boolean capFrameRate = true;
   private boolean stepping; // dep_check
   private boolean step;     // dep_check
+
+  private boolean fixedTimestep = false; // step the game at a fixed rate independent of rendering
+  private int physicsRate = 60; // fixed steps per second
+  private int maxPhysicsSteps = 5; // maximum fixed steps run in a single frame
+  private float accumulator = 0; // frame time not yet simulated by fixed steps
+  private ArrayList<BasicEntity> interpolated = new ArrayList<>(); // entities stored before a step
   // </editor-fold>
 
   // <editor-fold defaultstate="collapsed" desc="Input Variables">
@@ -872,6 +879,49 @@ public class Game implements Runnable {
   public Menu getMenuFromList(String s) {
     return menus.get(s);
   }
+
+  /**
+   * Set if the game logic and physics step at a fixed rate. Frame time is collected and simulated
+   * in fixed steps of 1 / physicsRate seconds, rendering interpolates entity positions between the
+   * last two steps.
+   *
+   * @param fixedTimestep true to use fixed steps, false to step once per frame
+   */
+  public void setFixedTimestep(boolean fixedTimestep) {
+    this.fixedTimestep = fixedTimestep;
+    accumulator = 0;
+  }
+
+  public boolean isFixedTimestep() {
+    return fixedTimestep;
+  }
+
+  /**
+   * Set the number of fixed steps per second.
+   *
+   * @param physicsRate steps per second
+   */
+  public void setPhysicsRate(int physicsRate) {
+    this.physicsRate = Math.max(1, physicsRate);
+  }
+
+  public int getPhysicsRate() {
+    return physicsRate;
+  }
+
+  /**
+   * Set the maximum number of fixed steps run in one frame. Frame time past the cap is dropped so
+   * a slow frame slows the game down instead of queueing more and more steps.
+   *
+   * @param maxPhysicsSteps maximum steps per frame
+   */
+  public void setMaxPhysicsSteps(int maxPhysicsSteps) {
+    this.maxPhysicsSteps = Math.max(1, maxPhysicsSteps);
+  }
+
+  public int getMaxPhysicsSteps() {
+    return maxPhysicsSteps;
+  }
   // </editor-fold>
 
   // <editor-fold defaultstate="collapsed" desc="Misc Methods">
@@ -1355,9 +1405,11 @@ public class Game implements Runnable {
   @Override
   public void run() {
     long beforeTime, afterTime, timeDiff = 0;
+    long frameStart, frameDiff = 0;
     long delay = (long) Math.floor(SECOND / refreshRate); // the delay between game ticks
 
     beforeTime = System.nanoTime(); // record the time before the tick
+    frameStart = beforeTime;
 
     while (running) {
       if (hang) // if the hang flag is on do nothing in the program
@@ -1371,7 +1423,13 @@ public class Game implements Runnable {
       }
 
       Logger.pushDebugTime("total", System.nanoTime());
-      float timeRef = Math.min(timeDiff / SECOND, 0.01f); // get the time reference
+      float timeRef; // get the time reference
+      if (fixedTimestep) {
+        // fixed steps use the real frame time, capped at the most time a frame can simulate
+        timeRef = Math.min(frameDiff / SECOND, maxPhysicsSteps / (float) physicsRate);
+      } else {
+        timeRef = Math.min(timeDiff / SECOND, 0.01f);
+      }
       if (opengl) // if we are using opengl initialize the draw window
       {
         getWindow().initWindow();
@@ -1418,6 +1476,10 @@ public class Game implements Runnable {
         beforeTime = System.nanoTime();
         sync(delay);
       }
+
+      afterTime = System.nanoTime();
+      frameDiff = afterTime - frameStart;
+      frameStart = afterTime;
     }
     System.exit(0);
   }
@@ -1476,19 +1538,41 @@ public class Game implements Runnable {
     // this lock below only blocks the execution if stepping is on and step is off.
     // This allows the physical, and game based calculations to be stepped
     // 	through like a slide show.
-    if (!stepping || step) {
-      Logger.pushDebugTime("pre_update");
-      world.updateCycle(timeRef); // update the world and its entities by the time difference
-      Logger.pushDebugTime("pre_update");
-
-      Logger.pushDebugTime("physics");
-      // process physical interactions using the time difference and the loaded Entities
-      Engine.process(world.getLoadedRoom().getAllBasicEntities(), timeRef);
-      Logger.pushDebugTime("physics");
-
-      Logger.pushDebugTime("post_update");
-      world.postEngineCheck(player); // check for physics based interactions
-      Logger.pushDebugTime("post_update");
+    float alpha = 1;
+    if (!fixedTimestep) {
+      if (!stepping || step) {
+        stepGame(timeRef);
+      }
+    } else {
+      float dt = 1f / physicsRate;
+      if (stepping) {
+        // step through one fixed step at a time
+        accumulator = 0;
+        if (step) {
+          storeInterpolation();
+          stepGame(dt);
+        }
+      } else {
+        accumulator += timeRef;
+        int steps = 0;
+        while (accumulator >= dt && steps < maxPhysicsSteps) {
+          storeInterpolation();
+          stepGame(dt);
+          accumulator -= dt;
+          steps++;
+        }
+
+        if (steps == maxPhysicsSteps) {
+          // drop the time the step cap couldn't simulate
+          accumulator = Math.min(accumulator, dt);
+        }
+        alpha = accumulator / dt;
+      }
+
+      // draw entities between their last two fixed step positions
+      for (BasicEntity entity : interpolated) {
+        entity.interpolatePosition(alpha);
+      }
     }
 
     Logger.pushDebugTime("screen_values");
@@ -1505,6 +1589,41 @@ public class Game implements Runnable {
     RenderEngine.renderGame(this, getVisualContext()); // render the game screen
     Logger.pushDebugTime("render_game");
 
+    if (fixedTimestep) {
+      for (BasicEntity entity : interpolated) {
+        entity.restorePosition();
+      }
+    }
+  }
+
+  /**
+   * Run a single update of the game logic and physics.
+   *
+   * @param t time difference of the step
+   */
+  private void stepGame(float t) {
+    Logger.pushDebugTime("pre_update");
+    world.updateCycle(t); // update the world and its entities by the time difference
+    Logger.pushDebugTime("pre_update");
+
+    Logger.pushDebugTime("physics");
+    // process physical interactions using the time difference and the loaded Entities
+    Engine.process(world.getLoadedRoom(), t);
+    Logger.pushDebugTime("physics");
+
+    Logger.pushDebugTime("post_update");
+    world.postEngineCheck(player); // check for physics based interactions
+    Logger.pushDebugTime("post_update");
+  }
+
+  /**
+   * Record the positions of the loaded entities before a fixed step for render interpolation.
+   */
+  private void storeInterpolation() {
+    interpolated = world.getLoadedRoom().getPhysicsEntities();
+    for (BasicEntity entity : interpolated) {
+      entity.storePreviousPosition();
+    }
   }
 
   /**
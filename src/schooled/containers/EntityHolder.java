@@ -6,12 +6,15 @@
 package schooled.containers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 import org.lwjgl.glfw.GLFW;
 import schooled.Game;
 import schooled.entities.Entity;
 import schooled.event.Event;
 import schooled.menu.TextArea;
+import schooled.physics.PhysicsStore;
 
 /**
  * General object that contains entities and entity related actions.
@@ -25,6 +28,8 @@ public abstract class EntityHolder {
   // store a list of entities
   ArrayList<Entity> entities = new ArrayList<Entity>();
   String name = "Entity Container";
+  // physics state of the contained entities, entities get a handle when they are added
+  final PhysicsStore physicsStore = new PhysicsStore();
 
   /**
    * Get the name of the container.
@@ -56,9 +61,11 @@ public abstract class EntityHolder {
   public void addEntity(Entity e, boolean setContainer) {
     if (!entities.contains(e)) {
       entities.add(e);
+      physicsStore.add(e);
       if (setContainer) {
         e.setContainer(this);
       }
+      entitiesChanged();
     }
   }
 
@@ -78,10 +85,26 @@ public abstract class EntityHolder {
    */
   public void removeEntity(Entity e) {
     if (entities.remove(e)) {
+      physicsStore.remove(e);
       e.setContainer(null);
+      entitiesChanged();
     }
   }
 
+  /**
+   * Called when an entity is added or removed, or when the children of a contained entity change.
+   * Containers that keep an index of their entities drop it here.
+   */
+  public void entitiesChanged() {
+  }
+
+  /**
+   * Called when a contained entity or one of its children is moved. Containers that index the
+   * positions of their entities check the index here.
+   */
+  public void entityMoved() {
+  }
+
   /**
    * Update all menu entities in the container.
    */
@@ -95,7 +118,7 @@ public abstract class EntityHolder {
    * Update all menu entities in the container.
    */
   public void processInteractions() {
-    ArrayList<Entity> entities = (ArrayList<Entity>) getEntities().clone();
+    ArrayList<Entity> entities = new ArrayList<>(getEntities());
     for (Entity entity : entities){
       entity.processInteractions();
     }
@@ -104,17 +127,28 @@ public abstract class EntityHolder {
   /**
    * Get the list of entities.
    *
-   * @return the list of entities
+   * @return read only view of the entities
    */
-  public ArrayList<Entity> getEntities() {
-    return entities;
+  public List<Entity> getEntities() {
+    return Collections.unmodifiableList(entities);
   }
 
   public void forEntities(Consumer<Entity> func) {
     entities.forEach(func);
   }
 
+  /**
+   * Get the physics store holding the state of the contained entities.
+   *
+   * @return physics store
+   */
+  public PhysicsStore getPhysicsStore() {
+    return physicsStore;
+  }
+
   public void clearAll() {
     entities.clear();
+    physicsStore.clear();
+    entitiesChanged();
   }
 }
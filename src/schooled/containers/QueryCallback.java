@@ -0,0 +1,22 @@
+package schooled.containers;
+
+import schooled.entities.Entity;
+
+/**
+ * Receives the entities found by a spatial query of a {@link Room}, one call per entity.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+@FunctionalInterface
+public interface QueryCallback {
+
+  /**
+   * Called for every entity found by the query.
+   *
+   * @param entity entity found
+   * @return true to keep the query going, false to stop it
+   */
+  boolean report(Entity entity);
+}
@@ -0,0 +1,23 @@
+package schooled.containers;
+
+import schooled.entities.Entity;
+
+/**
+ * Receives the entities hit by a raycast of a {@link Room}, closest hit first.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+@FunctionalInterface
+public interface RaycastCallback {
+
+  /**
+   * Called for every entity hit by the ray.
+   *
+   * @param entity   entity hit
+   * @param fraction part of the ray before the entity is hit, 0 if the ray starts inside of it
+   * @return true to keep the raycast going, false to stop it
+   */
+  boolean report(Entity entity, float fraction);
+}
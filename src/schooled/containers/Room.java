@@ -1,16 +1,26 @@
 package schooled.containers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import schooled.Game;
 import schooled.datatypes.Tuple;
+import schooled.engines.ContactSolver;
 import schooled.engines.Engine;
 import schooled.entities.BasicEntity;
 import schooled.entities.Entity;
 import schooled.physics.BoundingBox;
+import schooled.physics.ContactCache;
+import schooled.physics.ConvexDecomposition;
 import schooled.physics.MultiShape;
 import schooled.physics.PolygonShape;
 import schooled.physics.Shape;
 import schooled.physics.Vector;
+import schooled.physics.broadphase.Broadphase;
+import schooled.physics.broadphase.SpatialHashBroadphase;
+import schooled.physics.broadphase.StaticBVH;
 import schooled.visuals.sprite.Sprite;
 
 /**
@@ -33,10 +43,38 @@ public class Room extends EntityHolder {
 
   // a list of entities representing the walls of the room
   private ArrayList<Entity> walls = new ArrayList<>();
+  private StaticBVH wallTree = null; // static collision tree of the walls, null when out of date
   private Vector customWindow = null; // a vector representing a custom room size
   private Sprite customMatte = null; // repeatable matte sprite to draw behind the room
   private World world; // the master parent world container
   private Game game; // the game object reference
+  private Broadphase broadphase = new SpatialHashBroadphase(); // physics pair search
+  private ContactCache contactCache = new ContactCache(); // collision results kept between ticks
+  private ContactSolver solver = ContactSolver.MASS_TREE; // turns collisions into motion
+
+  // entities and all of their children in order without duplicates, rebuilt after changes
+  private final HashSet<Entity> flatSet = new HashSet<>();
+  private List<Entity> flatEntities = Collections.emptyList();
+  private boolean flatChanged = true;
+
+  // copies of the entity lists handed out every tick and frame, rebuilt after changes
+  private List<Entity> snapshotSource = null; // flattened list the copies were made from
+  private ArrayList<BasicEntity> physicsEntities = null;
+  private ArrayList<Entity> allEntities = null; // walls and entities
+  private ArrayList<BasicEntity> allBasicEntities = null; // walls and entities
+
+  // spatial queries are answered from the broadphase of the last physics tick
+  private float queryMargin = 16.0f; // distance entities can move between a tick and a query
+  private ArrayList<BasicEntity> queryEntities = null; // entity list of the last physics tick
+  private List<Entity> queryIndex = null; // flattened list the query entities were copied from
+  private float[] indexBoxes = new float[128]; // boxes of the query entities when indexed
+  private boolean indexMoved = false; // entities moved since the drift was last checked
+  private boolean[] drifted = new boolean[32]; // query entities that left their box and margin
+  private int[] driftedIds = new int[32]; // indices of the drifted query entities in order
+  private int driftedCount = 0;
+  private Entity[] candidates = new Entity[32]; // entities found by the running queries
+  private float[] fractions = new float[32]; // ray fractions of the candidates
+  private int candidateCount = 0;
 
   /**
    * Create a Room object with a reference to the master game object and a background sprite.
@@ -112,25 +150,136 @@ public class Room extends EntityHolder {
   public void addWall(Entity s) {
     walls.add(s);
     s.setName("wall[" + getName() + "]");
+    wallTree = null;
+    allEntities = null;
+    allBasicEntities = null;
+  }
+
+  /**
+   * Get the static collision tree of the walls. The tree is built on the first call after the
+   * walls change.
+   *
+   * @return wall tree
+   */
+  public StaticBVH getWallTree() {
+    if (wallTree == null || wallTree.size() != walls.size()) {
+      rebuildWallTree();
+    }
+    return wallTree;
+  }
+
+  /**
+   * Rebuild the static collision tree of the walls. Has to be called if a wall entity is moved or
+   * its shape is changed.
+   */
+  public void rebuildWallTree() {
+    for (Entity wall : walls) {
+      ConvexDecomposition.prepare(wall.getShape());
+    }
+    wallTree = new StaticBVH(walls);
+  }
+
+  /**
+   * Get a list of the entities in the room that are processed by the physics engine every tick,
+   * the walls are excluded and handled through {@link #getWallTree()}.
+   * <p>
+   * The list is kept until the entities of the room change and is shared between callers, it must
+   * not be changed. A change creates a new list, so a list that is being iterated never changes.
+   *
+   * @return list of entities
+   */
+  public ArrayList<BasicEntity> getPhysicsEntities() {
+    updateSnapshots();
+    if (physicsEntities == null) {
+      physicsEntities = new ArrayList<>(snapshotSource);
+    }
+    return physicsEntities;
+  }
+
+  /**
+   * Get the entities processed by a physics tick of the room, like
+   * {@link #getPhysicsEntities()}. The broadphase of the room is run on the returned list, so the
+   * list is kept to answer the spatial queries until the next tick.
+   *
+   * @return list of entities
+   */
+  public ArrayList<BasicEntity> indexPhysicsEntities() {
+    queryEntities = getPhysicsEntities();
+    queryIndex = snapshotSource;
+
+    // the broadphase boxes of the tick hold at least the boxes the entities have now
+    int n = queryEntities.size();
+    if (indexBoxes.length < n * 4) {
+      indexBoxes = new float[Math.max(n * 4, indexBoxes.length * 2)];
+    }
+    if (drifted.length < n) {
+      drifted = new boolean[Math.max(n, drifted.length * 2)];
+      driftedIds = new int[drifted.length];
+    }
+    for (int i = 0; i < n; i++) {
+      BasicEntity entity = queryEntities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+      if (box == null) {
+        indexBoxes[i * 4] = Float.NaN;
+      } else {
+        indexBoxes[i * 4] = box.xMin;
+        indexBoxes[i * 4 + 1] = box.yMin;
+        indexBoxes[i * 4 + 2] = box.xMax;
+        indexBoxes[i * 4 + 3] = box.yMax;
+      }
+      drifted[i] = false;
+    }
+    driftedCount = 0;
+    indexMoved = false;
+
+    return queryEntities;
   }
 
   /**
    * Get a list of all all the entities in the room, including the walls.
+   * <p>
+   * Shared like {@link #getPhysicsEntities()}, the list must not be changed.
    *
    * @return list of entities
    */
   public ArrayList<BasicEntity> getAllBasicEntities() {
-    ArrayList<BasicEntity> list = new ArrayList<>();
-    list.addAll(walls);
-    list.addAll(getEntities());
-    return list;
+    updateSnapshots();
+    if (allBasicEntities == null) {
+      allBasicEntities = new ArrayList<>(walls.size() + snapshotSource.size());
+      allBasicEntities.addAll(walls);
+      allBasicEntities.addAll(snapshotSource);
+    }
+    return allBasicEntities;
   }
 
+  /**
+   * Get a list of all all the entities in the room, including the walls.
+   * <p>
+   * Shared like {@link #getPhysicsEntities()}, the list must not be changed.
+   *
+   * @return list of entities
+   */
   public ArrayList<Entity> getAllEntities() {
-    ArrayList<Entity> list = new ArrayList<>();
-    list.addAll(walls);
-    list.addAll(getEntities());
-    return list;
+    updateSnapshots();
+    if (allEntities == null) {
+      allEntities = new ArrayList<>(walls.size() + snapshotSource.size());
+      allEntities.addAll(walls);
+      allEntities.addAll(snapshotSource);
+    }
+    return allEntities;
+  }
+
+  /**
+   * Drop the list copies if the flattened entity list was rebuilt since they were made.
+   */
+  private void updateSnapshots() {
+    List<Entity> flat = getEntities();
+    if (flat != snapshotSource) {
+      snapshotSource = flat;
+      physicsEntities = null;
+      allEntities = null;
+      allBasicEntities = null;
+    }
   }
 
   @Override
@@ -172,6 +321,326 @@ public class Room extends EntityHolder {
 //  }
 
 
+  /**
+   * Get the broadphase used to find collision pairs in the room.
+   *
+   * @return broadphase
+   */
+  public Broadphase getBroadphase() {
+    return broadphase;
+  }
+
+  /**
+   * Set the broadphase used to find collision pairs in the room.
+   * <p>
+   * {@link schooled.physics.broadphase.BruteForceBroadphase} is the reference implementation.
+   *
+   * @param broadphase broadphase
+   */
+  public void setBroadphase(Broadphase broadphase) {
+    this.broadphase = broadphase;
+    queryEntities = null;
+  }
+
+  /**
+   * Get the contact solver used to resolve the collisions of the room.
+   *
+   * @return contact solver
+   */
+  public ContactSolver getSolver() {
+    return solver;
+  }
+
+  /**
+   * Set the contact solver used to resolve the collisions of the room.
+   * <p>
+   * {@link ContactSolver#MASS_TREE} is the default,
+   * {@link schooled.engines.SequentialImpulseSolver} bounds the work of a tick by its iteration
+   * count.
+   *
+   * @param solver contact solver
+   */
+  public void setSolver(ContactSolver solver) {
+    this.solver = solver == null ? ContactSolver.MASS_TREE : solver;
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="Spatial Queries">
+
+  /**
+   * Get the distance entities are expected to move between their last physics tick and a query.
+   *
+   * @return query margin
+   */
+  public float getQueryMargin() {
+    return queryMargin;
+  }
+
+  /**
+   * Set the distance entities are expected to move between their last physics tick and a query.
+   * <p>
+   * The broadphase holds the boxes the entities had during the last physics tick, it is searched
+   * with the query box grown by the margin so an entity that moved into the box since then is
+   * still found. Entities that moved further than the margin are tested one by one until the next
+   * tick, a small margin makes queries after fast moves slower. Positions changed in place through
+   * {@link BasicEntity#getPosition()} aren't seen.
+   *
+   * @param queryMargin query margin
+   */
+  public void setQueryMargin(float queryMargin) {
+    this.queryMargin = queryMargin;
+  }
+
+  /**
+   * Find the entities of the room whose world bounding boxes touch a box. The walls are reported
+   * first, then the other entities in the order of {@link #getEntities()}.
+   * <p>
+   * The entities are looked up in the wall tree and the broadphase of the room. Only entities that
+   * can collide are found, an entity with collisions turned off or without a shape isn't in
+   * either of them. Until the next physics tick after entities are added or removed the entity
+   * list is searched instead of the broadphase.
+   * <p>
+   * The callback can run queries of its own.
+   *
+   * @param xMin     world space box
+   * @param yMin     world space box
+   * @param xMax     world space box
+   * @param yMax     world space box
+   * @param callback called for every entity found, returns false to stop the query
+   */
+  public void queryAabb(float xMin, float yMin, float xMax, float yMax, QueryCallback callback) {
+    int start = collect(xMin, yMin, xMax, yMax);
+    try {
+      for (int i = start; i < candidateCount; i++) {
+        if (!callback.report(candidates[i])) {
+          break;
+        }
+      }
+    } finally {
+      release(start);
+    }
+  }
+
+  /**
+   * Find the entities of the room whose shapes contain a point, see
+   * {@link #queryAabb(float, float, float, float, QueryCallback)}.
+   *
+   * @param point    world space point
+   * @param callback called for every entity found, returns false to stop the query
+   */
+  public void queryPoint(Vector point, QueryCallback callback) {
+    float x = point.getX();
+    float y = point.getY();
+
+    int start = collect(x, y, x, y);
+    try {
+      for (int i = start; i < candidateCount; i++) {
+        Entity entity = candidates[i];
+        Vector pos = entity.getPosition();
+        if (Engine.containsPoint(entity.getShape(), pos.getX(), pos.getY(), x, y)
+            && !callback.report(entity)) {
+          break;
+        }
+      }
+    } finally {
+      release(start);
+    }
+  }
+
+  /**
+   * Find the entities of the room whose shapes overlap a circle, see
+   * {@link #queryAabb(float, float, float, float, QueryCallback)}.
+   *
+   * @param center   world space center of the circle
+   * @param radius   radius of the circle
+   * @param callback called for every entity found, returns false to stop the query
+   */
+  public void queryRadius(Vector center, float radius, QueryCallback callback) {
+    int start = collect(center.getX() - radius, center.getY() - radius,
+        center.getX() + radius, center.getY() + radius);
+    try {
+      for (int i = start; i < candidateCount; i++) {
+        Entity entity = candidates[i];
+        Vector pos = entity.getPosition();
+        if (Engine.withinRadius(entity.getShape(), pos.getX(), pos.getY(), center.getX(),
+            center.getY(), radius)
+            && !callback.report(entity)) {
+          break;
+        }
+      }
+    } finally {
+      release(start);
+    }
+  }
+
+  /**
+   * Find the entities of the room whose shapes are hit by a line segment, closest hit first. An
+   * entity the segment starts inside of is hit at fraction 0. See
+   * {@link #queryAabb(float, float, float, float, QueryCallback)}.
+   *
+   * @param from     world space start of the segment
+   * @param to       world space end of the segment
+   * @param callback called for every entity hit, returns false to stop the raycast
+   */
+  public void raycast(Vector from, Vector to, RaycastCallback callback) {
+    float x = from.getX();
+    float y = from.getY();
+    float dx = to.getX() - x;
+    float dy = to.getY() - y;
+
+    int start = collect(Math.min(x, to.getX()), Math.min(y, to.getY()),
+        Math.max(x, to.getX()), Math.max(y, to.getY()));
+    try {
+      // keep the hits at the front of the candidates, sorted by fraction
+      int end = start;
+      for (int i = start; i < candidateCount; i++) {
+        Entity entity = candidates[i];
+        Vector pos = entity.getPosition();
+        float fraction = Engine.segmentFraction(entity.getShape(), pos.getX(), pos.getY(),
+            x, y, dx, dy);
+        if (fraction < 0) {
+          continue;
+        }
+
+        int j = end++;
+        while (j > start && fractions[j - 1] > fraction) {
+          candidates[j] = candidates[j - 1];
+          fractions[j] = fractions[j - 1];
+          j--;
+        }
+        candidates[j] = entity;
+        fractions[j] = fraction;
+      }
+
+      for (int i = start; i < end; i++) {
+        if (!callback.report(candidates[i], fractions[i])) {
+          break;
+        }
+      }
+    } finally {
+      release(start);
+    }
+  }
+
+  /**
+   * Add the entities whose current world bounding boxes touch a box to the end of the candidates.
+   *
+   * @return index of the first added candidate
+   */
+  private int collect(float xMin, float yMin, float xMax, float yMax) {
+    int start = candidateCount;
+
+    StaticBVH tree = getWallTree();
+    int hits = tree.query(xMin, yMin, xMax, yMax);
+    for (int h = 0; h < hits; h++) {
+      addCandidate((Entity) tree.getEntity(tree.getHit(h)), xMin, yMin, xMax, yMax);
+    }
+
+    if (queryEntities != null && !flatChanged && queryIndex == flatEntities) {
+      if (indexMoved) {
+        updateDrift();
+      }
+
+      // merge the drifted entities into the broadphase hits, both are in entity order
+      int found = broadphase.query(xMin - queryMargin, yMin - queryMargin,
+          xMax + queryMargin, yMax + queryMargin);
+      int d = 0;
+      for (int h = 0; h < found; h++) {
+        int hit = broadphase.getHit(h);
+        for (; d < driftedCount && driftedIds[d] < hit; d++) {
+          addCandidate((Entity) queryEntities.get(driftedIds[d]), xMin, yMin, xMax, yMax);
+        }
+        if (!drifted[hit]) {
+          addCandidate((Entity) queryEntities.get(hit), xMin, yMin, xMax, yMax);
+        }
+      }
+      for (; d < driftedCount; d++) {
+        addCandidate((Entity) queryEntities.get(driftedIds[d]), xMin, yMin, xMax, yMax);
+      }
+    } else {
+      // the entities changed since the last tick, the broadphase doesn't know them
+      for (Entity entity : getEntities()) {
+        addCandidate(entity, xMin, yMin, xMax, yMax);
+      }
+    }
+
+    return start;
+  }
+
+  /**
+   * Find the query entities whose current boxes left the box they were indexed with grown by the
+   * query margin. The broadphase can miss them, so they are tested directly until the next tick.
+   */
+  private void updateDrift() {
+    indexMoved = false;
+    driftedCount = 0;
+
+    for (int i = 0; i < queryEntities.size(); i++) {
+      BasicEntity entity = queryEntities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+      float indexXMin = indexBoxes[i * 4];
+
+      boolean left;
+      if (box == null) {
+        left = false; // not found by any query
+      } else if (Float.isNaN(indexXMin)) {
+        left = true; // wasn't in the broadphase at all
+      } else {
+        left = box.xMin < indexXMin - queryMargin
+            || box.yMin < indexBoxes[i * 4 + 1] - queryMargin
+            || box.xMax > indexBoxes[i * 4 + 2] + queryMargin
+            || box.yMax > indexBoxes[i * 4 + 3] + queryMargin;
+      }
+
+      drifted[i] = left;
+      if (left) {
+        driftedIds[driftedCount++] = i;
+      }
+    }
+  }
+
+  /**
+   * Called when an entity of the room or one of their children is moved through the entity, see
+   * {@link BasicEntity#setPosition(Vector)}. Spatial queries check which entities left their
+   * indexed boxes before they use the broadphase again.
+   */
+  @Override
+  public void entityMoved() {
+    indexMoved = true;
+  }
+
+  private void addCandidate(Entity entity, float xMin, float yMin, float xMax, float yMax) {
+    BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+    if (box == null || box.xMax < xMin || xMax < box.xMin || box.yMax < yMin
+        || yMax < box.yMin) {
+      return;
+    }
+
+    if (candidateCount == candidates.length) {
+      candidates = Arrays.copyOf(candidates, candidateCount * 2);
+      fractions = Arrays.copyOf(fractions, candidateCount * 2);
+    }
+    candidates[candidateCount++] = entity;
+  }
+
+  /**
+   * Drop the candidates of a finished query.
+   */
+  private void release(int start) {
+    Arrays.fill(candidates, start, candidateCount, null);
+    candidateCount = start;
+  }
+
+  // </editor-fold>
+
+  /**
+   * Get the cache of collision contacts kept between physics ticks of the room.
+   *
+   * @return contact cache
+   */
+  public ContactCache getContactCache() {
+    return contactCache;
+  }
+
   /**
    * Set the custom window size of the room
    *
@@ -377,6 +846,7 @@ public class Room extends EntityHolder {
     ms.add(new PolygonShape(edgeWidth, wallSize), new Vector(edgeX, edgeTopY));
     ms.add(new PolygonShape(edgeWidth, wallSize), new Vector(edgeX, edgeBottomY));
     addWall(ms);
+    rebuildWallTree();
   }
 
   /**
@@ -387,7 +857,9 @@ public class Room extends EntityHolder {
   @Override
   public void removeEntity(Entity e) {
     entities.remove(e);
+    physicsStore.remove(e);
     e.setContainer(null);
+    entitiesChanged();
   }
 
   /**
@@ -403,26 +875,45 @@ public class Room extends EntityHolder {
   }
 
   /**
-   * Returns an array list of entities in the room.
+   * Returns the entities in the room and all of their children, each entity once. Every entity is
+   * followed by its children.
+   * <p>
+   * The list is kept between calls and only rebuilt after entities are added or removed or the
+   * children of an entity change. A rebuild creates a new list, so a list that is being iterated
+   * never changes.
    *
-   * @return list of entities in the room
+   * @return read only list of entities in the room
    */
   @Override
-  public ArrayList<Entity> getEntities() {
-    ArrayList<Entity> list = new ArrayList<>();
-
-    for (Entity entity : entities) {
-      if (!list.contains(entity)) {
-        list.add(entity);
+  public List<Entity> getEntities() {
+    if (flatChanged) {
+      ArrayList<Entity> list = new ArrayList<>(entities.size());
+      flatSet.clear();
+      for (Entity entity : entities) {
+        flatten(entity, list);
       }
+      flatEntities = Collections.unmodifiableList(list);
+      flatChanged = false;
+    }
+    return flatEntities;
+  }
 
-      for (Entity child: entity.getAllChildren()) {
-        if (!list.contains(child)) {
-          list.add(child);
-        }
+  /**
+   * Add an entity and its children to the flattened list, an entity already in the list has had
+   * its children added as well.
+   */
+  private void flatten(Entity entity, ArrayList<Entity> list) {
+    if (flatSet.add(entity)) {
+      list.add(entity);
+      for (Entity child : entity.getChildren()) {
+        flatten(child, list);
       }
     }
-    return list;
+  }
+
+  @Override
+  public void entitiesChanged() {
+    flatChanged = true;
   }
 
   /**
@@ -432,6 +923,11 @@ public class Room extends EntityHolder {
    */
   public void setEntities(ArrayList<Entity> entities) {
     this.entities = entities;
+    physicsStore.clear();
+    for (Entity entity : entities) {
+      physicsStore.add(entity);
+    }
+    entitiesChanged();
   }
 
   public void addRoomPosition(Room room, Vector pos, boolean cloneEntities) {
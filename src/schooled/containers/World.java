@@ -3,6 +3,7 @@ package schooled.containers;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import schooled.Game;
 import schooled.entities.Entity;
 import schooled.event.Event;
@@ -318,13 +319,12 @@ public class World {
   }
 
   public void preRender(Object graphicsContext) {
-    ArrayList<Entity> entities = new ArrayList<>(getLoadedRoom().getAllEntities());
-    entities.forEach(Entity::preRender);
+    getLoadedRoom().getAllEntities().forEach(Entity::preRender);
     displayMenu.preRender(graphicsContext);
     getTextHud().preRender(graphicsContext);
   }
 
-  public ArrayList<Entity> getDisplayText() {
+  public List<Entity> getDisplayText() {
     return displayMenu.getEntities();
   }
 
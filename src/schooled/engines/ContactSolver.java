@@ -0,0 +1,48 @@
+package schooled.engines;
+
+import java.util.ArrayList;
+import schooled.physics.Manifold;
+import schooled.physics.ManifoldLookup;
+
+/**
+ * Turns the collision manifolds of a processing tick into velocity changes and position shifts.
+ * <p>
+ * The solver works on the physics registers of the entities, the engine applies the shifts and
+ * moves the entities once the solver is done. Rooms pick their solver through
+ * {@link schooled.containers.Room#setSolver(ContactSolver)}.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public interface ContactSolver {
+
+  /**
+   * The mass tree solver of the engine, see {@link Engine#parseManifold2(ArrayList,
+   * ManifoldLookup)}. Pushes through chains of touching entities in one pass, the cost of a tick
+   * depends on how the entities are stacked.
+   */
+  ContactSolver MASS_TREE = Engine::parseManifold2;
+
+  /**
+   * Solve the manifolds of a tick.
+   *
+   * @param manifolds list of collision manifolds
+   * @param mLookup   manifold lookup table of the manifolds
+   */
+  void solve(ArrayList<Manifold> manifolds, ManifoldLookup mLookup);
+
+  /**
+   * Get a solver by name, used by the data loader.
+   *
+   * @param name "impulse" or "sequential" for the sequential impulse solver
+   * @return contact solver, the mass tree solver for unknown names
+   */
+  static ContactSolver fromName(String name) {
+    if (name != null && (name.equalsIgnoreCase("impulse") || name.equalsIgnoreCase("sequential"))) {
+      return new SequentialImpulseSolver();
+    }
+
+    return MASS_TREE;
+  }
+}
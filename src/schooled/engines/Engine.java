@@ -1,24 +1,35 @@
 package schooled.engines;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 import schooled.Game;
 import schooled.containers.EntityHolder;
-import schooled.datatypes.Tuple;
+import schooled.containers.Room;
 import schooled.entities.BasicEntity;
 import schooled.entities.Entity;
 import schooled.menu.Menu;
 import schooled.physics.BoundingBox;
 import schooled.physics.Circle;
+import schooled.physics.Contact;
+import schooled.physics.ContactCache;
 import schooled.physics.Manifold;
+import schooled.physics.ManifoldLookup;
+import schooled.physics.ManifoldPool;
 import schooled.physics.MassTree;
+import schooled.physics.MassTreeArena;
+import schooled.physics.MassTreeTable;
 import schooled.physics.MultiShape;
+import schooled.physics.PhysicsStore;
 import schooled.physics.PolygonShape;
+import schooled.physics.SensorOverlaps;
 import schooled.physics.Shape;
 import schooled.physics.Vector;
+import schooled.physics.broadphase.Broadphase;
+import schooled.physics.broadphase.BruteForceBroadphase;
+import schooled.physics.broadphase.PairList;
+import schooled.physics.broadphase.StaticBVH;
 
 /**
  * Physics engine.
@@ -45,6 +56,49 @@ public class Engine {
   static float STATIC_FRICTION_SLOPE = 1.6180339887f; //golden ratio baby
   static float STATIC_FRICTION_VEL_CUTOFF = 2f;
 
+  // Sleep variables
+  public static float SLEEP_VELOCITY = 0.05f; // maximum velocity of an entity at rest
+  public static float SLEEP_SHIFT = 0.01f; // maximum positional shift of an entity at rest
+  public static int SLEEP_TICKS = 60; // ticks an entity has to stay at rest before it sleeps
+
+  // Collision variables
+  public static boolean CONVEX_FAST_PATH = true; // test convex polygon pairs with separating axes
+
+  // Continuous collision variables
+  public static boolean CONTINUOUS_COLLISION = true; // stop fast entities at the time of impact
+  static float CCD_THRESHOLD = 0.5f; // part of its smallest extent an entity can move unswept
+  static int CCD_ITERATIONS = 8; // bisection steps used to narrow down the time of impact
+  // manifolds of the sweep tests, never kept
+  private static final ManifoldPool CCD_POOL = new ManifoldPool();
+  private static final ArrayList<Manifold> CCD_MANIFOLDS = new ArrayList<>();
+  // position the swept shape is tested at
+  private static final Vector CCD_PROBE = new Vector(0, 0);
+  // manifolds of the sensor overlap tests, never kept
+  private static final ManifoldPool SENSOR_POOL = new ManifoldPool();
+  private static final ArrayList<Manifold> SENSOR_MANIFOLDS = new ArrayList<>();
+
+  // reference O(n^2) pair search, used when no broadphase is supplied
+  static final Broadphase REFERENCE_BROADPHASE = new BruteForceBroadphase();
+  // reusable pair list for merging broadphase pairs with static tree pairs
+  private static final PairList STATIC_PAIRS = new PairList();
+  // manifolds of the processing tick, taken back when the next tick starts
+  private static final ManifoldPool MANIFOLD_POOL = new ManifoldPool();
+  // reusable manifold list of the pair being tested
+  private static final ArrayList<Manifold> PAIR_MANIFOLDS = new ArrayList<>();
+  // reusable manifold list of the shape tests of collides
+  private static final ArrayList<Manifold> COLLIDES_MANIFOLDS = new ArrayList<>();
+  // reusable manifold lookup of the processing tick
+  private static final ManifoldLookup MANIFOLD_LOOKUP = new ManifoldLookup();
+  // reusable MassTree tables, one per solving thread
+  private static final ThreadLocal<MassTreeTable> MASS_TABLES =
+      ThreadLocal.withInitial(MassTreeTable::new);
+  // minimum number of candidate pairs before the narrowphase is split across threads
+  static int PARALLEL_MIN_PAIRS = 64;
+  // worker pool of the narrowphase, null when the narrowphase runs on the calling thread
+  private static ParallelNarrowphase parallelNarrowphase = null;
+  // contact island solver, null when all the manifolds are solved together on the calling thread
+  private static IslandSolver islandSolver = null;
+
   // </editor-fold>
 
   // <editor-fold defaultstate="collapsed" desc="Bounding Box">
@@ -74,9 +128,24 @@ public class Engine {
       return false;
     }
 
-    // get the maximum and minimum point of the entity a's bounding box
-
     Logger.pushDebugTime("engine_bbc2");
+    boolean flag = boxesOverlap(posA, a, posB, b);
+    Logger.pushDebugTime("engine_bbc2");
+
+    return flag;
+  }
+
+  /**
+   * Do two non null bounding boxes at the given positions overlap.
+   *
+   * @param posA position of box a
+   * @param a    box a
+   * @param posB position of box b
+   * @param b    box b
+   * @return true if the boxes overlap
+   */
+  static boolean boxesOverlap(Vector posA, BoundingBox a, Vector posB, BoundingBox b) {
+    // get the maximum and minimum point of the entity a's bounding box
 
     float maxXA = posA.getX() + a.xMax;
     float maxYA = posA.getY() + a.yMax;
@@ -92,14 +161,8 @@ public class Engine {
     float minXB = posB.getX() + b.xMin;
     float minYB = posB.getY() + b.yMin;
 
-    Logger.pushDebugTime("engine_bbc2");
-    Logger.pushDebugTime("engine_bbc3");
-
-    boolean flag = maxXA > minXB && maxYA > minYB && maxXB > minXA && maxYB > minYA;
-    Logger.pushDebugTime("engine_bbc3");
-
     // if the max is greater than the min in all cases the bounding boxes collide
-    return flag;
+    return maxXA > minXB && maxYA > minYB && maxXB > minXA && maxYB > minYA;
   }
   // </editor-fold>
 
@@ -113,11 +176,106 @@ public class Engine {
    * @param t        time difference during the processing tick
    */
   public static void process(ArrayList<BasicEntity> entities, float t) {
+    process(entities, t, REFERENCE_BROADPHASE);
+  }
+
+  /**
+   * Process the physical interactions of an entity list. Find when entities collide, calculate
+   * collision manifolds, solve the manifolds generating velocities and position shifts.
+   *
+   * @param entities   list of colliding entities
+   * @param t          time difference during the processing tick
+   * @param broadphase candidate pair generator used to find collisions
+   */
+  public static void process(ArrayList<BasicEntity> entities, float t, Broadphase broadphase) {
+    process(entities, null, t, broadphase);
+  }
+
+  /**
+   * Process the physical interactions of an entity list against a set of static entities. The
+   * static entities are not moved or updated, they are only found through the static tree when a
+   * listed entity touches them.
+   *
+   * @param entities   list of colliding entities
+   * @param statics    tree of static entities (walls), can be null
+   * @param t          time difference during the processing tick
+   * @param broadphase candidate pair generator used to find collisions
+   */
+  public static void process(ArrayList<BasicEntity> entities, StaticBVH statics, float t,
+      Broadphase broadphase) {
+    process(entities, statics, t, broadphase, null);
+  }
+
+  /**
+   * Process the physical interactions of a room. Uses the room's walls, broadphase and contact
+   * cache.
+   *
+   * @param room room
+   * @param t    time difference during the processing tick
+   */
+  public static void process(Room room, float t) {
+    process(room.indexPhysicsEntities(), room.getWallTree(), t, room.getBroadphase(),
+        room.getContactCache(), room.getPhysicsStore(), room.getSolver());
+  }
+
+  /**
+   * Process the physical interactions of an entity list against a set of static entities, reusing
+   * the collision results of pairs that haven't moved relative to each other since the last tick.
+   *
+   * @param entities   list of colliding entities
+   * @param statics    tree of static entities (walls), can be null
+   * @param t          time difference during the processing tick
+   * @param broadphase candidate pair generator used to find collisions
+   * @param contacts   contact cache kept between ticks, can be null
+   */
+  public static void process(ArrayList<BasicEntity> entities, StaticBVH statics, float t,
+      Broadphase broadphase, ContactCache contacts) {
+    process(entities, statics, t, broadphase, contacts, null);
+  }
+
+  /**
+   * Process the physical interactions of an entity list against a set of static entities. The
+   * velocities of the entities held by the physics store are updated with a sweep over the store's
+   * arrays.
+   *
+   * @param entities   list of colliding entities
+   * @param statics    tree of static entities (walls), can be null
+   * @param t          time difference during the processing tick
+   * @param broadphase candidate pair generator used to find collisions
+   * @param contacts   contact cache kept between ticks, can be null
+   * @param store      physics store of the entity container, can be null
+   */
+  public static void process(ArrayList<BasicEntity> entities, StaticBVH statics, float t,
+      Broadphase broadphase, ContactCache contacts, PhysicsStore store) {
+    process(entities, statics, t, broadphase, contacts, store, ContactSolver.MASS_TREE);
+  }
+
+  /**
+   * Process the physical interactions of an entity list against a set of static entities, solving
+   * the collision manifolds with a chosen contact solver.
+   *
+   * @param entities   list of colliding entities
+   * @param statics    tree of static entities (walls), can be null
+   * @param t          time difference during the processing tick
+   * @param broadphase candidate pair generator used to find collisions
+   * @param contacts   contact cache kept between ticks, can be null
+   * @param store      physics store of the entity container, can be null
+   * @param solver     contact solver, null uses the mass tree solver
+   */
+  public static void process(ArrayList<BasicEntity> entities, StaticBVH statics, float t,
+      Broadphase broadphase, ContactCache contacts, PhysicsStore store, ContactSolver solver) {
     // do entity pre-processing
 
     Logger.pushDebugTime("engineUpdate");
+    if (store != null) {
+      store.applyDrag(t);
+    }
+
     for (int a = 0; a < entities.size(); a++) {
       BasicEntity e = entities.get(a);
+      if (e.isSleeping() || (store != null && e.getPhysicsStore() == store)) {
+        continue;
+      }
       float scalar = Math.max(0.0f, 1.0f - (1.0f - e.getAirDrag()) * t * 60);
       // calculate the air drag in context of the time difference
       e.scaleVelocity(scalar); // scale all the velocities by air drag
@@ -126,31 +284,114 @@ public class Engine {
 
     Logger.pushDebugTime("engineSearch");
     // get manifolds
-    ArrayList<Manifold> manifolds = findManifolds(entities);
+    ArrayList<Manifold> manifolds = findManifolds(entities, statics, broadphase, contacts);
     Logger.pushDebugTime("engineSearch");
     Logger.pushDebugTime("engineLookup");
     // create a lookup table for manifolds indexed by entities
-    HashMap<BasicEntity, ArrayList<Manifold>> manifoldLookup = generateManifoldLookup(manifolds);
+    ManifoldLookup manifoldLookup = MANIFOLD_LOOKUP;
+    manifoldLookup.build(manifolds);
     Logger.pushDebugTime("engineLookup");
 
     // create forces and positional shifts from the collision manifolds
-    parseManifold2(manifolds, manifoldLookup);
+    (solver == null ? ContactSolver.MASS_TREE : solver).solve(manifolds, manifoldLookup);
+    manifoldLookup.clear();
 
     Logger.pushDebugTime("engineApply");
+    int impacts = 0;
     // apply the calculated forces
     for (int a = 0; a < entities.size(); a++) {
       BasicEntity entity = entities.get(a);
-      entity.addVelocity(entity.getForce().scalei(entity.getInvMass())); // apply velocity
+      if (entity.isSleeping()) {
+        // sleeping entities only collect solver data
+        Engine.clearAll(entity);
+        continue;
+      }
+
+      float forceX = entity.getForceX(), forceY = entity.getForceY();
+      boolean resting = forceX * forceX + forceY * forceY == 0
+          && entity.getShift().magSqr() < SLEEP_SHIFT * SLEEP_SHIFT;
+      float invMass = entity.getInvMass();
+      entity.addVelocity(forceX * invMass, forceY * invMass); // apply velocity
       entity.addPosition(entity.getShift());
       entity.addVelocity(entity.push);
       Engine.clearAll(entity);
       entity.setShift(Vector.zero.clone());
-      entity.setForce(Vector.zero.clone()); // zero out the force
+      entity.setForce(0, 0); // zero out the force
+
+      float startX = entity.getPosition().getX();
+      float startY = entity.getPosition().getY();
       entities.get(a).moveCycle(t); // apply the velocities to the position
+      if (CONTINUOUS_COLLISION && sweep(entity, startX, startY, entities, statics)) {
+        impacts++;
+      }
+      updateRest(entity, resting);
+    }
+    Logger.setDebugStat("ccd_impacts", impacts);
+
+    if (statics != null) {
+      // static entities only collect solver data
+      for (int a = 0; a < statics.size(); a++) {
+        Engine.clearAll(statics.getEntity(a));
+      }
     }
     Logger.pushDebugTime("engineApply");
   }
 
+  /**
+   * Run the collision narrowphase on a pool of worker threads. Only the shape tests are split
+   * across the workers, the entity collision callbacks still run on the calling thread in the same
+   * order as the single threaded narrowphase. Small pair lists are always evaluated directly.
+   *
+   * @param workers worker thread count, 1 or less runs everything on the calling thread
+   */
+  public static void setNarrowphaseWorkers(int workers) {
+    if (parallelNarrowphase != null) {
+      parallelNarrowphase.shutdown();
+      parallelNarrowphase = null;
+    }
+
+    if (workers > 1) {
+      parallelNarrowphase = new ParallelNarrowphase(workers);
+    }
+  }
+
+  /**
+   * Get the number of narrowphase worker threads.
+   *
+   * @return worker thread count, 1 if the narrowphase runs on the calling thread
+   */
+  public static int getNarrowphaseWorkers() {
+    return parallelNarrowphase == null ? 1 : parallelNarrowphase.getWorkers();
+  }
+
+  /**
+   * Split the collision solver into contact islands, groups of entities that touch each other but
+   * nothing else, and solve the islands on a pool of worker threads. Static entities don't join
+   * islands together. Islands never share an entity so the result is the same as solving all the
+   * manifolds on one thread.
+   *
+   * @param workers worker thread count, 1 or less solves everything on the calling thread
+   */
+  public static void setSolverWorkers(int workers) {
+    if (islandSolver != null) {
+      islandSolver.shutdown();
+      islandSolver = null;
+    }
+
+    if (workers > 1) {
+      islandSolver = new IslandSolver(workers);
+    }
+  }
+
+  /**
+   * Get the number of collision solver worker threads.
+   *
+   * @return worker thread count, 1 if the solver runs on the calling thread
+   */
+  public static int getSolverWorkers() {
+    return islandSolver == null ? 1 : islandSolver.getWorkers();
+  }
+
   /**
    * Process menu collisions.
    *
@@ -159,7 +400,8 @@ public class Engine {
    */
   static public void updateAndProcess(EntityHolder m, float t) {
     m.updateCycle(t);
-    process(new ArrayList<>(m.getEntities()), t);
+    process(new ArrayList<>(m.getEntities()), null, t, REFERENCE_BROADPHASE, null,
+        m.getPhysicsStore());
     m.processInteractions();
   }
 
@@ -176,41 +418,188 @@ public class Engine {
       entities.add(gameEntity);
       entities.addAll(gameEntity.getChildren());
     }
-    process(entities, t);
+    process(entities, null, t, REFERENCE_BROADPHASE, null, m.getPhysicsStore());
   }
 
   // </editor-fold>
 
-  // <editor-fold defaultstate="collapsed" desc="Manifold Processing">
+  // <editor-fold defaultstate="collapsed" desc="Continuous Collision">
 
   /**
-   * Generate a manifold lookup table. Produces a hashmap indexed by BasicEntitiy, contains all of
-   * the collision manifold containing the given BasicEntity.
+   * Sweep the shape of an entity along the move it made this tick and pull it back to the time of
+   * impact with the first static entity it hits. Without the sweep an entity moving further than
+   * its own size in a tick can pass through thin walls, the overlap is never seen by the
+   * narrowphase.
+   * <p>
+   * Only entities that moved further than {@link #CCD_THRESHOLD} of their smallest extent are
+   * swept. The move is sampled in steps of that length, a wall is hit at the first overlapping
+   * sample and the time of impact is narrowed down between it and the sample before it. The entity
+   * is left just overlapping the wall so the next tick's narrowphase generates the manifold at the
+   * time of impact, the velocity is kept for the solver to respond to.
+   * <p>
+   * The entity is swept against the static tree and the immovable entities of the list. Entities
+   * already overlapping at the start of the move are skipped, those collisions are handled by the
+   * solver. No collision callbacks are called by the sweep.
    *
-   * @param manifolds list of collision manifolds
-   * @return lookup HashMap
+   * @param entity   moved entity
+   * @param startX   x position before the move
+   * @param startY   y position before the move
+   * @param entities list of colliding entities
+   * @param statics  tree of static entities, can be null
+   * @return true if the entity was stopped at a time of impact
    */
-  public static HashMap<BasicEntity, ArrayList<Manifold>> generateManifoldLookup(
-      ArrayList<Manifold> manifolds) {
+  static boolean sweep(BasicEntity entity, float startX, float startY,
+      ArrayList<BasicEntity> entities, StaticBVH statics) {
+    BoundingBox bb = entity.getBroadBoundingBox();
+    if (bb == null || !Broadphase.canCollide(entity) || !entity.hasPhysics() || entity.isSensor()
+        || entity.getInvMass() == 0) {
+      return false;
+    }
 
-    HashMap<BasicEntity, ArrayList<Manifold>> manifoldLookup = new HashMap<>();
+    Vector pos = entity.getPosition();
+    float dx = pos.getX() - startX;
+    float dy = pos.getY() - startY;
+    float step = Math.min(bb.xMax - bb.xMin, bb.yMax - bb.yMin) * CCD_THRESHOLD;
+    float dist = (float) Math.sqrt(dx * dx + dy * dy);
+    if (!(step > 0) || dist <= step) {
+      return false;
+    }
 
-    for (Manifold manifold : manifolds) {
-      BasicEntity entity_a = manifold.a;
-      BasicEntity entity_b = manifold.b;
+    int steps = (int) Math.ceil(dist / step);
+    float toi = 1;
 
-      // create lookup tables for the entities (need to make this faster)
-      if (!manifoldLookup.containsKey(entity_a)) {
-        manifoldLookup.put(entity_a, new ArrayList<>());
+    // bounds of the whole move
+    float xMin = Math.min(startX, pos.getX()) + bb.xMin;
+    float yMin = Math.min(startY, pos.getY()) + bb.yMin;
+    float xMax = Math.max(startX, pos.getX()) + bb.xMax;
+    float yMax = Math.max(startY, pos.getY()) + bb.yMax;
+
+    if (statics != null && statics.size() > 0) {
+      int hits = statics.query(xMin, yMin, xMax, yMax);
+      for (int h = 0; h < hits; h++) {
+        toi = timeOfImpact(entity, statics.getEntity(statics.getHit(h)),
+            startX, startY, dx, dy, steps, toi);
+      }
+    }
+
+    for (int i = 0; i < entities.size(); i++) {
+      BasicEntity other = entities.get(i);
+      BoundingBox obb = other.getBroadBoundingBox();
+      if (other == entity || other.getInvMass() != 0 || obb == null) {
+        continue;
       }
-      manifoldLookup.get(entity_a).add(manifold);
 
-      if (!manifoldLookup.containsKey(entity_b)) {
-        manifoldLookup.put(entity_b, new ArrayList<>());
+      Vector oPos = other.getPosition();
+      if (oPos.getX() + obb.xMin <= xMax && oPos.getX() + obb.xMax >= xMin
+          && oPos.getY() + obb.yMin <= yMax && oPos.getY() + obb.yMax >= yMin) {
+        toi = timeOfImpact(entity, other, startX, startY, dx, dy, steps, toi);
       }
-      manifoldLookup.get(entity_b).add(manifold);
     }
 
+    if (toi >= 1) {
+      return false;
+    }
+
+    entity.addPosition(new Vector(-dx * (1 - toi), -dy * (1 - toi)));
+    return true;
+  }
+
+  /**
+   * Find the time of impact of a moving entity with another entity.
+   * <p>
+   * The sweep is a geometric test and doesn't run the collision callbacks, so collisions canceled
+   * through {@link BasicEntity#cancelCollision()} still stop the moving entity.
+   *
+   * @param entity moving entity
+   * @param other  entity that might be hit
+   * @param startX x position of the moving entity before the move
+   * @param startY y position of the moving entity before the move
+   * @param dx     x distance of the move
+   * @param dy     y distance of the move
+   * @param steps  number of samples along the move
+   * @param limit  earliest time of impact found so far, later impacts aren't searched
+   * @return part of the move made before the impact, the limit if there is no earlier impact
+   */
+  private static float timeOfImpact(BasicEntity entity, BasicEntity other, float startX,
+      float startY, float dx, float dy, int steps, float limit) {
+    if (!Broadphase.canPair(entity, other) || !other.hasPhysics() || other.isSensor()) {
+      return limit;
+    }
+
+    Shape shape = entity.getShape(other);
+    Shape otherShape = other.getShape(entity);
+    if (shape == null || otherShape == null) {
+      return limit;
+    }
+
+    // entities that are already touching are left to the solver
+    if (overlapsAt(entity, shape, other, otherShape, startX, startY)) {
+      return limit;
+    }
+
+    float clear = 0;
+    for (int i = 1; i <= steps; i++) {
+      float time = Math.min(1, (float) i / steps);
+      if (time > limit) {
+        break;
+      }
+
+      if (overlapsAt(entity, shape, other, otherShape, startX + dx * time, startY + dy * time)) {
+        // narrow the impact down between the last clear sample and the hit
+        float hit = time;
+        for (int k = 0; k < CCD_ITERATIONS; k++) {
+          float mid = (clear + hit) / 2;
+          if (overlapsAt(entity, shape, other, otherShape, startX + dx * mid,
+              startY + dy * mid)) {
+            hit = mid;
+          } else {
+            clear = mid;
+          }
+        }
+        return Math.min(hit, limit);
+      }
+
+      clear = time;
+    }
+
+    return limit;
+  }
+
+  /**
+   * Does the shape of an entity overlap the shape of another entity with the entity at a position.
+   */
+  private static boolean overlapsAt(BasicEntity entity, Shape shape, BasicEntity other,
+      Shape otherShape, float x, float y) {
+    Vector probe = CCD_PROBE.set(x, y);
+    if (!boxesOverlap(probe, shape.getBoundingBox(), other.getPosition(),
+        otherShape.getBoundingBox())) {
+      return false;
+    }
+
+    CCD_POOL.reset();
+    CCD_MANIFOLDS.clear();
+    routeEntityShapes(entity, shape, probe, other, otherShape, other.getPosition(), CCD_POOL,
+        CCD_MANIFOLDS);
+    return !CCD_MANIFOLDS.isEmpty();
+  }
+
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="Manifold Processing">
+
+  /**
+   * Generate a manifold lookup table. Produces a table indexed by BasicEntity, contains all of
+   * the collision manifold containing the given BasicEntity. Entities are numbered in the order
+   * they first appear in the manifold list.
+   *
+   * @param manifolds list of collision manifolds
+   * @return lookup table
+   */
+  public static ManifoldLookup generateManifoldLookup(
+      ArrayList<Manifold> manifolds) {
+
+    ManifoldLookup manifoldLookup = new ManifoldLookup();
+    manifoldLookup.build(manifolds);
     return manifoldLookup;
   }
 
@@ -225,89 +614,364 @@ public class Engine {
    * @return list of valid collision manifolds
    */
   public static ArrayList<Manifold> findManifolds(ArrayList<BasicEntity> entities) {
+    return findManifolds(entities, REFERENCE_BROADPHASE);
+  }
+
+  /**
+   * Generate a list of collision manifolds from a list of entities.
+   * <p>
+   * The broadphase supplies the candidate pairs, every candidate is then run through the exact
+   * bounding box and shape tests. Manifolds are produced in the same order as the reference
+   * nested loop regardless of the broadphase used.
+   *
+   * @param entities   BasicEntity list
+   * @param broadphase candidate pair generator
+   * @return list of valid collision manifolds
+   */
+  public static ArrayList<Manifold> findManifolds(ArrayList<BasicEntity> entities,
+      Broadphase broadphase) {
+    return findManifolds(entities, null, broadphase);
+  }
+
+  /**
+   * Generate a list of collision manifolds from a list of entities and a tree of static entities.
+   * <p>
+   * Static entities are never run through the broadphase, each listed entity queries the static
+   * tree with its own bounding box instead. Static entities are indexed in front of the listed
+   * entities so the manifolds come out in the same order as the reference nested loop over the
+   * static entities followed by the entity list.
+   *
+   * @param entities   BasicEntity list
+   * @param statics    tree of static entities, can be null
+   * @param broadphase candidate pair generator
+   * @return list of valid collision manifolds
+   */
+  public static ArrayList<Manifold> findManifolds(ArrayList<BasicEntity> entities,
+      StaticBVH statics, Broadphase broadphase) {
+    return findManifolds(entities, statics, broadphase, null);
+  }
+
+  /**
+   * Generate a list of collision manifolds from a list of entities and a tree of static entities,
+   * reusing the stored results of pairs in the contact cache where possible.
+   * <p>
+   * The manifolds are taken from the engine's manifold pool, which is reset by this call. They are
+   * only valid until the next call.
+   * <p>
+   * Pairs with a sensor in them are only tested for overlap and never produce manifolds, their
+   * enter, stay and exit events are sent after every pair has been searched.
+   *
+   * @param entities   BasicEntity list
+   * @param statics    tree of static entities, can be null
+   * @param broadphase candidate pair generator
+   * @param contacts   contact cache, can be null
+   * @return list of valid collision manifolds
+   */
+  public static ArrayList<Manifold> findManifolds(ArrayList<BasicEntity> entities,
+      StaticBVH statics, Broadphase broadphase, ContactCache contacts) {
     ArrayList<Manifold> manifolds = new ArrayList<>();
+    MANIFOLD_POOL.reset();
 
-    // calculate manifolds from entity positions and shapes
-    for (int a = 0; a < entities.size(); a++) {
-      BasicEntity entity_a = entities.get(a);
+    Logger.pushDebugTime("engine_broadphase");
+    PairList pairs = broadphase.findPairs(entities);
 
-      if (!entity_a.isCollides()) { // does entity a collide if not skip calculations
-        // DO NOT PUT CODE HERE UNLESS YOU ARE ABSOLUTELY SURE
-        // It probably does not belong here
-        continue;
-      }
+    int offset = 0;
+    if (statics != null && statics.size() > 0) {
+      offset = statics.size();
+      PairList merged = STATIC_PAIRS;
+      merged.clear();
 
-      for (int b = (a + 1); b < entities.size(); b++) {
-        BasicEntity entity_b = entities.get(b);
+      for (int i = 0; i < pairs.size(); i++) {
+        merged.add(pairs.getA(i) + offset, pairs.getB(i) + offset);
+      }
 
-        if (!entity_b.isCollides()) { // does entity b collide if not skip calculations
-          // DO NOT PUT CODE HERE UNLESS YOU ARE ABSOLUTELY SURE
-          // It probably does not belong here
+      for (int i = 0; i < entities.size(); i++) {
+        BasicEntity entity = entities.get(i);
+        BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+        if (box == null) {
           continue;
         }
 
+        int hits = statics.query(box.xMin, box.yMin, box.xMax, box.yMax);
 
-        if (entity_a.getInvMass() == 0 && entity_b.getInvMass() == 0
-            && !entity_a.isInteractAll() && !entity_b.isInteractAll()) {
-          // DO NOT PUT CODE HERE UNLESS YOU ARE ABSOLUTELY SURE
-          // It probably does not belong here
-          continue;
+        for (int h = 0; h < hits; h++) {
+          int s = statics.getHit(h);
+          if (Broadphase.canPair(statics.getEntity(s), entity)) {
+            merged.add(s, i + offset);
+          }
         }
+      }
 
-        Logger.pushDebugTime("engine_bl");
-        Logger.pushDebugTime("engine_bl");
+      merged.sortUnique();
+      pairs = merged;
+    }
+    Logger.pushDebugTime("engine_broadphase");
 
-        Logger.pushDebugTime("engine_bbc");
+    if (parallelNarrowphase != null && pairs.size() >= PARALLEL_MIN_PAIRS) {
+      // evaluate the pairs on the worker pool, callbacks still run here in pair order
+      for (int i = 0; i < pairs.size(); i++) {
+        BasicEntity a = pairEntity(entities, statics, offset, pairs.getA(i));
+        BasicEntity b = pairEntity(entities, statics, offset, pairs.getB(i));
+        if (a.isSensor() || b.isSensor()) {
+          findOverlap(a, b);
+        } else {
+          parallelNarrowphase.add(a, b, contacts == null ? null : contacts.get(a, b));
+        }
+      }
 
+      Logger.pushDebugTime("engine_narrowphase");
+      parallelNarrowphase.process(manifolds);
+      Logger.pushDebugTime("engine_narrowphase");
+    } else {
+      // calculate manifolds from entity positions and shapes
+      for (int i = 0; i < pairs.size(); i++) {
+        BasicEntity a = pairEntity(entities, statics, offset, pairs.getA(i));
+        BasicEntity b = pairEntity(entities, statics, offset, pairs.getB(i));
+        if (a.isSensor() || b.isSensor()) {
+          findOverlap(a, b);
+        } else {
+          findManifolds(a, b, contacts == null ? null : contacts.get(a, b), manifolds);
+        }
+      }
+    }
 
+    if (contacts != null) {
+      contacts.sweep();
+      Logger.setDebugStat("contacts_reused", contacts.getReused());
+      Logger.setDebugStat("contacts_tested", contacts.getTested());
+    }
 
-        BoundingBox bba = entity_a.getBoundingBox(entity_b);
-        BoundingBox bbb = entity_b.getBoundingBox(entity_a);
+    Logger.pushDebugTime("engine_sensors");
+    dispatchOverlaps(entities, statics);
+    Logger.pushDebugTime("engine_sensors");
 
+    wakeTouched(manifolds);
 
-        // if the entities bounding boxes' do not collide, skip more heavy calculations
-        if (!boundingBoxCollision(entity_a.getPosition(), bba, entity_b.getPosition(), bbb)) {
-          // DO NOT PUT CODE HERE UNLESS YOU ARE ABSOLUTELY SURE.
-          // It probably does not belong here
+    return manifolds;
+  }
 
-          Logger.pushDebugTime("engine_bbc");
-          continue;
-        }
+  /**
+   * Test a sensor pair for overlap. Overlapping entities are added to the sensor overlaps of each
+   * other, no manifolds are kept and no callbacks are called.
+   *
+   * @param entity_a entity a
+   * @param entity_b entity b
+   */
+  static void findOverlap(BasicEntity entity_a, BasicEntity entity_b) {
+    BoundingBox bba = entity_a.getBoundingBox(entity_b);
+    BoundingBox bbb = entity_b.getBoundingBox(entity_a);
+    Vector posA = entity_a.getPosition();
+    Vector posB = entity_b.getPosition();
 
-        Logger.pushDebugTime("engine_bbc");
+    if (bba == null || bbb == null || !boxesOverlap(posA, bba, posB, bbb)) {
+      return;
+    }
 
-        Logger.pushDebugTime("engine_shapes_get");
+    Shape shapeA = entity_a.getShape(entity_b);
+    Shape shapeB = entity_b.getShape(entity_a);
+    if (shapeA == null || shapeB == null) {
+      return;
+    }
 
-        // could extrapolate parent checking
-        Shape shapeA = entity_a.getShape(entity_b);
-        Shape shapeB = entity_b.getShape(entity_a);
+    SENSOR_POOL.reset();
+    SENSOR_MANIFOLDS.clear();
+    routeEntityShapes(entity_a, shapeA, posA, entity_b, shapeB, posB, SENSOR_POOL,
+        SENSOR_MANIFOLDS);
+    if (SENSOR_MANIFOLDS.isEmpty()) {
+      return;
+    }
 
-        Logger.pushDebugTime("engine_shapes_get");
+    entity_a.addSensorOverlap(entity_b);
+    entity_b.addSensorOverlap(entity_a);
+  }
 
-        if (shapeA == null || shapeB == null) {
-          continue;
-        }
+  /**
+   * Send the sensor events of the tick to every entity with sensor overlaps.
+   *
+   * @param entities entity list
+   * @param statics  tree of static entities, can be null
+   */
+  static void dispatchOverlaps(ArrayList<BasicEntity> entities, StaticBVH statics) {
+    if (statics != null) {
+      for (int i = 0; i < statics.size(); i++) {
+        dispatchOverlaps(statics.getEntity(i));
+      }
+    }
+
+    for (int i = 0; i < entities.size(); i++) {
+      dispatchOverlaps(entities.get(i));
+    }
+  }
+
+  private static void dispatchOverlaps(BasicEntity entity) {
+    SensorOverlaps overlaps = entity.getSensorOverlaps();
+    if (overlaps != null && !overlaps.isEmpty()) {
+      overlaps.dispatch(entity);
+    }
+  }
+
+  /**
+   * Wake the sleeping entities touched by moving entities. Manifolds between a sleeping entity
+   * and an entity at rest are dropped so resting neighbours don't keep waking each other.
+   *
+   * @param manifolds list of collision manifolds
+   */
+  static void wakeTouched(ArrayList<Manifold> manifolds) {
+    manifolds.removeIf(m -> {
+      if (!m.a.isSleeping() && !m.b.isSleeping()) {
+        return false;
+      }
+
+      if (isMoving(m.b)) {
+        m.a.wake();
+      } else if (isMoving(m.a)) {
+        m.b.wake();
+      } else {
+        return true;
+      }
+      return false;
+    });
+  }
+
+  /**
+   * Can an entity wake the sleeping entities it touches.
+   */
+  private static boolean isMoving(BasicEntity entity) {
+    return !entity.isSleeping() && entity.getInvMass() != 0 && !isResting(entity);
+  }
+
+  /**
+   * Is an entity moving slow enough to count as at rest.
+   *
+   * @param entity entity
+   * @return true if the velocity and force of the entity are under the sleep thresholds
+   */
+  static boolean isResting(BasicEntity entity) {
+    float velX = entity.getVelocityX(), velY = entity.getVelocityY();
+    float forceX = entity.getForceX(), forceY = entity.getForceY();
+    return velX * velX + velY * velY < SLEEP_VELOCITY * SLEEP_VELOCITY
+        && forceX * forceX + forceY * forceY == 0;
+  }
+
+  /**
+   * Count the ticks an entity has been at rest and put it to sleep once it has been at rest for
+   * {@link #SLEEP_TICKS} ticks in a row.
+   *
+   * @param entity  entity
+   * @param resting was the entity's shift and force under the sleep thresholds this tick
+   */
+  static void updateRest(BasicEntity entity, boolean resting) {
+    if (!entity.isCanSleep() || entity.getInvMass() == 0) {
+      return;
+    }
 
-        Logger.pushDebugTime("engine_routing");
-        // detect collisions between the two entities
-        // Returns any calculated collisions in a list
-        ArrayList<Manifold> list = routeEntityShapes(
-            entity_a, shapeA, entity_a.getPosition(),
-            entity_b, shapeB, entity_b.getPosition());
+    if (resting && isResting(entity)) {
+      entity.setRestTicks(entity.getRestTicks() + 1);
+      if (entity.getRestTicks() >= SLEEP_TICKS) {
+        entity.sleep();
+      }
+    } else {
+      entity.setRestTicks(0);
+    }
+  }
+
+  /**
+   * Resolve a pair index, static entities are indexed in front of the entity list.
+   */
+  private static BasicEntity pairEntity(ArrayList<BasicEntity> entities, StaticBVH statics,
+      int offset, int index) {
+    return index < offset ? statics.getEntity(index) : entities.get(index - offset);
+  }
+
+  /**
+   * Run the exact collision tests on a candidate pair and add any valid manifolds to the master
+   * list.
+   *
+   * @param entity_a  entity a
+   * @param entity_b  entity b
+   * @param manifolds master manifold list
+   */
+  public static void findManifolds(BasicEntity entity_a, BasicEntity entity_b,
+      ArrayList<Manifold> manifolds) {
+    findManifolds(entity_a, entity_b, null, manifolds);
+  }
+
+  /**
+   * Run the exact collision tests on a candidate pair and add any valid manifolds to the master
+   * list. The shape tests are skipped if the contact holds a result for the same relative position.
+   *
+   * @param entity_a  entity a
+   * @param entity_b  entity b
+   * @param contact   persistent contact of the pair, can be null
+   * @param manifolds master manifold list
+   */
+  public static void findManifolds(BasicEntity entity_a, BasicEntity entity_b, Contact contact,
+      ArrayList<Manifold> manifolds) {
+    ArrayList<Manifold> list = PAIR_MANIFOLDS;
+    list.clear();
+    int mark = MANIFOLD_POOL.size();
+
+    Logger.pushDebugTime("engine_narrowphase");
+    boolean hit = narrowphase(entity_a, entity_b, contact, MANIFOLD_POOL, list);
+    Logger.pushDebugTime("engine_narrowphase");
 
-        Logger.pushDebugTime("engine_routing");
+    if (!hit || processCollision(entity_a, entity_b, list)) {
+      // nothing was kept, give the manifolds of the pair back to the pool
+      MANIFOLD_POOL.rewind(mark);
+      return;
+    }
+
+    manifolds.addAll(list); // add manifolds to master list
+  }
+
+  /**
+   * Run the exact bounding box and shape tests on a candidate pair.
+   * <p>
+   * Only reads the entities and shapes, so it is safe to call from worker threads as long as each
+   * thread uses its own pool. Does not call the entity collision callbacks.
+   *
+   * @param entity_a entity a
+   * @param entity_b entity b
+   * @param contact  persistent contact of the pair, can be null
+   * @param pool     pool the manifolds are taken from
+   * @param out      empty list the collision manifolds are added to
+   * @return true if the entities collide
+   */
+  static boolean narrowphase(BasicEntity entity_a, BasicEntity entity_b, Contact contact,
+      ManifoldPool pool, ArrayList<Manifold> out) {
+    BoundingBox bba = entity_a.getBoundingBox(entity_b);
+    BoundingBox bbb = entity_b.getBoundingBox(entity_a);
+    Vector posA = entity_a.getPosition();
+    Vector posB = entity_b.getPosition();
+
+    // if the entities bounding boxes' do not collide, skip more heavy calculations
+    if (bba == null || bbb == null || !boxesOverlap(posA, bba, posB, bbb)) {
+      // DO NOT PUT CODE HERE UNLESS YOU ARE ABSOLUTELY SURE.
+      // It probably does not belong here
+      return false;
+    }
+
+    // could extrapolate parent checking
+    Shape shapeA = entity_a.getShape(entity_b);
+    Shape shapeB = entity_b.getShape(entity_a);
+
+    if (shapeA == null || shapeB == null) {
+      return false;
+    }
 
-        list.removeIf(Objects::isNull);
+    if (contact != null && contact.reuse(shapeA, posA, shapeB, posB, pool, out)) {
+      // the pair hasn't moved relative to each other, the stored result still holds
+      return !out.isEmpty();
+    }
 
-        if (list.isEmpty() || processCollision(entity_a, entity_b, list)) {
-          continue;
-        }
+    // detect collisions between the two entities
+    // Adds any calculated collisions to the list
+    routeEntityShapes(entity_a, shapeA, posA, entity_b, shapeB, posB, pool, out);
 
-        manifolds.addAll(list); // add manifolds to master list
-      }
+    if (contact != null) {
+      contact.store(shapeA, posA, shapeB, posB, out);
     }
-
-    return manifolds;
+    return !out.isEmpty();
   }
 
   /**
@@ -345,7 +1009,7 @@ public class Engine {
   /**
    * Generate and apply forces and shifts using collision reaction physics.
    * <br> <br>
-   * Uses {@link #collectMass(BasicEntity, HashMap, Vector) collectMass} to generate a collision
+   * Uses {@link #collectMass(BasicEntity, ManifoldLookup, Vector) collectMass} to generate a collision
    * tree. The function then uses this tree to calculate the total mass of a given entity with all
    * physically connected masses included. This means that all entities that will be affected by the
    * starting entity traveling along a given collision normal are collected and added. This function
@@ -354,23 +1018,50 @@ public class Engine {
    * <p>
    * version: 2
    *
+   * When solver workers are configured the manifolds are split into contact islands that are
+   * solved in parallel, see {@link #setSolverWorkers(int)}.
+   *
    * @param manifolds list of collision manifolds
    * @param mLookup   manifold lookup table for calculating branching collisions
    */
   public static void parseManifold2(ArrayList<Manifold> manifolds,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup) {
-    HashMap<BasicEntity, ArrayList<MassTree>> master = new HashMap<>();
+      ManifoldLookup mLookup) {
+    if (islandSolver != null) {
+      islandSolver.solve(manifolds, mLookup);
+      return;
+    }
+
+    solveIsland(mLookup.getEntities(), manifolds, mLookup);
+  }
+
+  /**
+   * Solve a group of entities and the manifolds between them, the body of
+   * {@link #parseManifold2(ArrayList, ManifoldLookup)}.
+   * <p>
+   * The group has to be closed: every non static entity reachable through the manifolds (and the
+   * parents of those entities) has to be part of it. Groups that don't share entities can be solved
+   * at the same time.
+   *
+   * @param entities  entities of the group, in manifold lookup order
+   * @param manifolds manifolds of the group, in manifold order
+   * @param mLookup   manifold lookup table for calculating branching collisions
+   */
+  static void solveIsland(Collection<BasicEntity> entities, List<Manifold> manifolds,
+      ManifoldLookup mLookup) {
+    MassTreeTable master = MASS_TABLES.get();
+    master.reset(mLookup);
 
     float factor = 100f;
 //    Game.log("-----");
 
     Logger.pushDebugTime("engine_inital");
-    for (BasicEntity entity : mLookup.keySet()) {
-      Vector vel = entity.getVelocity();
-      if (entity.getInvMass() != 0 && vel.magSqr() > 0) {
+    for (BasicEntity entity : entities) {
+      float velX = entity.getVelocityX(), velY = entity.getVelocityY();
+      if (entity.getInvMass() != 0 && velX * velX + velY * velY > 0) {
+        Vector vel = new Vector(velX, velY);
         Vector v = vel.normalizei();
 
-        Engine.clearShifts(mLookup.keySet());
+        Engine.clearShifts(entities);
         MassTree bData = Engine.collectMass(master, mLookup, entity, v, false);
 
         float relMass = -1;
@@ -400,7 +1091,8 @@ public class Engine {
       BasicEntity B = m.b;
 
       // calculate the relative velocities
-      Vector relativeVel = Vector.sub(B.getVelocity(), A.getVelocity());
+      Vector relativeVel = new Vector(B.getVelocityX() - A.getVelocityX(),
+          B.getVelocityY() - A.getVelocityY());
       // store a normalized version of the relative vector
       Vector relNormal = relativeVel.normalizei();
 
@@ -420,26 +1112,27 @@ public class Engine {
       float maxSqrLength = 0;
 
       // loop through the separation vectors
-      for (Vector v : m.vectors) {
+      for (int i = 0; i < m.getContactCount(); i++) {
         // find the separation vector with the maximum squared length
-        maxSqrLength = Math.max(maxSqrLength, v.magSqr());
+        float dx = m.getDepthX(i), dy = m.getDepthY(i);
+        maxSqrLength = Math.max(maxSqrLength, dx * dx + dy * dy);
       }
 
       if (maxSqrLength > POS_ERROR_MARGIN || contactVelocity > 0) {
 
-        for (Vector v : m.normals) {
-          svnorm.add(v);
+        for (int i = 0; i < m.getContactCount(); i++) {
+          svnorm.add(m.getNormalX(i), m.getNormalY(i));
         }
 
         // use the size of the separation vector list to calculate the average vector
-        svnorm = svnorm.normalizei();
+        svnorm.normalize();
 
 
         Logger.pushDebugTime("engine_collectMass");
-        Engine.clearShifts(mLookup.keySet());
+        Engine.clearShifts(entities);
         MassTree aData = Engine.collectMass(master, mLookup, A, svnorm, false);
 
-        Engine.clearShifts(mLookup.keySet());
+        Engine.clearShifts(entities);
         MassTree bData = Engine.collectMass(master, mLookup, B, svnorm.scalei(-1), false);
         Logger.pushDebugTime("engine_collectMass");
 
@@ -545,9 +1238,183 @@ public class Engine {
       return false;
     }
 
-    ArrayList<Manifold> list = routeEntityShapes(null, s1, v1, null, s2, v2);
-    list.removeIf(Objects::isNull);
-    return !list.isEmpty();
+    ArrayList<Manifold> list = COLLIDES_MANIFOLDS;
+    list.clear();
+    int mark = MANIFOLD_POOL.size();
+    routeEntityShapes(null, s1, v1, null, s2, v2, MANIFOLD_POOL, list);
+    MANIFOLD_POOL.rewind(mark);
+    boolean collided = !list.isEmpty();
+    list.clear();
+    return collided;
+  }
+
+  /**
+   * Does a shape at a position contain a point. Points on an edge count as inside.
+   *
+   * @param s shape
+   * @param x x position of the shape
+   * @param y y position of the shape
+   * @param pX point x
+   * @param pY point y
+   * @return true if the point is inside of the shape
+   */
+  public static boolean containsPoint(Shape s, float x, float y, float pX, float pY) {
+    if (s instanceof MultiShape) {
+      MultiShape ms = (MultiShape) s;
+      for (int i = 0; i < ms.size(); i++) {
+        Vector shift = ms.getShift(i);
+        if (containsPoint(ms.getShape(i), x + shift.getX(), y + shift.getY(), pX, pY)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (s instanceof Circle) {
+      float dx = pX - x, dy = pY - y, r = ((Circle) s).getRadius();
+      return dx * dx + dy * dy <= r * r;
+    } else if (!(s instanceof PolygonShape)) {
+      return false;
+    }
+
+    // count the edges crossed by a ray going right from the point
+    PolygonShape p = (PolygonShape) s;
+    boolean inside = false;
+    for (int i = 0, j = p.getSize() - 1; i < p.getSize(); j = i++) {
+      float iX = x + p.getX(i), iY = y + p.getY(i);
+      float jX = x + p.getX(j), jY = y + p.getY(j);
+
+      if ((iX - pX) * (jY - pY) == (jX - pX) * (iY - pY)
+          && Math.min(iX, jX) <= pX && pX <= Math.max(iX, jX)
+          && Math.min(iY, jY) <= pY && pY <= Math.max(iY, jY)) {
+        return true;
+      }
+
+      if ((iY > pY) != (jY > pY) && pX < iX + (pY - iY) * (jX - iX) / (jY - iY)) {
+        inside = !inside;
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Does any part of a shape at a position lie closer to a point than a radius, the test of a
+   * circle against the shape without running the circle collision test.
+   *
+   * @param s      shape
+   * @param x      x position of the shape
+   * @param y      y position of the shape
+   * @param pX     point x
+   * @param pY     point y
+   * @param radius radius around the point
+   * @return true if the shape contains the point or comes closer to it than the radius
+   */
+  public static boolean withinRadius(Shape s, float x, float y, float pX, float pY,
+      float radius) {
+    if (s instanceof MultiShape) {
+      MultiShape ms = (MultiShape) s;
+      for (int i = 0; i < ms.size(); i++) {
+        Vector shift = ms.getShift(i);
+        if (withinRadius(ms.getShape(i), x + shift.getX(), y + shift.getY(), pX, pY, radius)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (s instanceof Circle) {
+      float dx = pX - x, dy = pY - y, r = ((Circle) s).getRadius() + radius;
+      return dx * dx + dy * dy < r * r;
+    } else if (!(s instanceof PolygonShape)) {
+      return false;
+    }
+
+    if (containsPoint(s, x, y, pX, pY)) {
+      return true;
+    }
+
+    // distance from the point to the closest point of each edge
+    PolygonShape p = (PolygonShape) s;
+    for (int i = 0, j = p.getSize() - 1; i < p.getSize(); j = i++) {
+      float jX = x + p.getX(j), jY = y + p.getY(j);
+      float eX = p.getX(i) - p.getX(j), eY = p.getY(i) - p.getY(j);
+      float length = eX * eX + eY * eY;
+      float f = length == 0 ? 0 : ((pX - jX) * eX + (pY - jY) * eY) / length;
+      f = Math.max(0, Math.min(1, f));
+
+      float dx = pX - (jX + eX * f), dy = pY - (jY + eY * f);
+      if (dx * dx + dy * dy < radius * radius) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find where a line segment first touches a shape.
+   *
+   * @param s  shape
+   * @param x  x position of the shape
+   * @param y  y position of the shape
+   * @param aX segment start x
+   * @param aY segment start y
+   * @param dX segment length along x
+   * @param dY segment length along y
+   * @return part of the segment before the shape is touched, 0 if the segment starts inside of
+   * the shape and -1 if it misses the shape
+   */
+  public static float segmentFraction(Shape s, float x, float y, float aX, float aY, float dX,
+      float dY) {
+    if (s instanceof MultiShape) {
+      MultiShape ms = (MultiShape) s;
+      float best = -1;
+      for (int i = 0; i < ms.size(); i++) {
+        Vector shift = ms.getShift(i);
+        float f = segmentFraction(ms.getShape(i), x + shift.getX(), y + shift.getY(),
+            aX, aY, dX, dY);
+        if (f >= 0 && (best < 0 || f < best)) {
+          best = f;
+        }
+      }
+      return best;
+    } else if (s instanceof Circle) {
+      float fX = aX - x, fY = aY - y, r = ((Circle) s).getRadius();
+      float a = dX * dX + dY * dY;
+      float b = 2 * (fX * dX + fY * dY);
+      float c = fX * fX + fY * fY - r * r;
+      if (c <= 0) {
+        return 0;
+      }
+
+      float disc = b * b - 4 * a * c;
+      if (a == 0 || disc < 0) {
+        return -1;
+      }
+
+      float f = (-b - (float) Math.sqrt(disc)) / (2 * a);
+      return f >= 0 && f <= 1 ? f : -1;
+    } else if (!(s instanceof PolygonShape)) {
+      return -1;
+    }
+
+    if (containsPoint(s, x, y, aX, aY)) {
+      return 0;
+    }
+
+    PolygonShape p = (PolygonShape) s;
+    float best = -1;
+    for (int i = 0, j = p.getSize() - 1; i < p.getSize(); j = i++) {
+      float eX = p.getX(i) - p.getX(j), eY = p.getY(i) - p.getY(j);
+      float denom = dX * eY - dY * eX;
+      if (denom == 0) {
+        // parallel edges are touched through their neighbours
+        continue;
+      }
+
+      float wX = x + p.getX(j) - aX, wY = y + p.getY(j) - aY;
+      float f = (wX * eY - wY * eX) / denom; // along the segment
+      float u = (wX * dY - wY * dX) / denom; // along the edge
+      if (f >= 0 && f <= 1 && u >= 0 && u <= 1 && (best < 0 || f < best)) {
+        best = f;
+      }
+    }
+    return best;
   }
 
   // </editor-fold>
@@ -566,7 +1433,7 @@ public class Engine {
     if (Vector.dot(cross, d) > 0) {
       return cross;
     } else {
-      return cross.scalei(-1);
+      return cross.negate();
     }
   }
 
@@ -652,18 +1519,32 @@ public class Engine {
    * @return true if the collide false if otherwise
    */
   public static boolean lineLineCollision(Vector a, Vector b, Vector c, Vector d) {
+    return lineLineCollision(a.getX(), a.getY(), b.getX(), b.getY(),
+        c.getX(), c.getY(), d.getX(), d.getY());
+  }
+
+  /**
+   * Float version of {@link #lineLineCollision(Vector, Vector, Vector, Vector)} used with packed
+   * polygon vertices.
+   *
+   * @return true if the line segments ab and cd collide
+   */
+  public static boolean lineLineCollision(float aX, float aY, float bX, float bY,
+      float cX, float cY, float dX, float dY) {
+    // this runs for every edge pair of two polygons so the vectors are kept as floats
+
     // create relative direction vectors of the two line segments
-    Vector a2b = Vector.sub(b, a);
-    Vector c2d = Vector.sub(d, c);
+    float a2bX = bX - aX, a2bY = bY - aY;
+    float c2dX = dX - cX, c2dY = dY - cY;
 
     // calculate the vectors from the second line segment start to the first line segment start
     //  and calculate the vector from the second line segment end to the first line segment end
-    Vector c2a = Vector.sub(a, c);
-    Vector d2b = Vector.sub(b, d);
+    float c2aX = aX - cX, c2aY = aY - cY;
+    float d2bX = bX - dX, d2bY = bY - dY;
 
     // calculate the perpendicular lines to the original line segments (+ 90 deg)
-    Vector p1 = a2b.perpi();
-    Vector p2 = c2d.perpi();
+    float p1X = -a2bY, p1Y = a2bX;
+    float p2X = -c2dY, p2Y = c2dX;
 
     // calculate relative direction values
 
@@ -681,8 +1562,8 @@ public class Engine {
     // If either dots are negative that means that vector ab cd form two almost parallel lines that do not intersect
     // the same rules apply to ha and hb.
 
-    float ha = Vector.dot(c2a, p1) / Vector.dot(c2d, p1);
-    float hb = Vector.dot(d2b, p2) / Vector.dot(a2b, p2);
+    float ha = (c2aX * p1X + c2aY * p1Y) / (c2dX * p1X + c2dY * p1Y);
+    float hb = (d2bX * p2X + d2bY * p2Y) / (a2bX * p2X + a2bY * p2Y);
 
     return ha >= 0.0 && ha <= 1 && hb >= 0.0 && hb <= 1;
   }
@@ -792,13 +1673,13 @@ public class Engine {
         // if the h vector isn't opposite to the l vector an the vectors are >90 apart
         //  add a vector in between h and l that is at 90 deg from the h vector and in the
         //  direction of the l vector
-        if (!hNorm.scalei(-1).equals(lNorm) && Vector.dot(lNorm, hNorm) < 0) {
+        if (!hNorm.equalsNegated(lNorm) && Vector.dot(lNorm, hNorm) < 0) {
           mNorm = pointedPVector(hNorm, lNorm);
         }
       } else {
         // if the m vector has not been set and the h vector is opposite to the l vector add a
         //  vector that is 90 deg to the h and l vector and is in the direction of the normal
-        if (mNorm.equals(Vector.zero) && hNorm.scalei(-1).equals(lNorm)) {
+        if (mNorm.equals(Vector.zero) && hNorm.equalsNegated(lNorm)) {
           mNorm = pointedPVector(hNorm, nNorm);
           continue;
         }
@@ -949,8 +1830,8 @@ public class Engine {
    * @param quick quick flag
    * @return processed MassTree
    */
-  public static MassTree solveHits(HashMap<BasicEntity, ArrayList<MassTree>> masterList,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, ArrayList<BasicEntity> ex,
+  public static MassTree solveHits(MassTreeTable masterList,
+      ManifoldLookup mLookup, ArrayList<BasicEntity> ex,
       MassTree mTree, boolean quick) {
     Logger.pushDebugTime("solve", System.nanoTime());
 
@@ -960,14 +1841,15 @@ public class Engine {
     }
 
     Vector inputNormal = mTree.customIn != null ? mTree.customIn : mTree.inNormal;
+    MassTreeArena arena = masterList.getArena();
 
-    ArrayList<MassTree> iList = new ArrayList<>(mTree.hitChildren == null ? mTree.children : mTree.hitChildren);
-    ArrayList<Vector> zList = new ArrayList<>(mTree.entity.zeros);
+    ArrayList<MassTree> iList = arena.treeList(mTree.hitChildren == null ? mTree.children : mTree.hitChildren);
+    ArrayList<Vector> zList = arena.vectorList(mTree.entity.zeros);
 
     if (!zList.isEmpty()) {
       if (distributionVector(inputNormal, zList, 1.0f).dot(inputNormal) > 0.99f) {
         Logger.pushDebugTime("solve", System.nanoTime());
-        return new MassTree(0, inputNormal, inputNormal.negatei(), true);
+        return arena.obtain(0, inputNormal, inputNormal.negatei(), true);
       }
     }
 
@@ -993,7 +1875,7 @@ public class Engine {
 
       if (dot > 0.99f) {
         Logger.pushDebugTime("solve", System.nanoTime());
-        return new MassTree(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), false);
+        return arena.obtain(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), false);
       } else if (dot > 0) {
         mTree.zeroNormal = pointedPVector(distributionNormal, mTree.zeroNormal);
       }
@@ -1011,7 +1893,7 @@ public class Engine {
             if (distributionVector(inputNormal, mTree.entity.zeros, 1.0f).dot(inputNormal)
                 > 0.99f) {
               Logger.pushDebugTime("solve", System.nanoTime());
-              return new MassTree(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), true);
+              return arena.obtain(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), true);
             }
           }
 
@@ -1023,7 +1905,7 @@ public class Engine {
 
             if (dot > 0.99f) {
               Logger.pushDebugTime("solve", System.nanoTime());
-              return new MassTree(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), always);
+              return arena.obtain(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), always);
             } else if (dot > 0) {
               mTree.zeroNormal = pointedPVector(distributionNormal, mTree.zeroNormal);
             }
@@ -1048,10 +1930,13 @@ public class Engine {
     setStaticFrictionVal(mTree.entity, inputNormal);
     float iMass = mTree.entity.getFInvMass();
 
-    ArrayList<Vector> nNorms = new ArrayList<>();
-    ArrayList<Float> nWeights = new ArrayList<>();
-    ArrayList<MassTree> hList = new ArrayList<>();
-    ArrayList<Integer> eIdx = new ArrayList<>();
+    // the output lists are owned by the tree
+    ArrayList<Vector> nNorms = mTree.normals;
+    ArrayList<Float> nWeights = mTree.weights;
+    ArrayList<MassTree> hList = mTree.hitStorage();
+    ArrayList<Integer> eIdx = mTree.tcStorage();
+    nNorms.clear();
+    nWeights.clear();
 
     Vector outNormal = mTree.zeroNormal;
     mTree.oNormalTotal = outNormal.scalei(1.0f / iMass);
@@ -1083,7 +1968,7 @@ public class Engine {
                   if (distributionVector(inputNormal, mTree.entity.zeros, 1.0f).dot(inputNormal)
                       > 0.99f) {
                     Logger.pushDebugTime("solve", System.nanoTime());
-                    return new MassTree(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), true);
+                    return arena.obtain(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), true);
                   }
                 }
 
@@ -1094,7 +1979,7 @@ public class Engine {
 
                 if (dot > 0.99f) {
                   Logger.pushDebugTime("solve", System.nanoTime());
-                  return new MassTree(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), always);
+                  return arena.obtain(0, mTree.zeroNormal, mTree.zeroNormal.negatei(), always);
                 } else {
                   distributionNormal = distributionVector(outNormal, zList, 1.0f);
                   if (distributionNormal.dot(outNormal) > 0) {
@@ -1178,7 +2063,7 @@ public class Engine {
 
     if (inputNormal.dot(outNormal) < 0.01) {
       Logger.pushDebugTime("solve", System.nanoTime());
-      return new MassTree(0, inputNormal, inputNormal.negatei(), always);
+      return arena.obtain(0, inputNormal, inputNormal.negatei(), always);
     }
 
     if (zOut) {
@@ -1203,7 +2088,7 @@ public class Engine {
 
     if (iMass == 0) {
       Logger.pushDebugTime("solve", System.nanoTime());
-      return new MassTree(0, inputNormal, inputNormal.negatei(), true);
+      return arena.obtain(0, inputNormal, inputNormal.negatei(), true);
     }
 
     float massTotal = 1.0f / iMass;
@@ -1245,17 +2130,29 @@ public class Engine {
    * @return modified MassTree
    */
   public static MassTree updateMassThin(MassTree parentTree) {
-    ArrayList<Tuple<MassTree, ArrayList<BasicEntity>>> treeTable = new ArrayList<>();
+    return updateMassThin(new MassTreeArena(), parentTree);
+  }
+
+  /**
+   * Run through a collision tree populating entity registers, using the scratch storage of an
+   * arena.
+   * <p>
+   * The path to each visited tree is stored as the index of the tree it was reached from, the
+   * entities on a path are found by walking the indices back to the root.
+   *
+   * @param arena      MassTree arena
+   * @param parentTree input MassTree
+   * @return modified MassTree
+   */
+  public static MassTree updateMassThin(MassTreeArena arena, MassTree parentTree) {
+    ArrayList<MassTree> treeTable = arena.treeList();
+    int[] from = arena.indices(16);
 
-    ArrayList<BasicEntity> basicEntities = new ArrayList<>();
-    basicEntities.add(parentTree.entity);
-    treeTable.add(new Tuple<>(parentTree, basicEntities));
+    treeTable.add(parentTree);
+    from[0] = -1;
 
     for (int tIdx = 0; tIdx < treeTable.size(); tIdx++) {
-      Tuple<MassTree, ArrayList<BasicEntity>> tuple = treeTable.get(tIdx);
-      MassTree currentTree = tuple.a;
-      ArrayList<BasicEntity> list = new ArrayList<>(tuple.b);
-      list.add(currentTree.entity);
+      MassTree currentTree = treeTable.get(tIdx);
 
       if (currentTree.iMass == 0 || currentTree.entity == null || currentTree.hitChildren == null) {
         continue;
@@ -1265,7 +2162,7 @@ public class Engine {
         for (int mtIdx = 0; mtIdx < currentTree.hitChildren.size(); mtIdx++) {
           MassTree childTree = currentTree.hitChildren.get(mtIdx);
 
-          if (list.contains(childTree.entity)) {
+          if (onPath(treeTable, from, tIdx, childTree.entity)) {
             currentTree.tmpZeros.add(childTree.inNormal);
             currentTree.hitChildren.remove(mtIdx);
             mtIdx--;
@@ -1273,7 +2170,9 @@ public class Engine {
           }
 
           childTree.entity.inNormal.add(childTree.inNormal);
-          treeTable.add(new Tuple<>(childTree, list));
+          from = arena.indices(treeTable.size() + 1);
+          from[treeTable.size()] = tIdx;
+          treeTable.add(childTree);
         }
       }
     }
@@ -1281,6 +2180,19 @@ public class Engine {
     return parentTree;
   }
 
+  /**
+   * Is an entity on the path from the root of a tree table to one of its trees.
+   */
+  private static boolean onPath(ArrayList<MassTree> treeTable, int[] from, int tIdx,
+      BasicEntity entity) {
+    for (int idx = tIdx; idx != -1; idx = from[idx]) {
+      if (entity.equals(treeTable.get(idx).entity)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Collect masses from a given entity and a collision normal.
    *
@@ -1292,8 +2204,10 @@ public class Engine {
    * @return MassTree
    */
   public static MassTree collectMass(BasicEntity entity,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, Vector inputNormal) {
-    return collectMass(new HashMap<>(), mLookup, entity, inputNormal, false);
+      ManifoldLookup mLookup, Vector inputNormal) {
+    MassTreeTable master = new MassTreeTable();
+    master.reset(mLookup);
+    return collectMass(master, mLookup, entity, inputNormal, false);
   }
 
   /**
@@ -1308,20 +2222,21 @@ public class Engine {
    * @param quick quick flag
    * @return
    */
-  public static MassTree collectMass(HashMap<BasicEntity, ArrayList<MassTree>> master,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, BasicEntity entity, Vector inputNormal,
+  public static MassTree collectMass(MassTreeTable master,
+      ManifoldLookup mLookup, BasicEntity entity, Vector inputNormal,
       boolean quick) {
 
+    MassTreeArena arena = master.getArena();
     if (inputNormal.roughEquals(Vector.zero, 0.01f)) {
-      return new MassTree(0);
+      return arena.obtain(0);
     }
 
 
     Logger.pushDebugTime("getTree");
-    MassTree mt = getMassTree(master, mLookup, new ArrayList<>(), entity, inputNormal, false);
+    MassTree mt = getMassTree(master, mLookup, arena.entityList(), entity, inputNormal, false);
     if (mt == null) {
-      mt = collectMassHelper(master, mLookup, new ArrayList<>(), entity, inputNormal, quick);
-      master.computeIfAbsent(entity, k -> new ArrayList<>()).add(mt);
+      mt = collectMassHelper(master, mLookup, arena.entityList(), entity, inputNormal, quick);
+      master.add(entity, mt);
     }
 
     Logger.pushDebugTime("getTree");
@@ -1332,7 +2247,7 @@ public class Engine {
 
 
     Logger.pushDebugTime("post_processing");
-    mt = updateMassThin(mt);
+    mt = updateMassThin(arena, mt);
     mt = filterMass(mt);
     Logger.pushDebugTime("post_processing");
 
@@ -1350,9 +2265,10 @@ public class Engine {
    * @param massTree operating tree
    * @param quick quick flag
    */
-  public static void dloop(HashMap<BasicEntity, ArrayList<MassTree>> masterList,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, ArrayList<BasicEntity> hitList,
+  public static void dloop(MassTreeTable masterList,
+      ManifoldLookup mLookup, ArrayList<BasicEntity> hitList,
       MassTree massTree, boolean quick) {
+    MassTreeArena arena = masterList.getArena();
 
     for (Manifold nManifold : mLookup.get(massTree.entity)) {
       boolean swap = nManifold.b.equals(massTree.entity);
@@ -1366,7 +2282,7 @@ public class Engine {
           continue;
         }
 
-        ArrayList<Vector> nv = new ArrayList<>(massTree.entity.zeros);
+        ArrayList<Vector> nv = arena.vectorList(massTree.entity.zeros);
         nv.addAll(massTree.tmpZeros);
 
         if (distributionVector(norm, nv, 1.0f).dot(norm) > 0.99f) {
@@ -1376,7 +2292,7 @@ public class Engine {
         if (hitList.contains(B)) {
             addVectorList(massTree.tmpZeros, norm);
 
-          massTree.lEnds.add(new MassTree(B, norm));
+          massTree.lEnds.add(arena.obtain(B, norm));
           continue;
         }
 
@@ -1385,7 +2301,7 @@ public class Engine {
           if (B.getFInvMass() == 0 || distributionVector(norm, B.zeros, 1.0f).dot(norm) > 0.99f) {
             addVectorList(massTree.entity.zeros, norm);
           } else {
-            massTree.revChildren.add(new MassTree(B, norm));
+            massTree.revChildren.add(arena.obtain(B, norm));
           }
 
           continue;
@@ -1397,13 +2313,13 @@ public class Engine {
 
           if (!quick) {
             if (mOut.iMass == 0 && mOut.always) {
-              masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+              masterList.add(B, mOut);
             } else if (mOut.iMass != 0) {
-              masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+              masterList.add(B, mOut);
             }
           } else {
             if (mOut.iMass == 0 && mOut.always) {
-              masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+              masterList.add(B, mOut);
             }
           }
         }
@@ -1424,7 +2340,7 @@ public class Engine {
             addVectorList(massTree.entity.zeros, norm);
           } else {
             addVectorList(massTree.tmpZeros, norm);
-            massTree.lEnds.add(new MassTree(B, norm));
+            massTree.lEnds.add(arena.obtain(B, norm));
           }
         } else {
           if (!mOut.lEnds.isEmpty() || !mOut.cIdx.isEmpty()) {
@@ -1449,24 +2365,23 @@ public class Engine {
    * @param inputNormal input normal
    * @param quick quick flag
    */
-  public static MassTree collectMassHelper(HashMap<BasicEntity, ArrayList<MassTree>> masterList,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, ArrayList<BasicEntity> ex,
+  public static MassTree collectMassHelper(MassTreeTable masterList,
+      ManifoldLookup mLookup, ArrayList<BasicEntity> ex,
       BasicEntity entity, Vector inputNormal, boolean quick) {
+    MassTreeArena arena = masterList.getArena();
 
     setStaticFrictionVal(entity, inputNormal);
     if (entity.getFInvMass() == 0 || mLookup.get(entity) == null) {
-      return new MassTree(0, inputNormal, inputNormal.negatei(), true);
+      return arena.obtain(0, inputNormal, inputNormal.negatei(), true);
     }
 
     if (distributionVector(inputNormal, entity.zeros, 1.0f).dot(inputNormal) > 0.99f) {
-      return new MassTree(0, inputNormal, inputNormal.negatei(), true);
+      return arena.obtain(0, inputNormal, inputNormal.negatei(), true);
     }
 
-    MassTree massTree = new MassTree();
-    massTree.inNormal = inputNormal;
-    massTree.entity = entity;
+    MassTree massTree = arena.obtain(entity, inputNormal);
 
-    ArrayList<BasicEntity> hitList = new ArrayList<>(ex);
+    ArrayList<BasicEntity> hitList = arena.entityList(ex);
     hitList.add(entity);
     entity.lastInNormal = inputNormal;
 
@@ -1475,21 +2390,22 @@ public class Engine {
 
     if (!quick) {
       if (massTree.hitChildren != null) {
-        massTree.always = massTree.hitChildren.stream().allMatch(massTree1 -> massTree1.always);
+        massTree.always = true;
+        for (int i = 0; i < massTree.hitChildren.size(); i++) {
+          massTree.always = massTree.always && massTree.hitChildren.get(i).always;
+        }
         massTree.always = massTree.always && massTree.tcIdx.isEmpty() && massTree.lEnds.isEmpty();
       }
 
       if (massTree.iMass > 0 && massTree.always) {
+        massTree.children.clear();
         if (massTree.hitChildren != null) {
-          massTree.children = new ArrayList<>(massTree.hitChildren);
-        } else {
-          massTree.children.clear();
+          massTree.children.addAll(massTree.hitChildren);
         }
 
+        massTree.cIdx.clear();
         if (massTree.tcIdx != null) {
-          massTree.cIdx = new ArrayList<>(massTree.tcIdx);
-        } else {
-          massTree.cIdx.clear();
+          massTree.cIdx.addAll(massTree.tcIdx);
         }
       }
     }
@@ -1511,8 +2427,8 @@ public class Engine {
    * @param check check flag
    * @return output MassTree, null if none exists
    */
-  public static MassTree getMassTree(HashMap<BasicEntity, ArrayList<MassTree>> masterList,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, ArrayList<BasicEntity> hitList,
+  public static MassTree getMassTree(MassTreeTable masterList,
+      ManifoldLookup mLookup, ArrayList<BasicEntity> hitList,
       BasicEntity lookupEntity, Vector normal, boolean check) {
 
     if (masterList.containsKey(lookupEntity)) {
@@ -1544,15 +2460,15 @@ public class Engine {
    * @return populated MassTree, if the MassTree contains data, returns the input MassTree
    */
   public static MassTree iterateMassTree2(MassTree child, ArrayList<BasicEntity> ex,
-      HashMap<BasicEntity, ArrayList<MassTree>> masterList,
-      HashMap<BasicEntity, ArrayList<Manifold>> mLookup, boolean quick) {
+      MassTreeTable masterList,
+      ManifoldLookup mLookup, boolean quick) {
 
     Vector norm = child.inNormal;
     BasicEntity B = child.entity;
 
     MassTree mOut;
     if (child.iMass < 0.0f) {
-      ArrayList<BasicEntity> hitList = new ArrayList<>(ex);
+      ArrayList<BasicEntity> hitList = masterList.getArena().entityList(ex);
       hitList.add(B);
 
       mOut = getMassTree(masterList, mLookup, hitList, B, norm, false);
@@ -1561,13 +2477,13 @@ public class Engine {
 
         if (!quick) {
           if (mOut.iMass == 0 && mOut.always) {
-            masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+            masterList.add(B, mOut);
           } else if (mOut.iMass != 0) {
-            masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+            masterList.add(B, mOut);
           }
         } else {
           if (mOut.iMass == 0 && mOut.always) {
-            masterList.computeIfAbsent(B, k -> new ArrayList<>()).add(mOut);
+            masterList.add(B, mOut);
           }
         }
       }
@@ -1752,7 +2668,7 @@ public class Engine {
     be.active.clear();
     be.lookup.clear();
     be.hitIndex = 0;
-    be.collector = new Vector(0, 0);
+    be.collector.set(0, 0);
   }
 
   public static void removeChildEffect(MassTree parentTree) {
@@ -1879,7 +2795,26 @@ public class Engine {
       BasicEntity b, Shape sB, Vector pB) {
     // list initializer
     ArrayList<Manifold> m = new ArrayList<>();
+    routeEntityShapes(a, sA, pA, b, sB, pB, new ManifoldPool(), m);
+    return m;
+  }
 
+  /**
+   * Parse two entities, pairing off Shape types to the correct collision detection algorithms.
+   * The manifolds are taken from a pool and filled in place, only the collisions are added to the
+   * list.
+   *
+   * @param a    entity a
+   * @param sA   shape of entity a
+   * @param pA   position of entity a
+   * @param b    entity b
+   * @param sB   shape of entity b
+   * @param pB   position of entity b
+   * @param pool pool the manifolds are taken from
+   * @param m    list the manifolds generated from the states of the entities are added to
+   */
+  public static void routeEntityShapes(BasicEntity a, Shape sA, Vector pA,
+      BasicEntity b, Shape sB, Vector pB, ManifoldPool pool, ArrayList<Manifold> m) {
     if (sA instanceof MultiShape && sB instanceof MultiShape) {
       // if both shapes have multiple parts re-parse each of the shapes from entity a
       //  with each shape from entity b.
@@ -1889,8 +2824,8 @@ public class Engine {
         for (int j = 0; j < msb.size(); j++) {
           // When parsing the new shapes, it is necessary to add each sub-shape's shift offset
           //  to the position vector to preform the correct collision detection.
-          m.addAll(routeEntityShapes(a, msa.getShape(i), pA.addi(msa.getShift(i)),
-              b, msb.getShape(j), pB.addi(msb.getShift(j))));
+          routeEntityShapes(a, msa.getShape(i), pA.addi(msa.getShift(i)),
+              b, msb.getShape(j), pB.addi(msb.getShift(j)), pool, m);
         }
       }
     } else if (sA instanceof MultiShape) {
@@ -1898,30 +2833,75 @@ public class Engine {
       //  multiple shapes with the opposing entities singular shape.
       MultiShape ms = (MultiShape) sA;
       for (int i = 0; i < ms.size(); i++) {
-        m.addAll(routeEntityShapes(a, ms.getShape(i), pA.addi(ms.getShift(i)), b, sB, pB));
+        routeEntityShapes(a, ms.getShape(i), pA.addi(ms.getShift(i)), b, sB, pB, pool, m);
       }
     } else if (sB instanceof MultiShape) {
       // if either entity a or entity b exclusively has multiple shapes, re-parse each of the
       //  multiple shapes with the opposing entities singular shape.
       MultiShape ms = (MultiShape) sB;
       for (int i = 0; i < ms.size(); i++) {
-        m.addAll(routeEntityShapes(a, sA, pA, b, ms.getShape(i), pB.addi(ms.getShift(i))));
+        routeEntityShapes(a, sA, pA, b, ms.getShape(i), pB.addi(ms.getShift(i)), pool, m);
       }
     }
 
     // Route the correct shapes to the correct collision parsing algorithms
+    Manifold manifold;
+    boolean collided;
     if (sA instanceof Circle && sB instanceof Circle) {
-      m.add(circleCircleCollision(a, (Circle) sA, pA, b, (Circle) sB, pB));
+      manifold = pool.obtain();
+      collided = circleCircleCollision(a, (Circle) sA, pA, b, (Circle) sB, pB, manifold);
     } else if (sA instanceof Circle && sB instanceof PolygonShape) {
-      m.add(circlePollyCollision(a, (Circle) sA, pA, b, (PolygonShape) sB, pB));
+      manifold = pool.obtain();
+      collided = circlePollyCollision(a, (Circle) sA, pA, b, (PolygonShape) sB, pB, manifold);
     } else if (sA instanceof PolygonShape && sB instanceof Circle) {
-      m.add(circlePollyCollision(b, (Circle) sB, pB, a, (PolygonShape) sA, pA));
+      manifold = pool.obtain();
+      collided = circlePollyCollision(b, (Circle) sB, pB, a, (PolygonShape) sA, pA, manifold);
     } else if (sA instanceof PolygonShape && sB instanceof PolygonShape) {
-      m.add(pollyPollyCollision(a, (PolygonShape) sA, pA, b, (PolygonShape) sB, pB));
+      if (routeConvexPieces(a, (PolygonShape) sA, pA, b, (PolygonShape) sB, pB, pool, m)) {
+        return;
+      }
+      manifold = pool.obtain();
+      collided = pollyPollyCollision(a, (PolygonShape) sA, pA, b, (PolygonShape) sB, pB, manifold);
+    } else {
+      return;
     }
 
-    // return the list of collected manifolds
-    return m;
+    if (collided) {
+      m.add(manifold);
+    } else {
+      pool.release(manifold);
+    }
+  }
+
+  /**
+   * Test a pair of polygons piece by piece when one of them is concave and both can be split into
+   * convex pieces, every pair of pieces is tested with {@link #convexPollyCollision}.
+   *
+   * @return true if the pair was tested, false if it has to use {@link #pollyPollyCollision}
+   */
+  private static boolean routeConvexPieces(BasicEntity a, PolygonShape sA, Vector pA,
+      BasicEntity b, PolygonShape sB, Vector pB, ManifoldPool pool, ArrayList<Manifold> m) {
+    if (!CONVEX_FAST_PATH || (sA.isConvex() && sB.isConvex())) {
+      return false;
+    }
+
+    PolygonShape[] piecesA = sA.getConvexPieces();
+    PolygonShape[] piecesB = sB.getConvexPieces();
+    if (piecesA == null || piecesB == null) {
+      return false;
+    }
+
+    for (PolygonShape pieceA : piecesA) {
+      for (PolygonShape pieceB : piecesB) {
+        Manifold manifold = pool.obtain();
+        if (convexPollyCollision(a, pieceA, pA, b, pieceB, pB, manifold)) {
+          m.add(manifold);
+        } else {
+          pool.release(manifold);
+        }
+      }
+    }
+    return true;
   }
 
   public static ArrayList<Manifold> routeEntityShapes(Entity a, Entity b) {
@@ -1944,8 +2924,24 @@ public class Engine {
    */
   public static Manifold circleCircleCollision(BasicEntity a, Circle c1, Vector v1,
       BasicEntity b, Circle c2, Vector v2) {
-
     Manifold m = new Manifold();
+    return circleCircleCollision(a, c1, v1, b, c2, v2, m) ? m : null;
+  }
+
+  /**
+   * Process a circle to circle shape collision, filling an empty manifold.
+   *
+   * @param a  entity a
+   * @param c1 entity a's circle shape
+   * @param v1 position of entity a's circle shape
+   * @param b  entity b
+   * @param c2 entity b's circle shape
+   * @param v2 position of entity b's circle shape
+   * @param m  empty manifold the collision is written to
+   * @return true if the collision was valid
+   */
+  public static boolean circleCircleCollision(BasicEntity a, Circle c1, Vector v1,
+      BasicEntity b, Circle c2, Vector v2, Manifold m) {
 
     // calculate vector from the center of shape a to the center of shape b
     Vector aTob = Vector.sub(v1, v2);
@@ -1969,8 +2965,7 @@ public class Engine {
       }
 
       // add the collision information to the manifold
-      m.normals.add(normal);
-      m.vectors.add(normal.scalei(depth));
+      m.addContact(normal, depth);
       m.a = a;
       m.b = b;
 
@@ -1978,10 +2973,10 @@ public class Engine {
       m.aEulerCount = cDist < c1.getRadius() * c1.getRadius() ? 1 : 0;
       m.aEulerCount = cDist < c2.getRadius() * c2.getRadius() ? 1 : 0;
 
-      return m;
+      return true;
     }
 
-    return null;
+    return false;
   }
 
   /**
@@ -1999,40 +2994,57 @@ public class Engine {
    */
   public static Manifold circlePollyCollision(BasicEntity a, Circle c, Vector cP, BasicEntity b,
       PolygonShape p, Vector pP) {
+    Manifold m = new Manifold();
+    return circlePollyCollision(a, c, cP, b, p, pP, m) ? m : null;
+  }
+
+  /**
+   * Process a circle to polygon shape collision, filling an empty manifold.
+   *
+   * @param a  Entity a
+   * @param c  Circle shape of Entity a
+   * @param cP Position of the Circle in Entity a
+   * @param b  Entity b
+   * @param p  Polygon shape of Entity b
+   * @param pP Position of the Polygon in Entity b
+   * @param m  Empty manifold the collision is written to
+   * @return true if the two shapes collide
+   */
+  public static boolean circlePollyCollision(BasicEntity a, Circle c, Vector cP, BasicEntity b,
+      PolygonShape p, Vector pP, Manifold m) {
     // Check if the polygon is valid, this algorithm will only work with polygons that are
     //  defined in a clockwise direction.
     if (!p.isValid()) {
-      return null;
+      return false;
     }
 
-    // Initialize manifold data storage.
-    Manifold m = new Manifold();
-
-    // Gather polygon vertices.
-    ArrayList<Vector> verts = p.getVertices();
+    // Gather the polygon's global vertices, cached by the shape for every test at this position.
+    float[] verts = p.getWorldVertices(pP);
+    int size = p.getSize();
 
     // Set up vector placeholders.
     Vector shortVector = new Vector();
     float shortest = Float.MAX_VALUE;
 
     // Get the start and last node for calculations.
-    Vector beforeNode = verts.get(verts.size() - 2).addi(pP);
-    Vector midNode = verts.get(verts.size() - 1).addi(pP);
+    Vector beforeNode = new Vector(verts[size * 2 - 4], verts[size * 2 - 3]);
+    Vector midNode = new Vector(verts[size * 2 - 2], verts[size * 2 - 1]);
     Vector afterNode;
 
-    // Calculate the last v point for edge calculations.
+    // Calculate the last v point for edge calculations, the edge perpendicular is the same in
+    //  local and global space.
     Vector vBefore = pnt2line(cP, beforeNode, midNode);
-    Vector pBefore = midNode.subi(beforeNode).perpi();
+    Vector pBefore = new Vector(-p.getEdgeY(size - 1), p.getEdgeX(size - 1));
 
     // Get the max x position.
     float xMax = Math.max(beforeNode.getX(), midNode.getX());
     int inCount = 0; // Get the inner line count.
 
-    for (int i = 0; i < verts.size(); i++) {
+    for (int i = 0; i < size; i++) {
       // Set up values used in circle calculations.
-      afterNode = verts.get(i).addi(pP);
+      afterNode = new Vector(verts[i * 2], verts[i * 2 + 1]);
       Vector vAfter = pnt2line(cP, midNode, afterNode);
-      Vector pAfter = afterNode.subi(midNode).perpi();
+      Vector pAfter = new Vector(-p.getEdgeY(i), p.getEdgeX(i));
       Vector cToVAfter = vAfter.subi(cP);
       float magAfter = cToVAfter.mag();
       xMax = Math.max(afterNode.getX(), xMax);
@@ -2060,10 +3072,9 @@ public class Engine {
         //  corners will also always share v points.
         if (endToEnd.dot(pAfter) > 0 && endToEnd.dot(pBefore) < 0 && vBefore.equals(vAfter)) {
           Vector cornerNormal = cToVAfter.normalizei();
-          m.normals.add(cornerNormal);
           // Scale the corner normal with the radius of the circle minus the distance from the
           //  center to get the penetration.
-          m.vectors.add(cornerNormal.scalei(c.getRadius() - magAfter));
+          m.addContact(cornerNormal, c.getRadius() - magAfter);
         }
       }
 
@@ -2075,12 +3086,11 @@ public class Engine {
 
       if (cToVAfter.dot(pAfter) <= 0 && magAfter < c.getRadius() && edgeCase) {
         Vector nAfter = pAfter.normalizei().scalei(-1);
-        m.normals.add(nAfter);
         // Dot the normal of the edge with the vector from the center of the circle to the
         //  closest point on the line.
         // Because the vector from the center of the circle to the edge point is in the same
         //  direction from the edge normal we subtract the dot to the radius to get the penetration.
-        m.vectors.add(nAfter.scalei(c.getRadius() - cToVAfter.dot(nAfter)));
+        m.addContact(nAfter, c.getRadius() - cToVAfter.dot(nAfter));
       }
 
       // If the middle node is equal to the circle position, preform edge case calculations.
@@ -2092,15 +3102,12 @@ public class Engine {
           Vector nAfter = pAfter.normalizei().scalei(-1);
           Vector nBefore = pBefore.normalizei().scalei(-1);
 
-          m.normals.add(nAfter);
-          m.normals.add(nBefore);
-          m.vectors.add(nAfter.scalei(c.getRadius()));
-          m.vectors.add(nBefore.scalei(c.getRadius()));
+          m.addContact(nAfter, c.getRadius());
+          m.addContact(nBefore, c.getRadius());
         } else {
           // Otherwise, average the two edges as a normal.
           Vector normal = pBefore.addi(pAfter).normalizei().scalei(-1);
-          m.normals.add(normal);
-          m.vectors.add(normal.scalei(c.getRadius()));
+          m.addContact(normal, c.getRadius());
         }
       }
 
@@ -2113,26 +3120,24 @@ public class Engine {
     }
 
     // If the euler count is odd then the circle is within the polygon.
-    if (inCount % 2 == 1 && m.normals.isEmpty()) {
+    if (inCount % 2 == 1 && m.getContactCount() == 0) {
       // Add the closest point on the polygon plus the radius to the final position to get the
       //  circle out of the polygon.
       Vector normal = shortVector.normalizei().scalei(-1);
-      Vector positionDiff = normal.scalei(shortest + c.getRadius());
-      m.normals.add(normal);
-      m.vectors.add(positionDiff);
+      m.addContact(normal, shortest + c.getRadius());
     }
 
     m.aEulerCount = inCount;
     m.bEulerCount = Vector.sub(pP, cP).magSqr() < c.getRadius() * c.getRadius() ? 1 : 0;
 
     // If normals have been set, a collision has occurred so export the pertinent data.
-    if (!m.normals.isEmpty()) {
+    if (m.getContactCount() > 0) {
       m.a = b;
       m.b = a;
-      return m;
+      return true;
     }
 
-    return null;
+    return false;
   }
 
   public static void draw() {
@@ -2154,25 +3159,225 @@ public class Engine {
    */
   public static Manifold pollyPollyCollision(BasicEntity a, PolygonShape sA, Vector pA,
       BasicEntity b, PolygonShape sB, Vector pB) {
+    Manifold manifold = new Manifold();
+    return pollyPollyCollision(a, sA, pA, b, sB, pB, manifold) ? manifold : null;
+  }
+
+  /**
+   * Process a polygon to polygon shape collision, filling an empty manifold. Pairs of convex
+   * polygons use {@link #convexPollyCollision}, any other pair uses the general
+   * {@link #eulerPollyCollision}.
+   *
+   * @param a        Entity a
+   * @param sA       PolygonShape of Entity a
+   * @param pA       position of Entity a
+   * @param b        Entity b
+   * @param sB       PolygonShape of Entity b
+   * @param pB       position of Entity b
+   * @param manifold empty manifold the collision is written to
+   * @return true if the polygons collide
+   */
+  public static boolean pollyPollyCollision(BasicEntity a, PolygonShape sA, Vector pA,
+      BasicEntity b, PolygonShape sB, Vector pB, Manifold manifold) {
+    if (CONVEX_FAST_PATH && sA.isConvex() && sB.isConvex()) {
+      return convexPollyCollision(a, sA, pA, b, sB, pB, manifold);
+    }
+    return eulerPollyCollision(a, sA, pA, b, sB, pB, manifold);
+  }
+
+  /**
+   * Process a collision between two convex polygons with the separating axis theorem. The edge
+   * normals of both polygons are the only axes that can separate them, the test stops at the
+   * first edge that has every vertex of the other polygon on its outside.
+   * <p>
+   * The penetration along an edge normal is the deepest vertex of the other polygon behind the
+   * edge, the same exit distance {@link #eulerPollyCollision} calculates, so both tests give the
+   * same normal and depth. The euler counts are odd when the position of the other entity is inside
+   * the polygon. For a piece of a concave polygon the crossings of the whole polygon are counted,
+   * so {@link #isInside} gives the same answer as it did for the polygon.
+   *
+   * @param a        Entity a
+   * @param sA       convex PolygonShape of Entity a
+   * @param pA       position of Entity a
+   * @param b        Entity b
+   * @param sB       convex PolygonShape of Entity b
+   * @param pB       position of Entity b
+   * @param manifold empty manifold the collision is written to
+   * @return true if the polygons collide
+   */
+  public static boolean convexPollyCollision(BasicEntity a, PolygonShape sA, Vector pA,
+      BasicEntity b, PolygonShape sB, Vector pB, Manifold manifold) {
+    int sizeA = sA.getSize();
+    int sizeB = sB.getSize();
+    float[] globalA = sA.getWorldVertices(pA);
+    float[] globalB = sB.getWorldVertices(pB);
+
+    float shortest_value = Float.MAX_VALUE;
+    int shortest_index = -1;
+    boolean shortest_onA = false;
+
+    // the edge normals of polygon a
+    for (int polA_i = 0; polA_i < sizeA; polA_i++) {
+      float aCX = globalA[polA_i * 2], aCY = globalA[polA_i * 2 + 1];
+      float normX = sA.getNormalX(polA_i), normY = sA.getNormalY(polA_i);
+
+      float dist = -1;
+      for (int polB_i = 0; polB_i < sizeB; polB_i++) {
+        float exitDist = (aCX - globalB[polB_i * 2]) * normX
+            + (aCY - globalB[polB_i * 2 + 1]) * normY;
+        if (exitDist >= 0.0 && dist <= exitDist) {
+          dist = exitDist;
+        }
+      }
+
+      // every vertex of polygon b is outside of the edge, the edge separates the polygons
+      if (dist == -1) {
+        return false;
+      }
+
+      if (dist <= shortest_value) {
+        shortest_index = polA_i;
+        shortest_onA = true;
+        shortest_value = dist;
+      }
+    }
+
+    // repeat these steps with the edge normals of polygon b
+    for (int polB_i = 0; polB_i < sizeB; polB_i++) {
+      float bCX = globalB[polB_i * 2], bCY = globalB[polB_i * 2 + 1];
+      float normX = sB.getNormalX(polB_i), normY = sB.getNormalY(polB_i);
+
+      float dist = -1;
+      for (int polA_i = 0; polA_i < sizeA; polA_i++) {
+        float exitDist = (bCX - globalA[polA_i * 2]) * normX
+            + (bCY - globalA[polA_i * 2 + 1]) * normY;
+        if (exitDist >= 0.0 && dist <= exitDist) {
+          dist = exitDist;
+        }
+      }
+
+      if (dist == -1) {
+        return false;
+      }
+
+      if (dist <= shortest_value) {
+        shortest_index = polB_i;
+        shortest_onA = false;
+        shortest_value = dist;
+      }
+    }
+
+    manifold.aEulerCount = convexEulerCount(sA, pA, globalA, pB);
+    manifold.bEulerCount = convexEulerCount(sB, pB, globalB, pA);
+
+    // the edge normals of polygon b point towards polygon a, flip polygon a's normals to match
+    float nx = shortest_onA ? -sA.getNormalX(shortest_index) : sB.getNormalX(shortest_index);
+    float ny = shortest_onA ? -sA.getNormalY(shortest_index) : sB.getNormalY(shortest_index);
+    manifold.addContact(nx, ny, nx * shortest_value, ny * shortest_value);
+    manifold.a = a;
+    manifold.b = b;
+    return true;
+  }
+
+  /**
+   * Count the crossings of a convex polygon for a point like {@link #interiorCross} does, odd if
+   * the point is inside. Points behind every edge are inside and points in front of an edge are
+   * outside, the crossings are only counted for points lying on an edge so edge cases match the
+   * general test. Pieces of a concave polygon count the crossings of the whole polygon.
+   *
+   * @param s      convex polygon
+   * @param pos    position of the polygon
+   * @param global world vertices of the polygon
+   * @param p      point
+   * @return crossing count
+   */
+  private static int convexEulerCount(PolygonShape s, Vector pos, float[] global, Vector p) {
+    if (s.getSource() != null) {
+      PolygonShape source = s.getSource();
+      return eulerCount(source.getWorldVertices(pos), source.getSize(), p);
+    }
+
+    int size = s.getSize();
+    boolean onEdge = false;
+    for (int i = 0; i < size; i++) {
+      float dist = (p.getX() - global[i * 2]) * s.getNormalX(i)
+          + (p.getY() - global[i * 2 + 1]) * s.getNormalY(i);
+      if (dist > 0) {
+        return 0;
+      }
+      onEdge |= dist == 0;
+    }
+
+    return onEdge ? eulerCount(global, size, p) : 1;
+  }
+
+  /**
+   * Count the crossings of a polygon for a point with {@link #interiorCross}, odd if the point is
+   * inside.
+   *
+   * @param global world vertices of the polygon
+   * @param size   number of vertices
+   * @param p      point
+   * @return crossing count
+   */
+  private static int eulerCount(float[] global, int size, Vector p) {
+    float xMax = -Float.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      xMax = Math.max(global[i * 2], xMax);
+    }
+
+    int count = 0;
+    Vector beforeNode = new Vector(global[size * 2 - 4], global[size * 2 - 3]);
+    Vector midNode = new Vector(global[size * 2 - 2], global[size * 2 - 1]);
+    for (int i = 0; i < size; i++) {
+      Vector afterNode = new Vector(global[i * 2], global[i * 2 + 1]);
+      count += interiorCross(beforeNode, midNode, afterNode, p, xMax);
+      beforeNode = midNode;
+      midNode = afterNode;
+    }
+    return count;
+  }
+
+  /**
+   * Process a polygon to polygon shape collision with Euler's bridge method, filling an empty
+   * manifold. This works for concave polygons, {@link #pollyPollyCollision} uses it for every pair
+   * that isn't two convex polygons.
+   *
+   * @param a        Entity a
+   * @param sA       PolygonShape of Entity a
+   * @param pA       position of Entity a
+   * @param b        Entity b
+   * @param sB       PolygonShape of Entity b
+   * @param pB       position of Entity b
+   * @param manifold empty manifold the collision is written to
+   * @return true if the polygons collide
+   */
+  public static boolean eulerPollyCollision(BasicEntity a, PolygonShape sA, Vector pA,
+      BasicEntity b, PolygonShape sB, Vector pB, Manifold manifold) {
 
     ///// Variable Initialization /////
 
 //    Game.log("=====");
 //    Game.log(a, b);
 
-    // set up the manifold object
-    Manifold manifold = new Manifold();
-
     boolean collided = false; // has a edge-edge collision occurred
     int eulerCountA = 0; // crossings count for polygon a
     int eulerCountB = 0; // crossings count for polygon b
 
+    // the global vertices of both polygons, these are cached by the shapes and shared with every
+    //  other collision test of the entities at the same position
+    int sizeA = sA.getSize();
+    int sizeB = sB.getSize();
+    float[] globalA = sA.getWorldVertices(pA);
+    float[] globalB = sB.getWorldVertices(pB);
+
     // set up variables for nodes A, B, and C of polygon A and B
-    Vector pA_nA = Vector.add(pA, sA.getVertices().get(sA.getVertices().size() - 2));
-    Vector pA_nB = Vector.add(pA, sA.getVertices().get(sA.getVertices().size() - 1));
+    //  the nodes are only needed as vectors for the interior cross checks
+    Vector pA_nA = new Vector(globalA[sizeA * 2 - 4], globalA[sizeA * 2 - 3]);
+    Vector pA_nB = new Vector(globalA[sizeA * 2 - 2], globalA[sizeA * 2 - 1]);
 
-    Vector pB_nA = Vector.add(pB, sB.getVertices().get(sB.getVertices().size() - 2));
-    Vector pB_nB = Vector.add(pB, sB.getVertices().get(sB.getVertices().size() - 1));
+    Vector pB_nA = new Vector(globalB[sizeB * 2 - 4], globalB[sizeB * 2 - 3]);
+    Vector pB_nB = new Vector(globalB[sizeB * 2 - 2], globalB[sizeB * 2 - 1]);
 
     Vector pA_nC, pB_nC;
 
@@ -2180,30 +3385,31 @@ public class Engine {
     float xMax = Math.max(Math.max(pA_nB.getX(), pA_nA.getX()),
         Math.max(pB_nB.getX(), pB_nA.getX()));
 
-    // list of floats representing the shortest separation distance from each vertex
-    float[] distA = new float[sA.getVertices().size()];
-    // list of normals representing the normals for the shortest separation vector
-    Vector[] normalA = new Vector[sA.getVertices().size()];
-
-    float[] distB = new float[sB.getVertices().size()];
-    Vector[] normalB = new Vector[sB.getVertices().size()];
+    // list of floats representing the shortest separation distance from each vertex of polygon b
+    //  the normal of each distance is the edge normal of the same vertex
+    float[] distB = new float[sizeB];
 
     // set all the distances to -1
-    for (int i = 0; i < sA.getVertices().size(); i++) {
-      distA[i] = -1;
-    }
-
-    for (int i = 0; i < sB.getVertices().size(); i++) {
+    for (int i = 0; i < sizeB; i++) {
       distB[i] = -1;
     }
 
+    // the shortest separation distance and the polygon and vertex index of its edge normal
+    float shortest_value = Float.MAX_VALUE;
+    int shortest_index = -1;
+    boolean shortest_onA = false;
+
     // loop through each polygon index
     // for each loop we pre-calculate/ lookup some variables
-    for (int polA_i = 0; polA_i < sA.getSize(); polA_i++) {
-      pA_nC = Vector.add(pA, sA.getVertex(polA_i)); // calculate the vertex's global position
-      Vector polA_norm = pA_nC.perpi(pA_nB).normalizei(); // calculate the polygons normal value
-      xMax = Math.max(pA_nC.getX(), xMax); // find the maximum x value
-      Vector p1 = pA_nC.subi(pA_nB).normalizei();
+    for (int polA_i = 0; polA_i < sizeA; polA_i++) {
+      int prevA = polA_i == 0 ? sizeA - 1 : polA_i - 1;
+      float aBX = globalA[prevA * 2], aBY = globalA[prevA * 2 + 1];
+      float aCX = globalA[polA_i * 2], aCY = globalA[polA_i * 2 + 1];
+      pA_nC = new Vector(aCX, aCY);
+
+      // look up the polygon's normal value
+      float polA_normX = sA.getNormalX(polA_i), polA_normY = sA.getNormalY(polA_i);
+      xMax = Math.max(aCX, xMax); // find the maximum x value
 
       // Calculate if the line created by vertex B and C is crossed by the line
       //  stemming from the point pB projected infinitely to the right.
@@ -2211,75 +3417,56 @@ public class Engine {
       //  the line, effectively, to infinity.
       eulerCountA += interiorCross(pA_nA, pA_nB, pA_nC, pB, xMax);
 
+      // the shortest separation distance from the current vertex
+      float distA = -1;
+
       // preform a nested for loop comparision of each vertex of the first polygon to each
       //  vertex of the second polygon
-      for (int polB_i = 0; polB_i < sB.getSize(); polB_i++) {
-        // preform the same calculations at the start of the previous loop with the polygon 2's vertices
-        pB_nC = Vector.add(pB, sB.getVertex(polB_i));
-        xMax = Math.max(pB_nC.getX(), xMax);
-        Vector polB_norm = pB_nC.perpi(pB_nB).normalizei();
-        Vector p2 = pB_nC.subi(pB_nB).normalizei();
+      for (int polB_i = 0; polB_i < sizeB; polB_i++) {
+        // look up the same values calculated at the start of the previous loop for polygon 2
+        int prevB = polB_i == 0 ? sizeB - 1 : polB_i - 1;
+        float bBX = globalB[prevB * 2], bBY = globalB[prevB * 2 + 1];
+        float bCX = globalB[polB_i * 2], bCY = globalB[polB_i * 2 + 1];
+        xMax = Math.max(bCX, xMax);
 
         // the interior cross only focuses on the second polygon's vertices and the first entities position
         //  so it only needs to happen once
         if (polA_i == 0) {
+          pB_nC = new Vector(bCX, bCY);
           eulerCountB += interiorCross(pB_nA, pB_nB, pB_nC, pA, xMax);
+
+          // set the middle vertex to the last and the current vertex to the middle vertex
+          pB_nA = pB_nB;
+          pB_nB = pB_nC;
         }
 
         // calculate an exit distance based on the distance required to separate
         //  two vertices along the respective polygon normals
-        float exitDistA = Vector.dot(Vector.sub(pA_nC, pB_nC), polA_norm);
-        float exitDistB = Vector.dot(Vector.sub(pB_nC, pA_nC), polB_norm);
-
-        float a2 = p2.dot(pA_nC.subi(pB_nC));
-        float a1 = p1.dot(pB_nC.subi(pA_nC));
-        float a3 = p2.dot(pA_nB.subi(pB_nB));
-        float a4 = p1.dot(pB_nB.subi(pA_nB));
-        float o = 0.05f;
-
-
-//        Game.log(exitDistA, exitDistB, pA, pB, a1, a2,  a3, a4 , pA_nB, pA_nC, pB_nB, pB_nC, sA.getVertex(polA_i), sB.getVertex(polB_i), p1, p2, polA_norm, polB_norm);
-        Vector currentPolA_norm = polA_norm;
-        Vector currentPolB_norm = polB_norm;
-
-
-//        if ((a1 > -o && a1 < 0) || (a3 < o && a3 > 0)) {
-////          currentPolA_norm = pointedPVector(polA_norm, pB.subi(pA));
-//////          Game.log("p1", currentPolA_norm);
-////        }
-////
-////        if ((a2 > -o && a2 < 0) || (a4 < o && a4 > 0)) {
-////          currentPolB_norm = pointedPVector(polB_norm, pA.subi(pB));
-//////          Game.log("p2", currentPolB_norm);
-////        }
-
-
+        float exitDistA = (aCX - bCX) * polA_normX + (aCY - bCY) * polA_normY;
+        float exitDistB = (bCX - aCX) * sB.getNormalX(polB_i) + (bCY - aCY) * sB.getNormalY(polB_i);
 
         // if the exit distance is grater than or equal to zero,
         //  compare the current separation distance to the maximum of the current vertex
-        if (exitDistA >= 0.0 && distA[polA_i] <= exitDistA) {
-          // set the distance and normal to the new value
-          distA[polA_i] = exitDistA;
-          normalA[polA_i] = currentPolA_norm;
-//          Game.log("A", polA_norm, polA_i);
+        if (exitDistA >= 0.0 && distA <= exitDistA) {
+          distA = exitDistA;
         }
 
         // repeat these steps with the other polygon
         if (exitDistB >= 0.0 && distB[polB_i] <= exitDistB) {
           distB[polB_i] = exitDistB;
-          normalB[polB_i] = currentPolB_norm;
-//          Game.log("B", polB_norm, polB_i);
         }
 
-
         // if the lines created by the C and B vertices collide, the polygons have collided
-        if (lineLineCollision(pA_nB, pA_nC, pB_nB, pB_nC)) {
+        if (lineLineCollision(aBX, aBY, aCX, aCY, bBX, bBY, bCX, bCY)) {
           collided = true;
         }
+      }
 
-        // set the middle vertex to the last and the current vertex to the middle vertex
-        pB_nA = pB_nB;
-        pB_nB = pB_nC;
+      // keep the shortest separation distance of polygon a's vertices
+      if (distA <= shortest_value && distA != -1) {
+        shortest_index = polA_i;
+        shortest_onA = true;
+        shortest_value = distA;
       }
 
       // set the middle vertex to the last and the current vertex to the middle vertex
@@ -2289,20 +3476,10 @@ public class Engine {
     }
 
     // find the normal with the shortest separation distance from both polygon's list
-    float shortest_value = Float.MAX_VALUE;
-    Vector shortest_normal = null;
-
-    for (int index = 0; index < sA.getVertices().size(); index++) {
-      if (distA[index] <= shortest_value && distA[index] != -1) {
-        shortest_normal = normalA[index].negatei();
-        shortest_value = distA[index];
-      }
-    }
-
-
-    for (int index = 0; index < sB.getVertices().size(); index++) {
+    for (int index = 0; index < sizeB; index++) {
       if (distB[index] <= shortest_value && distB[index] != -1) {
-        shortest_normal = normalB[index];
+        shortest_index = index;
+        shortest_onA = false;
         shortest_value = distB[index];
       }
     }
@@ -2311,15 +3488,17 @@ public class Engine {
     manifold.bEulerCount = eulerCountB;
 
     // if the polygons collided or the euler count for either polygon is odd the polygons are colliding
-    if (collided || eulerCountA % 2 == 1 || eulerCountB % 2 == 1 && shortest_normal != null) {
-      manifold.normals.add(shortest_normal);
-      manifold.vectors.add(shortest_normal.scalei(shortest_value));
+    if (collided || eulerCountA % 2 == 1 || eulerCountB % 2 == 1 && shortest_index != -1) {
+      // the edge normals of polygon b point towards polygon a, flip polygon a's normals to match
+      float nx = shortest_onA ? -sA.getNormalX(shortest_index) : sB.getNormalX(shortest_index);
+      float ny = shortest_onA ? -sA.getNormalY(shortest_index) : sB.getNormalY(shortest_index);
+      manifold.addContact(nx, ny, nx * shortest_value, ny * shortest_value);
       manifold.a = a;
       manifold.b = b;
-      return manifold;
+      return true;
     }
 
-    return null;
+    return false;
   }
 
   public static int interiorCross(Vector bNode, Vector mNode, Vector aNode, Vector p, float xMax) {
@@ -0,0 +1,240 @@
+package schooled.engines;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import schooled.entities.BasicEntity;
+import schooled.entities.Entity;
+import schooled.physics.Manifold;
+import schooled.physics.ManifoldLookup;
+
+/**
+ * Splits the collision manifolds of a tick into contact islands and solves the islands on a fork
+ * join pool.
+ * <p>
+ * Entities are joined into islands with a union find over the manifolds. Static entities (inverse
+ * mass of 0) are never changed by the solver so they don't join islands together. Child entities
+ * read the velocity of their parents, so a child is always in the same island as its parents.
+ * <p>
+ * Each island keeps the lookup order of its entities and the order of its manifolds, so solving
+ * the islands one at a time gives the same result as solving all the manifolds together.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+class IslandSolver {
+
+  // number of islands a worker solves without splitting the range further
+  private static final int BATCH_SIZE = 4;
+
+  private final ForkJoinPool pool;
+
+  // union find registers, reused between ticks
+  private final ArrayList<BasicEntity> order = new ArrayList<>();
+  private int[] ids = new int[64]; // union find index of each lookup id, -1 for static entities
+  private int[] parent = new int[64];
+  private int[] island = new int[64];
+
+  private final ArrayList<ArrayList<BasicEntity>> islandEntities = new ArrayList<>();
+  private final ArrayList<ArrayList<Manifold>> islandManifolds = new ArrayList<>();
+  private int islandCount = 0;
+
+  private ManifoldLookup lookup;
+
+  /**
+   * Create an island solver with a number of worker threads.
+   *
+   * @param workers worker thread count
+   */
+  IslandSolver(int workers) {
+    pool = new ForkJoinPool(workers);
+  }
+
+  int getWorkers() {
+    return pool.getParallelism();
+  }
+
+  void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Get the number of islands found in the last call to {@link #solve}.
+   *
+   * @return island count
+   */
+  int getIslandCount() {
+    return islandCount;
+  }
+
+  /**
+   * Build the islands of a manifold list and solve them.
+   *
+   * @param manifolds list of collision manifolds
+   * @param mLookup   manifold lookup table
+   */
+  void solve(ArrayList<Manifold> manifolds, ManifoldLookup mLookup) {
+    Logger.pushDebugTime("engine_islands");
+    buildIslands(manifolds, mLookup);
+    Logger.pushDebugTime("engine_islands");
+
+    if (islandCount < 2) {
+      for (int i = 0; i < islandCount; i++) {
+        Engine.solveIsland(islandEntities.get(i), islandManifolds.get(i), mLookup);
+      }
+    } else {
+      lookup = mLookup;
+      pool.invoke(new Batch(0, islandCount));
+      lookup = null;
+    }
+
+    for (int i = 0; i < islandCount; i++) {
+      islandEntities.get(i).clear();
+      islandManifolds.get(i).clear();
+    }
+    order.clear();
+  }
+
+  /**
+   * Number the non static entities in lookup order, join them through the manifolds and their
+   * parents, and sort the entities and manifolds into islands.
+   *
+   * @param manifolds list of collision manifolds
+   * @param mLookup   manifold lookup table
+   */
+  private void buildIslands(ArrayList<Manifold> manifolds, ManifoldLookup mLookup) {
+    if (ids.length < mLookup.size()) {
+      ids = new int[mLookup.size() * 2];
+    }
+
+    for (int i = 0; i < mLookup.size(); i++) {
+      BasicEntity entity = mLookup.getEntity(i);
+      if (entity.getInvMass() != 0) {
+        ids[i] = order.size();
+        order.add(entity);
+      } else {
+        ids[i] = -1;
+      }
+    }
+
+    int count = order.size();
+    if (parent.length < count) {
+      parent = new int[count * 2];
+      island = new int[count * 2];
+    }
+
+    for (int i = 0; i < count; i++) {
+      parent[i] = i;
+      island[i] = -1;
+    }
+
+    for (int i = 0; i < count; i++) {
+      BasicEntity entity = order.get(i);
+      if (!(entity instanceof Entity)) {
+        continue;
+      }
+
+      Entity p = ((Entity) entity).getParent();
+      while (p != null) {
+        int id = getIndex(mLookup, p);
+        if (id != -1) {
+          union(i, id);
+        }
+        p = p.getParent();
+      }
+    }
+
+    for (Manifold m : manifolds) {
+      int a = getIndex(mLookup, m.a);
+      int b = getIndex(mLookup, m.b);
+      if (a != -1 && b != -1) {
+        union(a, b);
+      }
+    }
+
+    // islands are numbered by their first entity in lookup order
+    islandCount = 0;
+    for (int i = 0; i < count; i++) {
+      int root = find(i);
+      if (island[root] == -1) {
+        island[root] = islandCount++;
+        if (islandEntities.size() < islandCount) {
+          islandEntities.add(new ArrayList<>());
+          islandManifolds.add(new ArrayList<>());
+        }
+      }
+      islandEntities.get(island[root]).add(order.get(i));
+    }
+
+    for (Manifold m : manifolds) {
+      int id = getIndex(mLookup, m.a);
+      if (id == -1) {
+        id = getIndex(mLookup, m.b);
+      }
+
+      if (id != -1) {
+        islandManifolds.get(island[find(id)]).add(m);
+      }
+    }
+  }
+
+  /**
+   * Get the union find index of an entity.
+   *
+   * @return index, -1 if the entity is static or not in the lookup
+   */
+  private int getIndex(ManifoldLookup mLookup, BasicEntity entity) {
+    int id = mLookup.getId(entity);
+    return id == -1 ? -1 : ids[id];
+  }
+
+  private int find(int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private void union(int a, int b) {
+    int ra = find(a);
+    int rb = find(b);
+    if (ra != rb) {
+      // keep the lower id as the root so island numbering doesn't depend on the join order
+      if (ra < rb) {
+        parent[rb] = ra;
+      } else {
+        parent[ra] = rb;
+      }
+    }
+  }
+
+  /**
+   * A range of islands, split in half until it is small enough to solve directly.
+   */
+  private class Batch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int start, end;
+
+    Batch(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= BATCH_SIZE) {
+        for (int i = start; i < end; i++) {
+          Engine.solveIsland(islandEntities.get(i), islandManifolds.get(i), lookup);
+        }
+        return;
+      }
+
+      int mid = (start + end) >>> 1;
+      invokeAll(new Batch(start, mid), new Batch(mid, end));
+    }
+  }
+}
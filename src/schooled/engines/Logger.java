@@ -17,9 +17,11 @@ public class Logger {
   public static String debugText = "";
   public static int debugDecimals = 3;
   public static HashMap<String, TimeData> timeList = new HashMap<>();
+  public static HashMap<String, Float> statList = new HashMap<>();
   public static int refreshRate = 60 * 5;
   public static int refreshRateIndex = 0;
   public static final float SECOND = (float) 1e9;
+  private static Thread debugThread = null; // thread running the game loop
 
   public static void init(Game game) {
     loggerMenu = new StringArea(game, new Vector(10, 10));
@@ -62,7 +64,8 @@ public class Logger {
    * @param time   the current time
    */
   public static void pushDebugTime(String string, long time) {
-    if (Logger.debug) {
+    // the timers are not thread safe, times pushed from physics worker threads are dropped
+    if (Logger.debug && (debugThread == null || debugThread == Thread.currentThread())) {
       if (timeList.containsKey(string)) {
         TimeData data = timeList.get(string);
         if (data.start) {
@@ -82,7 +85,22 @@ public class Logger {
   }
 
 
+  /**
+   * Log a debug statistic with an identifier. Unlike the debug times the value is not accumulated,
+   * the last value set before the debug text refreshes is displayed under the times.
+   *
+   * @param string the identifier
+   * @param value  the statistic value
+   */
+  public static void setDebugStat(String string, float value) {
+    if (Logger.debug) {
+      statList.put(string, value);
+    }
+  }
+
+
   public static void calculateDebugTimesList() {
+    debugThread = Thread.currentThread();
     debug = debugInput;
     refreshRateIndex++;
     if (refreshRateIndex >= refreshRate) {
@@ -103,6 +121,12 @@ public class Logger {
       }
     }
     if (refreshRateIndex >= refreshRate) {
+      for (String name : statList.keySet()) {
+        debugText += name + " : " + statList.get(name) + "\n";
+      }
+      if (!statList.isEmpty()) {
+        Logger.loggerMenu.setText(Logger.debugText);
+      }
       refreshRateIndex = 0;
     }
   }
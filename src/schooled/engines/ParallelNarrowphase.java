@@ -0,0 +1,141 @@
+package schooled.engines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import schooled.entities.BasicEntity;
+import schooled.physics.Contact;
+import schooled.physics.Manifold;
+import schooled.physics.ManifoldPool;
+
+/**
+ * Runs the narrowphase of a list of candidate pairs on a fork join pool.
+ * <p>
+ * Every pair gets its own result slot and manifold pool so the worker threads never share a list
+ * or a pool, the slots are kept between ticks so they stop creating manifolds. After all the
+ * workers finish the results are read back in pair order on the calling thread, which is where
+ * the entity collision callbacks run. The output is the same as evaluating the pairs one by one.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+class ParallelNarrowphase {
+
+  // number of pairs a worker evaluates without splitting the range further
+  private static final int BATCH_SIZE = 32;
+
+  private final ForkJoinPool pool;
+
+  // pair registers, reused between ticks
+  private BasicEntity[] pairA = new BasicEntity[256];
+  private BasicEntity[] pairB = new BasicEntity[256];
+  private Contact[] contacts = new Contact[256];
+  private ArrayList<?>[] results = new ArrayList<?>[256];
+  private ManifoldPool[] pools = new ManifoldPool[256];
+  private boolean[] hits = new boolean[256];
+  private int size = 0;
+
+  /**
+   * Create a parallel narrowphase with a number of worker threads.
+   *
+   * @param workers worker thread count
+   */
+  ParallelNarrowphase(int workers) {
+    pool = new ForkJoinPool(workers);
+  }
+
+  int getWorkers() {
+    return pool.getParallelism();
+  }
+
+  void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Queue a candidate pair.
+   *
+   * @param a       entity a
+   * @param b       entity b
+   * @param contact persistent contact of the pair, can be null
+   */
+  void add(BasicEntity a, BasicEntity b, Contact contact) {
+    if (size == pairA.length) {
+      pairA = Arrays.copyOf(pairA, size * 2);
+      pairB = Arrays.copyOf(pairB, size * 2);
+      contacts = Arrays.copyOf(contacts, size * 2);
+      results = Arrays.copyOf(results, size * 2);
+      pools = Arrays.copyOf(pools, size * 2);
+      hits = Arrays.copyOf(hits, size * 2);
+    }
+
+    if (results[size] == null) {
+      results[size] = new ArrayList<Manifold>();
+      pools[size] = new ManifoldPool();
+    }
+
+    pairA[size] = a;
+    pairB[size] = b;
+    contacts[size] = contact;
+    size++;
+  }
+
+  /**
+   * Evaluate the queued pairs on the pool, then run the collision callbacks in pair order and add
+   * the accepted manifolds to the master list. The manifolds are only valid until the next call.
+   *
+   * @param manifolds master manifold list
+   */
+  @SuppressWarnings("unchecked")
+  void process(ArrayList<Manifold> manifolds) {
+    pool.invoke(new Batch(0, size));
+
+    for (int i = 0; i < size; i++) {
+      ArrayList<Manifold> list = (ArrayList<Manifold>) results[i];
+      if (hits[i] && !Engine.processCollision(pairA[i], pairB[i], list)) {
+        manifolds.addAll(list);
+      }
+
+      pairA[i] = null;
+      pairB[i] = null;
+      contacts[i] = null;
+    }
+
+    size = 0;
+  }
+
+  /**
+   * A range of pairs, split in half until it is small enough to evaluate directly.
+   */
+  private class Batch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int start, end;
+
+    Batch(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void compute() {
+      if (end - start <= BATCH_SIZE) {
+        for (int i = start; i < end; i++) {
+          // the manifolds of the slot's last tick are no longer used
+          ArrayList<Manifold> list = (ArrayList<Manifold>) results[i];
+          list.clear();
+          pools[i].reset();
+          hits[i] = Engine.narrowphase(pairA[i], pairB[i], contacts[i], pools[i], list);
+        }
+        return;
+      }
+
+      int mid = (start + end) >>> 1;
+      invokeAll(new Batch(start, mid), new Batch(mid, end));
+    }
+  }
+}
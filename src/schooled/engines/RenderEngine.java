@@ -34,6 +34,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Stack;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.stb.STBTTAlignedQuad;
@@ -1293,8 +1294,8 @@ public class RenderEngine {
    */
   public static Polygon generatePolygon(PolygonShape p, Vector pos, Vector shift, float scale) {
     Polygon poly = new Polygon();
-    for (int i = 0; i < p.getVertices().size(); i++) {
-      Vector v1 = p.getVertices().get(i);
+    for (int i = 0; i < p.getSize(); i++) {
+      Vector v1 = p.getVertex(i);
       v1 = fixRender(v1.addi(pos), scale, shift);
       poly.addPoint(v1.getXi(), v1.getYi());
     }
@@ -1322,10 +1323,10 @@ public class RenderEngine {
       Vector a, b = null;
       Vector c, d = null;
       // loop through corresponding vertices and fill in the border as separate polygons
-      for (int i = 0; i < ts.getVertices().size() + 1; i++) {
-        int index = i % ts.getVertices().size(); // loop around to the first index
-        a = ts.getVertices().get(index);
-        c = p.getVertices().get(index);
+      for (int i = 0; i < ts.getSize() + 1; i++) {
+        int index = i % ts.getSize(); // loop around to the first index
+        a = ts.getVertex(index);
+        c = p.getVertex(index);
 
         if (b != null && d != null) {
           PolygonShape polygon = new PolygonShape();
@@ -1348,9 +1349,9 @@ public class RenderEngine {
 
       glBegin(GL_LINE_LOOP);
       // loop through the indexes and render the vertexes
-      for (int i = 0; i < p.getVertices().size() + 1; i++) {
-        int index = i % p.getVertices().size(); // loop around to the first index
-        Vector v1 = p.getVertices().get(index);
+      for (int i = 0; i < p.getSize() + 1; i++) {
+        int index = i % p.getSize(); // loop around to the first index
+        Vector v1 = p.getVertex(index);
         v1 = fixRender(v1.addi(pos), scale, shift);
         glVertex2f(v1.getX(), v1.getY());
       }
@@ -1404,10 +1405,10 @@ public class RenderEngine {
       Vector a, b = null;
       Vector c, d = null;
       // loop through corresponding vertices and fill in the border as separate polygons
-      for (int i = 0; i < ts.getVertices().size() + 1; i++) {
-        int index = i % ts.getVertices().size(); // loop around to the first index
-        a = ts.getVertices().get(index);
-        c = p.getVertices().get(index);
+      for (int i = 0; i < ts.getSize() + 1; i++) {
+        int index = i % ts.getSize(); // loop around to the first index
+        a = ts.getVertex(index);
+        c = p.getVertex(index);
 
         if (b != null && d != null) {
           PolygonShape polygon = new PolygonShape();
@@ -1432,9 +1433,9 @@ public class RenderEngine {
 
       glBegin(GL_POLYGON);
       // loop through the indexes and render the vertexes
-      for (int i = 0; i < p.getVertices().size() + 1; i++) {
-        int index = i % p.getVertices().size(); // loop around to the first index
-        Vector v1 = p.getVertices().get(index);
+      for (int i = 0; i < p.getSize() + 1; i++) {
+        int index = i % p.getSize(); // loop around to the first index
+        Vector v1 = p.getVertex(index);
         v1 = fixRender(v1.addi(pos), scale, shift);
         glVertex2f(v1.getX(), v1.getY());
       }
@@ -1859,6 +1860,11 @@ public class RenderEngine {
 
       setColor(gc, Color.black);
 
+      // tint sleeping entities
+      if (e.isSleeping()) {
+        setColor(gc, Color.blue);
+      }
+
       traceShape(gc, e.getShape(), e.getPos(), wShift.subi(gShift), gScale);
 
       if (e instanceof Vehicle) {
@@ -2002,19 +2008,23 @@ public class RenderEngine {
   public static ArrayList<SpriteData> removeOffscreen(ArrayList<SpriteData> dList,
       float gScale, Vector gShift, Vector gFrame) {
 
-    BoundingBox frameBox = new BoundingBox(gFrame); // generate a frame bounding box
-    ArrayList<SpriteData> result = new ArrayList<>(); // create the list to return
+    // the frame is positioned at the game shift
+    float frameXMin = gShift.getX();
+    float frameYMin = gShift.getY();
+    float frameXMax = gShift.getX() + gFrame.getX();
+    float frameYMax = gShift.getY() + gFrame.getY();
+    ArrayList<SpriteData> result = new ArrayList<>(dList.size()); // create the list to return
 
     for (SpriteData spriteData : dList) { // loop through all the sprites in the list
-      // scale the position of the sprite to follow the game scale
-      Vector spritePos = spriteData.spriteLoc.scalei(gScale);
-
-      // scale the sprites size relative to the game size and generate a bounding box
-      BoundingBox spriteBox = new BoundingBox(spriteData.sprite.getSize().scalei(gScale));
-
-      // find if the sprite is within the frame bounding box
-      // the frame is positioned at the game shift
-      if (Engine.boundingBoxCollision(gShift, frameBox, spritePos, spriteBox)) {
+      // scale the position and size of the sprite to follow the game scale
+      float xMin = spriteData.spriteLoc.getX() * gScale;
+      float yMin = spriteData.spriteLoc.getY() * gScale;
+      float xMax = xMin + spriteData.sprite.getWidth() * gScale;
+      float yMax = yMin + spriteData.sprite.getHeight() * gScale;
+
+      // find if the sprite is within the frame, compared like Engine.boundingBoxCollision without
+      //  building boxes for every sprite
+      if (frameXMax > xMin && frameYMax > yMin && xMax > frameXMin && yMax > frameYMin) {
         result.add(spriteData);
       }
     }
@@ -2032,7 +2042,7 @@ public class RenderEngine {
    * @return a list of sprite data including global location, parent entity, and, layer location
    *  For a full list look at the SpriteData data-types.
    */
-  public static ArrayList<SpriteData> getSpriteData( ArrayList<Entity> eList) {
+  public static ArrayList<SpriteData> getSpriteData(List<Entity> eList) {
     ArrayList<SpriteData> dataList = new ArrayList<>(); // output list
     // stack for layered sprites
     Stack<Tuple<LayeredSprite, Iterator<Sprite>>> layeredStack = new Stack<>();
@@ -2275,7 +2285,7 @@ public class RenderEngine {
 
   public static  HashMap<Float, ArrayList<SpriteData>> LastLayers = null;
 
-  public static void drawEntities(Object gc, ArrayList<Entity> entities, float gScale, Vector gShift, Vector gFrame, Vector wShift) {
+  public static void drawEntities(Object gc, List<Entity> entities, float gScale, Vector gShift, Vector gFrame, Vector wShift) {
     HashMap<Float, ArrayList<SpriteData>> layers = new HashMap<>(); // create layer lists
 
     ArrayList<SpriteData> dataList = getSpriteData(entities);
@@ -0,0 +1,481 @@
+package schooled.engines;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import schooled.entities.BasicEntity;
+import schooled.entities.Entity;
+import schooled.physics.Manifold;
+import schooled.physics.ManifoldLookup;
+
+/**
+ * Contact solver that resolves the manifolds of a tick with a fixed number of sequential impulse
+ * passes, so the cost of a tick only depends on the number of contacts and never on how the
+ * entities are stacked or chained.
+ * <p>
+ * Every contact of every manifold is one row with an accumulated impulse that can only push. Rows
+ * that were touching last tick start with part of their last impulse, then the velocity passes
+ * sweep the rows in manifold order. After them the position passes split the remaining
+ * penetration between the entities and store it as the entity shift, like the mass tree solver
+ * does. Long chains may be left with some penetration or velocity after the passes, it is picked
+ * up again on the next tick.
+ * <p>
+ * Entities only move, they don't turn, so only the normal of a contact is used. Child entities
+ * read the velocity of their parents, so the rows of a child push its top most parent. Sleeping
+ * entities and entities without a mass aren't moved.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class SequentialImpulseSolver implements ContactSolver {
+
+  public static final int DEFAULT_ITERATIONS = 8;
+  public static final int DEFAULT_POSITION_ITERATIONS = 3;
+  public static final float DEFAULT_CORRECTION = 0.8f;
+  public static final float DEFAULT_SLOP = 0.01f;
+  public static final float DEFAULT_WARM_START = 0.9f;
+
+  private int iterations; // velocity passes over the rows
+  private int positionIterations; // position passes over the rows
+  private float correction; // part of the penetration removed by a position pass
+  private float slop; // penetration left alone so resting contacts stay touching
+  private float warmStart; // part of the last tick's impulse a contact starts with
+
+  // bodies of the tick, the top most parents of the manifold entities, reused between ticks
+  private final ArrayList<BasicEntity> bodies = new ArrayList<>();
+  private int[] lookupBody = new int[64]; // body of each manifold lookup id, -1 if not yet found
+  private float[] invMass = new float[64];
+  private float[] velX = new float[64];
+  private float[] velY = new float[64];
+  private float[] startX = new float[64];
+  private float[] startY = new float[64];
+  private float[] shiftX = new float[64];
+  private float[] shiftY = new float[64];
+
+  // contact rows of the tick
+  private int rowCount = 0;
+  private int[] rowA = new int[64];
+  private int[] rowB = new int[64];
+  private float[] normalX = new float[64];
+  private float[] normalY = new float[64];
+  private float[] depth = new float[64];
+  private float[] bounce = new float[64]; // separating velocity the row aims for
+  private float[] impulse = new float[64]; // accumulated impulse
+  private int[] contact = new int[64]; // contact index of the row in its manifold
+  private BasicEntity[] entityA = new BasicEntity[64];
+  private BasicEntity[] entityB = new BasicEntity[64];
+
+  // rows of the last tick, found again by entity pair and contact index for warm starting
+  private int lastCount = 0;
+  private BasicEntity[] lastA = new BasicEntity[64];
+  private BasicEntity[] lastB = new BasicEntity[64];
+  private int[] lastContact = new int[64];
+  private float[] lastNormalX = new float[64];
+  private float[] lastNormalY = new float[64];
+  private float[] lastImpulse = new float[64];
+  private int[] lastTable = new int[128]; // open addressing table of last rows, -1 when empty
+
+  /**
+   * Create a solver with the default pass counts.
+   */
+  public SequentialImpulseSolver() {
+    this(DEFAULT_ITERATIONS, DEFAULT_POSITION_ITERATIONS);
+  }
+
+  /**
+   * Create a solver.
+   *
+   * @param iterations         velocity passes over the contacts of a tick
+   * @param positionIterations position passes over the contacts of a tick
+   */
+  public SequentialImpulseSolver(int iterations, int positionIterations) {
+    this.iterations = Math.max(1, iterations);
+    this.positionIterations = Math.max(0, positionIterations);
+    this.correction = DEFAULT_CORRECTION;
+    this.slop = DEFAULT_SLOP;
+    this.warmStart = DEFAULT_WARM_START;
+  }
+
+  @Override
+  public void solve(ArrayList<Manifold> manifolds, ManifoldLookup mLookup) {
+    Logger.pushDebugTime("engine_impulses");
+    collectRows(manifolds, mLookup);
+    warmStart();
+
+    for (int i = 0; i < iterations; i++) {
+      solveVelocities();
+    }
+    for (int i = 0; i < positionIterations; i++) {
+      solvePositions();
+    }
+
+    apply();
+    keepRows();
+    Logger.setDebugStat("solver_rows", rowCount);
+    Logger.pushDebugTime("engine_impulses");
+  }
+
+  //<editor-fold desc="Getters and Setters">
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Set the number of velocity passes, the cost of a tick grows linearly with it.
+   *
+   * @param iterations velocity passes, at least 1
+   */
+  public void setIterations(int iterations) {
+    this.iterations = Math.max(1, iterations);
+  }
+
+  public int getPositionIterations() {
+    return positionIterations;
+  }
+
+  /**
+   * Set the number of position passes.
+   *
+   * @param positionIterations position passes, 0 leaves penetration to the velocities
+   */
+  public void setPositionIterations(int positionIterations) {
+    this.positionIterations = Math.max(0, positionIterations);
+  }
+
+  public float getCorrection() {
+    return correction;
+  }
+
+  /**
+   * Set the part of the remaining penetration a position pass removes.
+   *
+   * @param correction correction factor between 0 and 1
+   */
+  public void setCorrection(float correction) {
+    this.correction = Math.max(0, Math.min(1, correction));
+  }
+
+  public float getSlop() {
+    return slop;
+  }
+
+  public void setSlop(float slop) {
+    this.slop = Math.max(0, slop);
+  }
+
+  public float getWarmStart() {
+    return warmStart;
+  }
+
+  /**
+   * Set the part of the last tick's impulse a contact that is still touching starts with. Resting
+   * stacks need far fewer passes with warm starting, 0 turns it off.
+   *
+   * @param warmStart warm start factor between 0 and 1
+   */
+  public void setWarmStart(float warmStart) {
+    this.warmStart = Math.max(0, Math.min(1, warmStart));
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="Solver Passes">
+
+  /**
+   * Turn the contacts of the manifolds into rows and read the velocities of their bodies.
+   */
+  private void collectRows(ArrayList<Manifold> manifolds, ManifoldLookup mLookup) {
+    bodies.clear();
+    rowCount = 0;
+
+    if (lookupBody.length < mLookup.size()) {
+      lookupBody = new int[Math.max(mLookup.size(), lookupBody.length * 2)];
+    }
+    Arrays.fill(lookupBody, 0, mLookup.size(), -1);
+
+    for (int m = 0; m < manifolds.size(); m++) {
+      Manifold manifold = manifolds.get(m);
+      int a = body(mLookup, manifold.a);
+      int b = body(mLookup, manifold.b);
+      if (a == b || invMass[a] + invMass[b] == 0) {
+        continue;
+      }
+
+      float elasticConstant = Math.max(manifold.a.getElasticConstant(),
+          manifold.b.getElasticConstant());
+
+      for (int i = 0; i < manifold.getContactCount(); i++) {
+        float nX = manifold.getNormalX(i), nY = manifold.getNormalY(i);
+        float dX = manifold.getDepthX(i), dY = manifold.getDepthY(i);
+        if (nX == 0 && nY == 0) {
+          continue;
+        }
+
+        ensureRows(rowCount + 1);
+        rowA[rowCount] = a;
+        rowB[rowCount] = b;
+        normalX[rowCount] = nX;
+        normalY[rowCount] = nY;
+        depth[rowCount] = (float) Math.sqrt(dX * dX + dY * dY);
+
+        // only contacts closing faster than the error margin bounce
+        float closing = (velX[a] - velX[b]) * nX + (velY[a] - velY[b]) * nY;
+        bounce[rowCount] = closing < -Engine.ERROR_MARGIN ? -elasticConstant * closing : 0;
+        impulse[rowCount] = 0;
+        contact[rowCount] = i;
+        entityA[rowCount] = manifold.a;
+        entityB[rowCount] = manifold.b;
+        rowCount++;
+      }
+    }
+  }
+
+  /**
+   * Start the rows that were touching last tick with part of their last impulse.
+   */
+  private void warmStart() {
+    if (warmStart == 0 || lastCount == 0) {
+      return;
+    }
+
+    for (int r = 0; r < rowCount; r++) {
+      int last = findLast(entityA[r], entityB[r], contact[r]);
+      // the contact has to push the same way it did last tick
+      if (last == -1 || normalX[r] * lastNormalX[last] + normalY[r] * lastNormalY[last] < 0.99f) {
+        continue;
+      }
+
+      int a = rowA[r], b = rowB[r];
+      float lambda = lastImpulse[last] * warmStart;
+      impulse[r] = lambda;
+
+      velX[a] += normalX[r] * lambda * invMass[a];
+      velY[a] += normalY[r] * lambda * invMass[a];
+      velX[b] -= normalX[r] * lambda * invMass[b];
+      velY[b] -= normalY[r] * lambda * invMass[b];
+    }
+  }
+
+  /**
+   * One velocity pass, push every row towards its separating velocity.
+   */
+  private void solveVelocities() {
+    for (int r = 0; r < rowCount; r++) {
+      int a = rowA[r], b = rowB[r];
+      float nX = normalX[r], nY = normalY[r];
+
+      float separating = (velX[a] - velX[b]) * nX + (velY[a] - velY[b]) * nY;
+      float lambda = (bounce[r] - separating) / (invMass[a] + invMass[b]);
+
+      // the accumulated impulse can only push the bodies apart
+      float total = Math.max(impulse[r] + lambda, 0);
+      lambda = total - impulse[r];
+      impulse[r] = total;
+
+      velX[a] += nX * lambda * invMass[a];
+      velY[a] += nY * lambda * invMass[a];
+      velX[b] -= nX * lambda * invMass[b];
+      velY[b] -= nY * lambda * invMass[b];
+    }
+  }
+
+  /**
+   * One position pass, move the bodies of every row out of the penetration left after the shifts
+   * of the earlier rows.
+   */
+  private void solvePositions() {
+    for (int r = 0; r < rowCount; r++) {
+      int a = rowA[r], b = rowB[r];
+      float nX = normalX[r], nY = normalY[r];
+
+      float penetration = depth[r]
+          - ((shiftX[a] - shiftX[b]) * nX + (shiftY[a] - shiftY[b]) * nY);
+      if (penetration <= slop) {
+        continue;
+      }
+
+      float push = (penetration - slop) * correction / (invMass[a] + invMass[b]);
+      shiftX[a] += nX * push * invMass[a];
+      shiftY[a] += nY * push * invMass[a];
+      shiftX[b] -= nX * push * invMass[b];
+      shiftY[b] -= nY * push * invMass[b];
+    }
+  }
+
+  /**
+   * Hand the velocity changes and shifts of the bodies back to the entities.
+   */
+  private void apply() {
+    for (int i = 0; i < bodies.size(); i++) {
+      if (invMass[i] == 0) {
+        continue;
+      }
+
+      BasicEntity body = bodies.get(i);
+      float dX = velX[i] - startX[i], dY = velY[i] - startY[i];
+      if (dX != 0 || dY != 0) {
+        body.addVelocity(dX, dY);
+      }
+      if (shiftX[i] != 0 || shiftY[i] != 0) {
+        body.addShift(shiftX[i], shiftY[i]);
+      }
+    }
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="Registers">
+
+  /**
+   * Get the body an entity belongs to, adding it if this is the first row it shows up in.
+   *
+   * @return body index
+   */
+  private int body(ManifoldLookup mLookup, BasicEntity entity) {
+    int id = mLookup.getId(entity);
+    if (id != -1 && lookupBody[id] != -1) {
+      return lookupBody[id];
+    }
+
+    BasicEntity root = entity;
+    while (root instanceof Entity && ((Entity) root).hasParent()) {
+      root = ((Entity) root).getParent();
+    }
+
+    int index = -1;
+    int rootId = root == entity ? id : mLookup.getId(root);
+    if (rootId != -1 && lookupBody[rootId] != -1) {
+      index = lookupBody[rootId];
+    } else if (rootId == -1) {
+      // parents without manifolds of their own aren't in the lookup
+      for (int i = 0; i < bodies.size() && index == -1; i++) {
+        if (bodies.get(i) == root) {
+          index = i;
+        }
+      }
+    }
+
+    if (index == -1) {
+      index = addBody(root);
+    }
+    if (rootId != -1) {
+      lookupBody[rootId] = index;
+    }
+    if (id != -1) {
+      lookupBody[id] = index;
+    }
+    return index;
+  }
+
+  private int addBody(BasicEntity root) {
+    int index = bodies.size();
+    bodies.add(root);
+
+    if (index == invMass.length) {
+      int size = index * 2;
+      invMass = Arrays.copyOf(invMass, size);
+      velX = Arrays.copyOf(velX, size);
+      velY = Arrays.copyOf(velY, size);
+      startX = Arrays.copyOf(startX, size);
+      startY = Arrays.copyOf(startY, size);
+      shiftX = Arrays.copyOf(shiftX, size);
+      shiftY = Arrays.copyOf(shiftY, size);
+    }
+
+    invMass[index] = root.isSleeping() ? 0 : root.getInvMass();
+    velX[index] = startX[index] = root.getVelocityX();
+    velY[index] = startY[index] = root.getVelocityY();
+    shiftX[index] = 0;
+    shiftY[index] = 0;
+    return index;
+  }
+
+  /**
+   * Keep the rows of this tick so the next tick can warm start from them.
+   */
+  private void keepRows() {
+    if (lastA.length < rowCount) {
+      int size = Math.max(rowCount, lastA.length * 2);
+      lastA = new BasicEntity[size];
+      lastB = new BasicEntity[size];
+      lastContact = new int[size];
+      lastNormalX = new float[size];
+      lastNormalY = new float[size];
+      lastImpulse = new float[size];
+    }
+
+    int tableSize = lastTable.length;
+    while (tableSize < rowCount * 2) {
+      tableSize *= 2;
+    }
+    if (tableSize != lastTable.length) {
+      lastTable = new int[tableSize];
+    }
+    Arrays.fill(lastTable, -1);
+
+    // don't hold on to entities of older rows
+    if (lastCount > rowCount) {
+      Arrays.fill(lastA, rowCount, lastCount, null);
+      Arrays.fill(lastB, rowCount, lastCount, null);
+    }
+    lastCount = rowCount;
+
+    for (int r = 0; r < rowCount; r++) {
+      lastA[r] = entityA[r];
+      lastB[r] = entityB[r];
+      lastContact[r] = contact[r];
+      lastNormalX[r] = normalX[r];
+      lastNormalY[r] = normalY[r];
+      lastImpulse[r] = impulse[r];
+
+      int slot = hash(entityA[r], entityB[r], contact[r]) & (lastTable.length - 1);
+      while (lastTable[slot] != -1) {
+        slot = (slot + 1) & (lastTable.length - 1);
+      }
+      lastTable[slot] = r;
+
+      entityA[r] = null;
+      entityB[r] = null;
+    }
+  }
+
+  /**
+   * Find the row of the last tick with the same entity pair and contact index.
+   *
+   * @return row of the last tick, -1 if the contact is new
+   */
+  private int findLast(BasicEntity a, BasicEntity b, int index) {
+    int slot = hash(a, b, index) & (lastTable.length - 1);
+    while (lastTable[slot] != -1) {
+      int last = lastTable[slot];
+      if (lastA[last] == a && lastB[last] == b && lastContact[last] == index) {
+        return last;
+      }
+      slot = (slot + 1) & (lastTable.length - 1);
+    }
+    return -1;
+  }
+
+  private static int hash(BasicEntity a, BasicEntity b, int index) {
+    int h = System.identityHashCode(a) * 31 + System.identityHashCode(b);
+    h = h * 31 + index;
+    return h ^ (h >>> 16);
+  }
+
+  private void ensureRows(int size) {
+    if (size <= rowA.length) {
+      return;
+    }
+
+    size = Math.max(size, rowA.length * 2);
+    rowA = Arrays.copyOf(rowA, size);
+    rowB = Arrays.copyOf(rowB, size);
+    normalX = Arrays.copyOf(normalX, size);
+    normalY = Arrays.copyOf(normalY, size);
+    depth = Arrays.copyOf(depth, size);
+    bounce = Arrays.copyOf(bounce, size);
+    impulse = Arrays.copyOf(impulse, size);
+    contact = Arrays.copyOf(contact, size);
+    entityA = Arrays.copyOf(entityA, size);
+    entityB = Arrays.copyOf(entityB, size);
+  }
+  //</editor-fold>
+}
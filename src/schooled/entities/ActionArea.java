@@ -30,6 +30,7 @@ public class ActionArea extends Entity {
     super(g, new Vector(0.0f, 0.0f), s, 0.0f);
     event = newEvent;
     setPhysics(false);
+    setSensor(true);
   }
 
   @Override
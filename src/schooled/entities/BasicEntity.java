@@ -1,6 +1,9 @@
 package schooled.entities;
 
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import schooled.Game;
@@ -9,6 +12,8 @@ import schooled.engines.Engine;
 import schooled.physics.BoundingBox;
 import schooled.physics.Manifold;
 import schooled.physics.MassTree;
+import schooled.physics.PhysicsStore;
+import schooled.physics.SensorOverlaps;
 import schooled.physics.Shape;
 import schooled.physics.Vector;
 import schooled.visuals.GraphicsContext;
@@ -43,6 +48,12 @@ public class BasicEntity implements Serializable {
   private boolean collides = true;
   private boolean cancelCollision = false;
   private boolean interactAll = false;
+  private boolean canSleep = true;
+  private boolean sensor = false; // only reports overlaps, never collides physically
+  // manifold list handed to the collision callbacks of sensor overlaps, always empty
+  private static final ArrayList<Manifold> NO_MANIFOLDS = new ArrayList<>(0);
+  private int collisionCategory = 1; // layers the entity is on
+  private int collisionMask = -1; // layers the entity collides with
   //</editor-fold>
 
   //<editor-fold desc="Physics Registers">
@@ -63,6 +74,22 @@ public class BasicEntity implements Serializable {
 
   public int hitIndex = 0;
   public Vector collector = new Vector(0, 0);
+  public int solverId = -1; // dense id assigned by the manifold lookup of the current tick
+
+  private boolean sleeping = false; // sleeping entities are skipped by the physics engine
+  private int restTicks = 0; // number of ticks in a row the entity has been at rest
+
+  private Vector previousPosition = null; // position before the last fixed physics step
+  private Vector steppedPosition = null; // position of the last physics step while interpolating
+
+  private transient PhysicsStore physicsStore = null; // holds velocity and force, null if none
+  private transient int physicsHandle = -1; // index of the entity in the physics store
+
+  private transient BoundingBox worldBox = null; // broad bounding box in world space
+  private transient BoundingBox worldBoxSource = null; // local box the world box was built from
+  private transient float worldBoxX, worldBoxY; // position the world box was built at
+
+  private transient SensorOverlaps sensorOverlaps = null; // overlaps of sensor pairs, null if none
   //</editor-fold>
 
   //</editor-fold>
@@ -151,12 +178,16 @@ public class BasicEntity implements Serializable {
     entity.setShape(shape == null ? null : shape.clone());
     entity.setMass(mass);
 
-    entity.setVelocity(velocity.clone());
-    entity.setForce(force.clone());
+    entity.setVelocity(storedVelocity().clone());
+    entity.setForce(storedForce().clone());
     entity.setShift(shift.clone());
 
     entity.setCollides(collides);
+    entity.setCollisionCategory(collisionCategory);
+    entity.setCollisionMask(collisionMask);
     entity.setPhysics(hasPhysics);
+    entity.setSensor(sensor);
+    entity.setCanSleep(canSleep);
 
     entity.setName(customName);
 
@@ -202,11 +233,14 @@ public class BasicEntity implements Serializable {
    * @param pos entity position
    */
   public void setPosition(Vector pos) {
+    wake();
+    previousPosition = null; // don't interpolate jumps
     if (pos == null) {
       this.position = new Vector(0, 0);
     } else {
       this.position = pos;
     }
+    positionChanged();
   }
 
   /**
@@ -225,10 +259,21 @@ public class BasicEntity implements Serializable {
    */
   public void addPosition(Vector pos) {
     if (pos != null) {
+      if (pos.getX() != 0 || pos.getY() != 0) {
+        wake();
+        positionChanged();
+      }
       this.position.add(pos);
     }
   }
 
+  /**
+   * Called whenever the position of the entity is set or moved through the entity. Positions
+   * changed in place through the vector returned by {@link #getPosition()} are not seen.
+   */
+  protected void positionChanged() {
+  }
+
   /**
    * Add to the position of the entity.
    *
@@ -238,6 +283,41 @@ public class BasicEntity implements Serializable {
     this.addPosition(pos);
   }
 
+  /**
+   * Record the position before a fixed physics step so rendering can interpolate between the
+   * recorded position and the position after the step.
+   */
+  public void storePreviousPosition() {
+    previousPosition = position.clone();
+  }
+
+  /**
+   * Move the entity to a point between its previous and current physics position for rendering.
+   * Has to be undone with {@link #restorePosition()} before the next physics step.
+   *
+   * @param alpha fraction of the way from the previous position to the current position
+   */
+  public void interpolatePosition(float alpha) {
+    if (previousPosition == null || steppedPosition != null) {
+      return;
+    }
+
+    steppedPosition = position;
+    position = previousPosition.addScaledi(position.subi(previousPosition), alpha);
+    positionChanged();
+  }
+
+  /**
+   * Move the entity back to its physics position after rendering an interpolated position.
+   */
+  public void restorePosition() {
+    if (steppedPosition != null) {
+      position = steppedPosition;
+      steppedPosition = null;
+      positionChanged();
+    }
+  }
+
 
   public Shape getShape(BasicEntity entity) {
     return getShape();
@@ -261,6 +341,7 @@ public class BasicEntity implements Serializable {
    */
   public void setShape(Shape shape) {
     this.shape = shape;
+    invalidateWorldBoundingBox();
   }
 
 
@@ -303,6 +384,61 @@ public class BasicEntity implements Serializable {
     return null;
   }
 
+  /**
+   * Get a bounding box that contains every box returned by {@link #getBoundingBox(BasicEntity)}.
+   * <p>
+   * Used by the physics broadphase, which has to find candidates before it knows the pair.
+   *
+   * @return bounding box
+   */
+  public BoundingBox getBroadBoundingBox() {
+    return getBoundingBox();
+  }
+
+  /**
+   * Get the broad bounding box of the entity in world space, the box of
+   * {@link #getBroadBoundingBox()} moved to the position of the entity.
+   * <p>
+   * The box is cached and only rebuilt when the position of the entity or its local box changes.
+   * Shapes hand out a new local box when their vertices, state or animation frame change, so the
+   * local box is compared by reference. The returned box is shared and must not be modified.
+   *
+   * @return world bounding box, null if the entity has no box
+   */
+  public BoundingBox getWorldBoundingBox() {
+    BoundingBox local = getBroadBoundingBox();
+    if (local == null) {
+      return null;
+    }
+
+    Vector pos = getPosition();
+    float x = pos.getX();
+    float y = pos.getY();
+    if (local != worldBoxSource || x != worldBoxX || y != worldBoxY || worldBox == null) {
+      if (worldBox == null) {
+        worldBox = new BoundingBox(0, 0, 0, 0);
+      }
+      worldBox.xMin = x + local.xMin;
+      worldBox.yMin = y + local.yMin;
+      worldBox.xMax = x + local.xMax;
+      worldBox.yMax = y + local.yMax;
+
+      worldBoxSource = local;
+      worldBoxX = x;
+      worldBoxY = y;
+    }
+
+    return worldBox;
+  }
+
+  /**
+   * Force the world bounding box to be rebuilt on its next use. Only needed when a local bounding
+   * box is changed in place.
+   */
+  public void invalidateWorldBoundingBox() {
+    worldBoxSource = null;
+  }
+
 
   /**
    * Get the mass of the entity.
@@ -328,6 +464,9 @@ public class BasicEntity implements Serializable {
     }
     this.mass = mass;
     invMass = mass <= 0.0f ? 0.0f : 1 / mass;
+    if (physicsStore != null) {
+      physicsStore.setInvMass(physicsHandle, invMass);
+    }
   }
 
   /**
@@ -357,7 +496,12 @@ public class BasicEntity implements Serializable {
    * @param velocity velocity
    */
   public void setVelocity(Vector velocity) {
-    this.velocity = velocity;
+    wake();
+    if (physicsStore != null) {
+      physicsStore.setVelocity(physicsHandle, velocity.getX(), velocity.getY());
+    } else {
+      this.velocity = velocity;
+    }
   }
 
   /**
@@ -366,11 +510,68 @@ public class BasicEntity implements Serializable {
    * @param velocity velocity
    */
   public void addVelocity(Vector velocity) {
-    this.velocity.add(velocity);
+    addVelocity(velocity.getX(), velocity.getY());
+  }
+
+  /**
+   * Add to the velocity of the entity.
+   *
+   * @param x x velocity
+   * @param y y velocity
+   */
+  public void addVelocity(float x, float y) {
+    if (x != 0 || y != 0) {
+      wake();
+    }
+    if (physicsStore != null) {
+      physicsStore.addVelocity(physicsHandle, x, y);
+    } else {
+      this.velocity.add(x, y);
+    }
+  }
+
+  /**
+   * Get the x component of {@link #getVelocity()} without creating a vector.
+   *
+   * @return x velocity
+   */
+  public float getVelocityX() {
+    return getLocalVelocityX();
+  }
+
+  /**
+   * Get the y component of {@link #getVelocity()} without creating a vector.
+   *
+   * @return y velocity
+   */
+  public float getVelocityY() {
+    return getLocalVelocityY();
+  }
+
+  /**
+   * Get the x component of {@link #getLocalVelocity()} without creating a vector.
+   *
+   * @return x velocity
+   */
+  public float getLocalVelocityX() {
+    return physicsStore == null ? velocity.getX() : physicsStore.getVelocityX(physicsHandle);
+  }
+
+  /**
+   * Get the y component of {@link #getLocalVelocity()} without creating a vector.
+   *
+   * @return y velocity
+   */
+  public float getLocalVelocityY() {
+    return physicsStore == null ? velocity.getY() : physicsStore.getVelocityY(physicsHandle);
   }
 
   public void scaleVelocity(float scale) {
-    velocity.scale(scale);
+    if (physicsStore != null) {
+      physicsStore.scaleVelocity(physicsHandle, scale);
+    } else {
+      velocity.scale(scale);
+    }
   }
 
   /**
@@ -379,7 +580,19 @@ public class BasicEntity implements Serializable {
    * @return get the stored velocity
    */
   public Vector getLocalVelocity() {
-    return velocity;
+    return storedVelocity();
+  }
+
+  /**
+   * Get the velocity from the physics store if the entity has a handle, otherwise the velocity
+   * vector of the entity.
+   */
+  private Vector storedVelocity() {
+    return physicsStore == null ? velocity : physicsStore.getVelocity(physicsHandle);
+  }
+
+  private Vector storedForce() {
+    return physicsStore == null ? force : physicsStore.getForce(physicsHandle);
   }
 
   public float getAirDrag() {
@@ -408,7 +621,25 @@ public class BasicEntity implements Serializable {
    * @return force
    */
   public Vector getForce() {
-    return this.force;
+    return storedForce();
+  }
+
+  /**
+   * Get the x component of {@link #getForce()} without creating a vector.
+   *
+   * @return x force
+   */
+  public float getForceX() {
+    return physicsStore == null ? force.getX() : physicsStore.getForceX(physicsHandle);
+  }
+
+  /**
+   * Get the y component of {@link #getForce()} without creating a vector.
+   *
+   * @return y force
+   */
+  public float getForceY() {
+    return physicsStore == null ? force.getY() : physicsStore.getForceY(physicsHandle);
   }
 
   /**
@@ -417,7 +648,32 @@ public class BasicEntity implements Serializable {
    * @param nForce input force
    */
   public void setForce(Vector nForce) {
-    this.force = nForce;
+    if (nForce.getX() != 0 || nForce.getY() != 0) {
+      wake();
+    }
+    if (physicsStore != null) {
+      physicsStore.setForce(physicsHandle, nForce.getX(), nForce.getY());
+    } else {
+      this.force = nForce;
+    }
+  }
+
+  /**
+   * Set the force being applied to the entity.
+   *
+   * @param x x force
+   * @param y y force
+   */
+  public void setForce(float x, float y) {
+    if (x != 0 || y != 0) {
+      wake();
+    }
+    if (physicsStore != null) {
+      physicsStore.setForce(physicsHandle, x, y);
+    } else if (force.getX() != x || force.getY() != y) {
+      // the force vector may be shared with the caller that set it
+      this.force = new Vector(x, y);
+    }
   }
 
   /**
@@ -426,7 +682,14 @@ public class BasicEntity implements Serializable {
    * @param nForce force added
    */
   public void addForce(Vector nForce) {
-    this.force.add(nForce);
+    if (nForce.getX() != 0 || nForce.getY() != 0) {
+      wake();
+    }
+    if (physicsStore != null) {
+      physicsStore.addForce(physicsHandle, nForce.getX(), nForce.getY());
+    } else {
+      this.force.add(nForce);
+    }
   }
 
 
@@ -452,6 +715,16 @@ public class BasicEntity implements Serializable {
     this.shift.add(shift);
   }
 
+  /**
+   * Add to the shifting value.
+   *
+   * @param x x shift
+   * @param y y shift
+   */
+  public void addShift(float x, float y) {
+    this.shift.add(x, y);
+  }
+
   /**
    * Set the shifting value.
    * <p>
@@ -505,6 +778,59 @@ public class BasicEntity implements Serializable {
     this.collides = collides;
   }
 
+  /**
+   * Get the collision layers the entity is on as a bit field.
+   *
+   * @return category bits
+   */
+  public int getCollisionCategory() {
+    return collisionCategory;
+  }
+
+  /**
+   * Set the collision layers the entity is on as a bit field, one bit per layer. Entities start on
+   * layer 0 (bit 1).
+   *
+   * @param collisionCategory category bits
+   */
+  public void setCollisionCategory(int collisionCategory) {
+    this.collisionCategory = collisionCategory;
+  }
+
+  /**
+   * Get the collision layers the entity collides with as a bit field.
+   *
+   * @return mask bits
+   */
+  public int getCollisionMask() {
+    return collisionMask;
+  }
+
+  /**
+   * Set the collision layers the entity collides with as a bit field, one bit per layer. Entities
+   * start out colliding with every layer.
+   * <p>
+   * Two entities only form a collision pair when each is on a layer the other collides with. The
+   * layers are checked by the broadphase before any bounding box or shape is tested, so filtering
+   * a pair out with the layers is cheaper than cancelling it in a collision callback.
+   *
+   * @param collisionMask mask bits
+   */
+  public void setCollisionMask(int collisionMask) {
+    this.collisionMask = collisionMask;
+  }
+
+  /**
+   * Do the collision layers of this entity and another entity let them collide.
+   *
+   * @param other other entity
+   * @return true if each entity is on a layer the other collides with
+   */
+  public boolean layersCollide(BasicEntity other) {
+    return (collisionCategory & other.collisionMask) != 0
+        && (other.collisionCategory & collisionMask) != 0;
+  }
+
   /**
    * Check the cancel collision flag and reset it.
    *
@@ -555,6 +881,97 @@ public class BasicEntity implements Serializable {
     return true;
   }
 
+  /**
+   * Is the entity a sensor.
+   *
+   * @return true if the entity only reports overlaps
+   */
+  public boolean isSensor() {
+    return sensor;
+  }
+
+  /**
+   * Set the sensor state of the entity.
+   * <p>
+   * A pair with a sensor in it is only tested for overlap, it never produces collision manifolds
+   * and never reaches the solver. Both entities of an overlapping pair are told through
+   * {@link #sensorEnter(BasicEntity) sensorEnter}, {@link #sensorStay(BasicEntity) sensorStay} and
+   * {@link #sensorExit(BasicEntity) sensorExit} once the pair search of the tick is done.
+   *
+   * @param sensor sensor state
+   */
+  public void setSensor(boolean sensor) {
+    this.sensor = sensor;
+  }
+
+  /**
+   * Get the sensor overlaps of the entity.
+   *
+   * @return sensor overlaps, null if the entity never overlapped a sensor pair
+   */
+  public SensorOverlaps getSensorOverlaps() {
+    return sensorOverlaps;
+  }
+
+  /**
+   * Add an overlap found by the physics engine this tick.
+   *
+   * @param other overlapping entity of a sensor pair
+   */
+  public void addSensorOverlap(BasicEntity other) {
+    if (sensorOverlaps == null) {
+      sensorOverlaps = new SensorOverlaps();
+    }
+    sensorOverlaps.add(other);
+  }
+
+  /**
+   * Does the entity overlap another entity through a sensor pair as of the last physics tick.
+   *
+   * @param other other entity
+   * @return true if the entities overlap
+   */
+  public boolean isOverlapping(BasicEntity other) {
+    return sensorOverlaps != null && sensorOverlaps.contains(other);
+  }
+
+  /**
+   * This method is called when another entity starts overlapping this entity through a sensor
+   * pair.
+   * <p>
+   * Passes the overlap on to {@link #collision(BasicEntity, ArrayList)} with a shared empty
+   * manifold list, a sensor pair has no physical collision to cancel so the cancel flag is cleared
+   * afterwards. Overlaps are dispatched on the engine thread, so the list is never shared between
+   * threads.
+   *
+   * @param e other entity
+   */
+  public void sensorEnter(BasicEntity e) {
+    collision(e, NO_MANIFOLDS);
+    NO_MANIFOLDS.clear();
+    checkCollisionCancel();
+  }
+
+  /**
+   * This method is called every tick another entity keeps overlapping this entity through a
+   * sensor pair, after the tick it entered on.
+   *
+   * @param e other entity
+   */
+  public void sensorStay(BasicEntity e) {
+    collision(e, NO_MANIFOLDS);
+    NO_MANIFOLDS.clear();
+    checkCollisionCancel();
+  }
+
+  /**
+   * This method is called when another entity stops overlapping this entity through a sensor pair.
+   *
+   * @param e other entity
+   */
+  public void sensorExit(BasicEntity e) {
+  }
+
   /**
    * Generate a selection in the input entity holder.
    *
@@ -587,6 +1004,131 @@ public class BasicEntity implements Serializable {
   public boolean isParent(BasicEntity entity) {
     return false;
   }
+
+  /**
+   * Is the entity asleep.
+   * <p>
+   * Sleeping entities have been at rest for a number of physics ticks. The physics engine doesn't
+   * move them and treats them as static until they are woken.
+   *
+   * @return true if the entity is asleep
+   */
+  public boolean isSleeping() {
+    return sleeping;
+  }
+
+  /**
+   * Put the entity to sleep, stopping it in place.
+   */
+  public void sleep() {
+    if (isCanSleep()) {
+      sleeping = true;
+      if (physicsStore != null) {
+        physicsStore.setVelocity(physicsHandle, 0, 0);
+      } else {
+        velocity = new Vector(0, 0);
+      }
+    }
+  }
+
+  /**
+   * Wake the entity up and reset its rest counter.
+   * <p>
+   * Called when the entity is moved, pushed or touched by a moving entity.
+   */
+  public void wake() {
+    if (sleeping) {
+      sleeping = false;
+      restTicks = 0;
+    }
+  }
+
+  /**
+   * Can the physics engine put the entity to sleep when it comes to rest.
+   *
+   * @return true if the entity can sleep
+   */
+  public boolean isCanSleep() {
+    return canSleep;
+  }
+
+  /**
+   * Set if the physics engine can put the entity to sleep, entities that can't sleep are woken.
+   *
+   * @param canSleep true if the entity can sleep
+   */
+  public void setCanSleep(boolean canSleep) {
+    this.canSleep = canSleep;
+    if (!canSleep) {
+      wake();
+    }
+  }
+
+  /**
+   * Get the number of physics ticks in a row the entity has been at rest.
+   *
+   * @return rest tick count
+   */
+  public int getRestTicks() {
+    return restTicks;
+  }
+
+  public void setRestTicks(int restTicks) {
+    this.restTicks = restTicks;
+  }
+
+  public PhysicsStore getPhysicsStore() {
+    return physicsStore;
+  }
+
+  /**
+   * Get the index of the entity in its physics store.
+   *
+   * @return physics handle, -1 if the entity isn't in a store
+   */
+  public int getPhysicsHandle() {
+    return physicsHandle;
+  }
+
+  /**
+   * Move the velocity and force of the entity into a slot of a physics store, or back into the
+   * entity when the store is null. Called by {@link PhysicsStore}, use {@link PhysicsStore#add}
+   * and {@link PhysicsStore#remove} instead.
+   *
+   * @param store  physics store, null to keep the state on the entity
+   * @param handle slot of the entity in the store
+   */
+  public void setPhysicsStore(PhysicsStore store, int handle) {
+    Vector v = storedVelocity();
+    Vector f = storedForce();
+
+    physicsStore = store;
+    physicsHandle = handle;
+
+    if (store == null) {
+      velocity = v;
+      force = f;
+    } else {
+      store.set(handle, v, f, invMass, getAirDrag());
+    }
+  }
+
+  /**
+   * Copy the velocity and force out of the physics store before writing the entity, the store
+   * isn't written with it. A read entity gets a new slot when it is added to a container.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    if (physicsStore != null) {
+      velocity = storedVelocity();
+      force = storedForce();
+    }
+    out.defaultWriteObject();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    physicsHandle = -1;
+  }
   //</editor-fold>
 
   //<editor-fold desc="Cycle Update Methods">
@@ -607,7 +1149,8 @@ public class BasicEntity implements Serializable {
    * @param t time delta
    */
   public void moveCycle(float t) {
-    addPosition(getLocalVelocity().scalei(t * 60));
+    float scale = t * 60;
+    addPosition(new Vector(getLocalVelocityX() * scale, getLocalVelocityY() * scale));
   }
   //</editor-fold>
 
@@ -137,7 +137,7 @@ public class CrateEntity extends Entity {
     getContainer().addEntity(ce4); // bottom left
     //ce4.setBreakable(true);
 
-    getContainer().getEntities().remove(this);
+    getContainer().removeEntity(this);
   }
 
   @Override
@@ -69,6 +69,7 @@ public class Entity extends BasicEntity {
   private Vector childPosition = null; // position offset applied to child entities
   private Vector childOffset = null; // position offset applied to child entities
   private boolean globalPosition = false; // flag that  when set to true, overrides parent offsets
+  private transient volatile WorldPosition worldPosition; // cached parent relative position
 
   // </editor-fold>
 
@@ -216,6 +217,7 @@ public class Entity extends BasicEntity {
     entity.constForce = constForce.clone();
     entity.constVelocity = constVelocity.clone();
     entity.globalPosition = globalPosition;
+    entity.invalidateWorldPosition();
 
     entity.spriteShift = spriteShift.clone();
 
@@ -275,23 +277,83 @@ public class Entity extends BasicEntity {
    */
   @Override
   public Vector getPosition() {
-    if (globalPosition) {
+    if (globalPosition || !hasParent()) {
       return super.getPosition();
-    } else if (hasParent()) {
-      Vector position = getParent().getPosition().addi(super.getPosition());
+    }
+
+    WorldPosition world = worldPosition;
+    if (world == null) {
+      Entity parent = getParent();
+      Vector parentPosition = parent.getPosition();
+      Vector local = super.getPosition();
+      float x = parentPosition.getX() + local.getX();
+      float y = parentPosition.getY() + local.getY();
       Vector offset;
 
-      if ((offset = getParent().getChildPosition()) != null) {
-        position = position.addi(offset);
+      if ((offset = parent.getChildPosition()) != null) {
+        x += offset.getX();
+        y += offset.getY();
       }
 
-      if ((offset = getParent().getChildOffset()) != null) {
-        position = position.addi(offset);
+      if ((offset = parent.getChildOffset()) != null) {
+        x += offset.getX();
+        y += offset.getY();
       }
 
-      return position;
-    } else {
-      return super.getPosition();
+      world = new WorldPosition(x, y);
+      worldPosition = world;
+    }
+
+    return new Vector(world.x, world.y);
+  }
+
+  /**
+   * Drop the cached positions of the entity and all of its children. Called when the position,
+   * parent or child offsets change, the positions are worked out again on their next use.
+   */
+  public void invalidateWorldPosition() {
+    worldPosition = null;
+    invalidateChildPositions();
+  }
+
+  private void invalidateChildPositions() {
+    if (children == null) {
+      // called from the BasicEntity constructor before the children exist
+      return;
+    }
+
+    for (int i = 0; i < children.size(); i++) {
+      Entity child = children.get(i);
+      // a child without a cached position has no cached children either
+      if (child.worldPosition != null) {
+        child.invalidateWorldPosition();
+      }
+    }
+  }
+
+  @Override
+  protected void positionChanged() {
+    invalidateWorldPosition();
+
+    // children move with their parents, let every container up the chain know
+    for (Entity entity = this; entity != null; entity = entity.parent) {
+      if (entity.container != null) {
+        entity.container.entityMoved();
+      }
+    }
+  }
+
+  /**
+   * World position of a child entity worked out from its parents. Immutable so worker threads
+   * reading the position never see half of an update.
+   */
+  private static final class WorldPosition {
+
+    final float x, y;
+
+    WorldPosition(float x, float y) {
+      this.x = x;
+      this.y = y;
     }
   }
 
@@ -546,6 +608,16 @@ public class Entity extends BasicEntity {
     return getParent() != null;
   }
 
+  /**
+   * Child entities move with their parents so they never sleep on their own.
+   *
+   * @return true if the entity can sleep
+   */
+  @Override
+  public boolean isCanSleep() {
+    return super.isCanSleep() && !hasParent();
+  }
+
   /**
    * If the input entity is the parent of the given entity.
    *
@@ -572,13 +644,16 @@ public class Entity extends BasicEntity {
   public void setParent(Entity n_parent) {
     if (parent != n_parent) {
       if (parent != null) {
-        parent.children.remove(n_parent);
+        parent.children.remove(this);
+        parent.childrenChanged();
       }
 
       parent = n_parent;
+      invalidateWorldPosition();
 
       if (n_parent != null) {
         n_parent.children.add(this);
+        n_parent.childrenChanged();
 
         if (n_parent.hasContainer()) {
           n_parent.getContainer().addEntity(this);
@@ -599,13 +674,16 @@ public class Entity extends BasicEntity {
    */
   public void addChild(Entity e) {
     if (!children.contains(e) && e != null) {
-      if (e.parent != null && parent != null) {
-        parent.children.remove(e);
+      if (e.parent != null) {
+        e.parent.children.remove(e);
+        e.parent.childrenChanged();
       }
 
       e.parent = this;
 
       children.add(e);
+      e.invalidateWorldPosition();
+      childrenChanged();
 
       if (hasContainer()) {
         getContainer().addEntity(e);
@@ -627,6 +705,8 @@ public class Entity extends BasicEntity {
     if (children.remove(e) && e != null) {
       children.remove(e);
       e.parent = null;
+      e.invalidateWorldPosition();
+      childrenChanged();
 
 //      if (hasContainer()) {
 //        getContainer().removeEntity(e);
@@ -647,6 +727,18 @@ public class Entity extends BasicEntity {
     }
   }
 
+  /**
+   * Let the containers of the entity and its parents know that the children changed, so rooms
+   * rebuild their entity lists.
+   */
+  private void childrenChanged() {
+    for (Entity entity = this; entity != null; entity = entity.parent) {
+      if (entity.container != null) {
+        entity.container.entitiesChanged();
+      }
+    }
+  }
+
   public void parentSet(Entity entity) {
 
   }
@@ -712,6 +804,7 @@ public class Entity extends BasicEntity {
 
   public void setChildPosition(Vector childPosition) {
     this.childPosition = childPosition;
+    invalidateChildPositions();
   }
 
   public Vector getChildOffset() {
@@ -720,6 +813,7 @@ public class Entity extends BasicEntity {
 
   public void setChildOffset(Vector childOffset) {
     this.childOffset = childOffset;
+    invalidateChildPositions();
   }
 
   public boolean hasGlobalPosition() {
@@ -728,6 +822,7 @@ public class Entity extends BasicEntity {
 
   public void setGlobalPosition(boolean globalPosition) {
     this.globalPosition = globalPosition;
+    invalidateWorldPosition();
   }
 
   /**
@@ -753,6 +848,16 @@ public class Entity extends BasicEntity {
     return super.getForce().addi(constForce);
   }
 
+  @Override
+  public float getForceX() {
+    return super.getForceX() + constForce.getX();
+  }
+
+  @Override
+  public float getForceY() {
+    return super.getForceY() + constForce.getY();
+  }
+
   /**
    * Set the force being applied to the entity.
    *
@@ -804,6 +909,26 @@ public class Entity extends BasicEntity {
     return super.getLocalVelocity().addi(constVelocity);
   }
 
+  @Override
+  public float getVelocityX() {
+    return hasParent() ? getLocalVelocityX() + getParent().getVelocityX() : getLocalVelocityX();
+  }
+
+  @Override
+  public float getVelocityY() {
+    return hasParent() ? getLocalVelocityY() + getParent().getVelocityY() : getLocalVelocityY();
+  }
+
+  @Override
+  public float getLocalVelocityX() {
+    return super.getLocalVelocityX() + constVelocity.getX();
+  }
+
+  @Override
+  public float getLocalVelocityY() {
+    return super.getLocalVelocityY() + constVelocity.getY();
+  }
+
 
   /**
    * Get the stored bounding box.
@@ -34,6 +34,7 @@ public class EntityArea extends Entity {
     super(g, new Vector(0.0f, 0.0f), s, 0.0f);
     setPhysics(false);
     setVisible(false);
+    setSensor(true);
     if (nFunction != null) {
       func = nFunction;
     }
@@ -72,6 +72,8 @@ public class Player extends NPC {
     interactArea.setCollides(false);
     interactArea.setInteractAll(true);
     addChild(interactArea);
+    // the player's collision callbacks drive its interactions, keep it awake
+    setCanSleep(false);
   }
 
   /**
@@ -212,11 +214,13 @@ public class Player extends NPC {
    * Add to the velocity of the entity. Checks if the player is moving and not frozen before adding
    * the velocity.
    *
-   * @param v the input vector
+   * @param x x velocity
+   * @param y y velocity
    */
-  public void addVelocity(Vector v) {
+  @Override
+  public void addVelocity(float x, float y) {
     if (!frozen && canMove) {
-      super.addVelocity(v);
+      super.addVelocity(x, y);
     }
   }
 
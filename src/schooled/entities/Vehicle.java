@@ -29,6 +29,7 @@ public class Vehicle extends EnterableEntity {
   private Sprite all, inside;
   public Shape tAreaShape = null, iAreaShape = null, iShape = null;
   private EntityArea tArea = null;
+  private BoundingBox broadBox = null, broadOuter = null, broadInner = null; // merged broad box
 
   public void updateLShapes() {
     if (hasShape("inside_shape")) {
@@ -146,6 +147,28 @@ public class Vehicle extends EnterableEntity {
     return super.getBoundingBox(entity);
   }
 
+  @Override
+  public BoundingBox getBroadBoundingBox() {
+    BoundingBox box = super.getBroadBoundingBox();
+    if (iShape == null || iShape.getBoundingBox() == null) {
+      return box;
+    }
+
+    BoundingBox inner = iShape.getBoundingBox();
+    if (box == null) {
+      return inner;
+    }
+
+    // only merge again when one of the boxes changed
+    if (box != broadOuter || inner != broadInner) {
+      broadBox = new BoundingBox(Math.max(box.xMax, inner.xMax), Math.max(box.yMax, inner.yMax),
+          Math.min(box.xMin, inner.xMin), Math.min(box.yMin, inner.yMin));
+      broadOuter = box;
+      broadInner = inner;
+    }
+    return broadBox;
+  }
+
   @Override
   public void updateCycle() {
     updateImage();
@@ -45,6 +45,7 @@ import schooled.menu.Message;
 import schooled.menu.TextBox;
 import schooled.menu.TextContext;
 import schooled.physics.Circle;
+import schooled.physics.ConvexDecomposition;
 import schooled.physics.MovementType;
 import schooled.physics.Mover;
 import schooled.physics.MultiShape;
@@ -1870,6 +1871,7 @@ public class DataLoader {
         for (String s : obj.getData()) {
           poly.addVertex((Vector) strToObj(s, lookup, game, flags));
         }
+        ConvexDecomposition.prepare(poly);
       }
 
       if (obj.getSize() == 1) {
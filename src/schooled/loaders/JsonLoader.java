@@ -20,6 +20,9 @@ import org.json.JSONObject;
 import schooled.Game;
 import schooled.audio.Sound;
 import schooled.containers.Room;
+import schooled.engines.ContactSolver;
+import schooled.engines.Engine;
+import schooled.engines.SequentialImpulseSolver;
 import schooled.entities.BasicEntity;
 import schooled.entities.BedEntity;
 import schooled.entities.ContainerEntity;
@@ -47,6 +50,7 @@ import schooled.menu.TextContext;
 import schooled.physics.AnimatedShape;
 import schooled.physics.BoundingBox;
 import schooled.physics.Circle;
+import schooled.physics.ConvexDecomposition;
 import schooled.physics.MovementType;
 import schooled.physics.Mover;
 import schooled.physics.MultiShape;
@@ -54,6 +58,7 @@ import schooled.physics.PolygonShape;
 import schooled.physics.Shape;
 import schooled.physics.StateShape;
 import schooled.physics.Vector;
+import schooled.physics.broadphase.Broadphase;
 import schooled.visuals.filters.AlphaFilter;
 import schooled.visuals.filters.GlitchFilter;
 import schooled.visuals.sprite.Animation;
@@ -826,6 +831,8 @@ public class JsonLoader {
 
       if (isKey(key, "physics")) {
         entity.setPhysics((Boolean) input);
+      } else if (isKey(key, "sensor")) {
+        entity.setSensor((Boolean) input);
       } else if (isKey(key, "shape")) {
         if (input instanceof Sprite) {
           entity.setShape(new PolygonShape(((Sprite) input).getSize()));
@@ -834,11 +841,38 @@ public class JsonLoader {
         }
       } else if (isKey(key, "name")) {
         entity.setName((String) input);
+      } else if (isKey(key, "category")) {
+        entity.setCollisionCategory(parseLayers(obj.get(key), input));
+      } else if (isKey(key, "mask")) {
+        entity.setCollisionMask(parseLayers(obj.get(key), input));
       }
     }
 
     return entity;
   }
+
+  /**
+   * Parse collision layers, either a bit field number or an array of layer numbers from 0 to 31.
+   * <p>
+   * [0, 2] and 5 are the same layers. Numbers can only hold the first 24 layers exactly, -1 is
+   * every layer.
+   *
+   * @param raw   unparsed JSON value, used to tell layer arrays from vectors
+   * @param input parsed value
+   * @return layer bits
+   */
+  private static int parseLayers(Object raw, Object input) {
+    if (raw instanceof JSONArray) {
+      JSONArray array = (JSONArray) raw;
+      int bits = 0;
+      for (int i = 0; i < array.length(); i++) {
+        bits |= 1 << array.getInt(i);
+      }
+      return bits;
+    }
+
+    return (int) (float) input;
+  }
   //</editor-fold>
 
   //<editor-fold desc="Event Parsing">
@@ -1152,6 +1186,41 @@ public class JsonLoader {
       return null;
     }
 
+    if (isKey(key, "setPhysicsWorkers")) {
+      // <>(float workers)
+      // run the collision narrowphase on a number of worker threads, 1 turns it off.
+
+      Engine.setNarrowphaseWorkers((int) (float) exData(cmd, 0, dStore));
+      return null;
+    }
+
+    if (isKey(key, "setContinuousCollision")) {
+      // <>(boolean on)
+      // stop fast entities at the time of impact with static entities instead of moving them
+      //  through thin walls.
+
+      Engine.CONTINUOUS_COLLISION = (Boolean) exData(cmd, 0, dStore);
+      return null;
+    }
+
+    if (isKey(key, "setFixedTimestep")) {
+      // <>(float rate)
+      // <>(float rate, float maxSteps)
+      // step the game logic and physics at a fixed rate, 0 steps once per frame.
+
+      float rate = (float) exData(cmd, 0, dStore);
+      Object maxSteps = exData(cmd, 1, dStore);
+
+      dStore.g.setFixedTimestep(rate > 0);
+      if (rate > 0) {
+        dStore.g.setPhysicsRate((int) rate);
+      }
+      if (maxSteps != null) {
+        dStore.g.setMaxPhysicsSteps((int) (float) maxSteps);
+      }
+      return null;
+    }
+
     if (isKey(key, "addRoom")) {
       Room loadedRoom = dStore.g.getWorld().getLoadedRoom();
       Room room = (Room) exData(cmd, 0, dStore);
@@ -1483,6 +1552,18 @@ public class JsonLoader {
       dStore.g.getWorld().getLoadedRoom().addEntity((Entity) exData(cmd, 0, dStore));
       return null;
     }
+
+    if (isKey(key, "entityAt")) {
+      // <>(Vector point)
+      // get the first entity of the loaded room whose shape contains the point, null if none
+
+      Entity[] found = new Entity[1];
+      dStore.g.getWorld().getLoadedRoom().queryPoint((Vector) exData(cmd, 0, dStore), e -> {
+        found[0] = e;
+        return false;
+      });
+      return found[0];
+    }
     //</editor-fold>
 
     //<editor-fold desc="General Entity">
@@ -1559,6 +1640,18 @@ public class JsonLoader {
       return null;
     }
 
+    if (isKey(key, "setCollisionLayers")) {
+      // <>(Entity entity, float category, float mask)
+      // <>(Entity entity, [layers] category, [layers] mask)
+      // set the collision layers an entity is on and the layers it collides with.
+
+      JSONArray arr = cmd.getJSONArray("data");
+      BasicEntity entity = (BasicEntity) exData(cmd, 0, dStore);
+      entity.setCollisionCategory(parseLayers(arr.get(1), exData(cmd, 1, dStore)));
+      entity.setCollisionMask(parseLayers(arr.get(2), exData(cmd, 2, dStore)));
+      return null;
+    }
+
     if (isKey(key, "lsprite")) {
       // set the current sprite
 
@@ -1998,7 +2091,9 @@ public class JsonLoader {
       if (verticies.isEmpty()) {
         return new PolygonShape(x, y);
       } else {
-        return new PolygonShape(verticies);
+        PolygonShape polygon = new PolygonShape(verticies);
+        ConvexDecomposition.prepare(polygon);
+        return polygon;
       }
     }
 
@@ -2153,12 +2248,48 @@ public class JsonLoader {
 
     if (isKey(key, "room")) {
       Room room = new Room(dStore.g);
+      String solver = null;
+      int iterations = -1;
+      int positionIterations = -1;
+      float correction = Float.NaN;
 
       for (String sub_key : obj.keySet()) {
         Object input = exData(obj.get(sub_key), dStore);
 
         if (isKey(key, "name")) {
           room.setName((String) input);
+        } else if (isKey(sub_key, "broadphase")) {
+          room.setBroadphase(Broadphase.fromName((String) input));
+        } else if (isKey(sub_key, "solver")) {
+          solver = (String) input;
+        } else if (isKey(sub_key, "solverIterations")) {
+          iterations = (int) (float) input;
+        } else if (isKey(sub_key, "solverPositionIterations")) {
+          positionIterations = (int) (float) input;
+        } else if (isKey(sub_key, "solverCorrection")) {
+          correction = (float) input;
+        }
+      }
+
+      // the solver settings only exist on the impulse solver, they pick it if no solver is named
+      //  and are ignored when another solver is named
+      boolean tuned = iterations > 0 || positionIterations >= 0 || !Float.isNaN(correction);
+      if (solver != null) {
+        room.setSolver(ContactSolver.fromName(solver));
+      } else if (tuned) {
+        room.setSolver(new SequentialImpulseSolver());
+      }
+
+      if (tuned && room.getSolver() instanceof SequentialImpulseSolver) {
+        SequentialImpulseSolver impulseSolver = (SequentialImpulseSolver) room.getSolver();
+        if (iterations > 0) {
+          impulseSolver.setIterations(iterations);
+        }
+        if (positionIterations >= 0) {
+          impulseSolver.setPositionIterations(positionIterations);
+        }
+        if (!Float.isNaN(correction)) {
+          impulseSolver.setCorrection(correction);
         }
       }
 
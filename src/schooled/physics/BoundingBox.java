@@ -74,11 +74,12 @@ public class BoundingBox implements Shape, Serializable {
       xMin = -((Circle) s).getRadius();
       yMin = -((Circle) s).getRadius();
     } else if (s instanceof PolygonShape) {
-      for (Vector v : ((PolygonShape) s).getVertices()) {
-        xMax = Math.max(v.getX(), xMax);
-        xMin = Math.min(v.getX(), xMin);
-        yMax = Math.max(v.getY(), yMax);
-        yMin = Math.min(v.getY(), yMin);
+      PolygonShape p = (PolygonShape) s;
+      for (int i = 0; i < p.getSize(); i++) {
+        xMax = Math.max(p.getX(i), xMax);
+        xMin = Math.min(p.getX(i), xMin);
+        yMax = Math.max(p.getY(i), yMax);
+        yMin = Math.min(p.getY(i), yMin);
       }
     } else if (s instanceof MultiShape) {
       for (int index = 0; index < ((MultiShape) s).size(); index++) {
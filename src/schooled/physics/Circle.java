@@ -15,6 +15,7 @@ public class Circle implements Shape, Serializable  {
 
   // circle data
   private float radius;
+  private int version = 0; // number of times the radius changed
   BoundingBox box;
 
   /**
@@ -80,6 +81,16 @@ public class Circle implements Shape, Serializable  {
    */
   public void setRadius(float radius) {
     this.radius = radius;
+    version++;
+  }
+
+  /**
+   * Get the number of times the radius has changed.
+   *
+   * @return radius version
+   */
+  public int getVersion() {
+    return version;
   }
 
 }
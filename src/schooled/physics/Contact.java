@@ -0,0 +1,217 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import schooled.entities.BasicEntity;
+
+/**
+ * Persistent collision data of an entity pair, kept by a {@link ContactCache} between ticks.
+ * <p>
+ * Stores the shapes and relative position the pair was last tested with and the manifolds the
+ * test produced. If the pair is tested again with the same shapes at the same relative position
+ * the stored manifolds are reused instead of running the shape collision tests. Only shapes that
+ * can't change on their own (circles, polygons and plain MultiShapes made of them) are reused,
+ * animated and state shapes are always re-tested. Shapes edited in place, like a polygon flipped
+ * by a script, are noticed through their version counters.
+ * <p>
+ * A contact is only touched by one thread at a time, the cache hands each pair to a single
+ * narrowphase call per tick.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class Contact {
+
+  BasicEntity a, b;
+  int stamp; // last tick the contact was used
+
+  private Shape shapeA = null, shapeB = null;
+  private int versionA, versionB; // shape versions the pair was tested with
+  private float dx, dy; // position of b relative to a
+  private boolean reusable = false;
+  private ArrayList<Manifold> manifolds = null; // last test result, null if the pair didn't touch
+  private final ArrayList<Manifold> stored = new ArrayList<>(); // reused by every test result
+  private final ManifoldPool storage = new ManifoldPool(); // copies of the last test result
+  private int age = 0; // number of ticks in a row the pair has been touching
+  boolean reused = false; // was the last result reused, reset when the cache hands out the contact
+
+  Contact(BasicEntity a, BasicEntity b) {
+    this.a = a;
+    this.b = b;
+  }
+
+  /**
+   * Hand the contact to a new entity pair, used by the cache to recycle dropped contacts along
+   * with their manifold storage.
+   *
+   * @param a entity a
+   * @param b entity b
+   */
+  void reset(BasicEntity a, BasicEntity b) {
+    this.a = a;
+    this.b = b;
+    shapeA = null;
+    shapeB = null;
+    invalidate();
+  }
+
+  /**
+   * Get the stored manifolds if the pair was last tested with the same shapes at the same relative
+   * position.
+   * <p>
+   * The returned manifolds are copies taken from the pool, the caller can modify them.
+   *
+   * @param sA   shape of entity a
+   * @param pA   position of entity a's shape
+   * @param sB   shape of entity b
+   * @param pB   position of entity b's shape
+   * @param pool pool the manifold copies are taken from
+   * @param out  list the manifold copies are added to
+   * @return true if the stored result was reused, false if the pair has to be tested
+   */
+  public boolean reuse(Shape sA, Vector pA, Shape sB, Vector pB, ManifoldPool pool,
+      ArrayList<Manifold> out) {
+    reused = reusable && sA == shapeA && sB == shapeB
+        && pB.getX() - pA.getX() == dx && pB.getY() - pA.getY() == dy
+        && version(sA) == versionA && version(sB) == versionB;
+
+    if (!reused) {
+      return false;
+    }
+
+    if (manifolds != null) {
+      for (int i = 0; i < manifolds.size(); i++) {
+        out.add(pool.obtain().set(manifolds.get(i)));
+      }
+      age++;
+    }
+    return true;
+  }
+
+  /**
+   * Store the result of a shape collision test.
+   *
+   * @param sA   shape of entity a
+   * @param pA   position of entity a's shape
+   * @param sB   shape of entity b
+   * @param pB   position of entity b's shape
+   * @param list manifolds produced by the test, null or empty if the pair didn't touch
+   */
+  public void store(Shape sA, Vector pA, Shape sB, Vector pB, ArrayList<Manifold> list) {
+    shapeA = sA;
+    shapeB = sB;
+    dx = pB.getX() - pA.getX();
+    dy = pB.getY() - pA.getY();
+    reusable = isRigid(sA) && isRigid(sB);
+    if (reusable) {
+      versionA = version(sA);
+      versionB = version(sB);
+    }
+
+    if (list == null || list.isEmpty()) {
+      manifolds = null;
+      age = 0;
+    } else {
+      // the copies are kept in the contact's own pool so storing doesn't create manifolds
+      storage.reset();
+      stored.clear();
+      for (int i = 0; i < list.size(); i++) {
+        stored.add(storage.obtain().set(list.get(i)));
+      }
+      manifolds = stored;
+      age++;
+    }
+  }
+
+  /**
+   * Forget the stored result, the next test of the pair runs the full shape tests.
+   */
+  public void invalidate() {
+    reusable = false;
+    manifolds = null;
+    age = 0;
+  }
+
+  /**
+   * Get the manifolds of the last test. These are the normals and depth vectors of the previous
+   * tick while the current tick is being tested.
+   *
+   * @return stored manifolds, null if the pair didn't touch
+   */
+  public ArrayList<Manifold> getManifolds() {
+    return manifolds;
+  }
+
+  public BasicEntity getA() {
+    return a;
+  }
+
+  public BasicEntity getB() {
+    return b;
+  }
+
+  /**
+   * Get the number of ticks in a row the pair has been touching.
+   *
+   * @return contact age
+   */
+  public int getAge() {
+    return age;
+  }
+
+  /**
+   * Was the last result reused instead of running the shape tests.
+   *
+   * @return true if reused
+   */
+  public boolean isReused() {
+    return reused;
+  }
+
+  /**
+   * Get the version of a rigid shape. Versions only count up, so the sum over a MultiShape and its
+   * shapes changes whenever any of them changes.
+   *
+   * @param shape rigid shape
+   * @return shape version
+   */
+  static int version(Shape shape) {
+    if (shape instanceof PolygonShape) {
+      return ((PolygonShape) shape).getVersion();
+    } else if (shape instanceof Circle) {
+      return ((Circle) shape).getVersion();
+    } else if (shape instanceof MultiShape) {
+      MultiShape ms = (MultiShape) shape;
+      int version = ms.getVersion();
+      for (int i = 0; i < ms.size(); i++) {
+        version += version(ms.getShape(i));
+      }
+      return version;
+    }
+    return 0;
+  }
+
+  /**
+   * Can a shape's collision result be reused when it hasn't moved.
+   *
+   * @param shape shape
+   * @return true if the shape can't change without being replaced
+   */
+  static boolean isRigid(Shape shape) {
+    if (shape instanceof Circle || shape instanceof PolygonShape) {
+      return true;
+    }
+
+    if (shape != null && shape.getClass() == MultiShape.class) {
+      MultiShape ms = (MultiShape) shape;
+      for (int i = 0; i < ms.size(); i++) {
+        if (!isRigid(ms.getShape(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    return false;
+  }
+}
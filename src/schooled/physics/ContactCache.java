@@ -0,0 +1,168 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import schooled.entities.BasicEntity;
+
+/**
+ * Cache of {@link Contact} objects indexed by entity pair that survives between physics ticks.
+ * <p>
+ * The physics engine asks the cache for the contact of every candidate pair each tick. Contacts
+ * of pairs that were not asked for during a tick are dropped at the end of the tick with
+ * {@link #sweep()}. Pairs are ordered, (a, b) and (b, a) are different contacts since the
+ * collision tests produce manifolds relative to entity a.
+ * <p>
+ * Dropped contacts are kept and handed to new pairs, so a scene whose pairs keep changing doesn't
+ * keep creating contacts and manifold copies.
+ * <p>
+ * The cache itself is not thread safe and is only used from the game thread, the contacts it hands
+ * out can be filled in by worker threads.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class ContactCache {
+
+  private final HashMap<PairKey, Contact> contacts = new HashMap<>();
+  private final ArrayList<Contact> free = new ArrayList<>(); // dropped contacts
+  private final PairKey probe = new PairKey(null, null);
+  private int stamp = 0;
+
+  // statistics of the last tick
+  private int reused = 0, tested = 0;
+
+  /**
+   * Get the contact of an entity pair, creating it if the pair has no contact yet. Marks the
+   * contact as used this tick.
+   *
+   * @param a entity a
+   * @param b entity b
+   * @return contact
+   */
+  public Contact get(BasicEntity a, BasicEntity b) {
+    probe.a = a;
+    probe.b = b;
+    Contact contact = contacts.get(probe);
+
+    if (contact == null) {
+      if (free.isEmpty()) {
+        contact = new Contact(a, b);
+      } else {
+        contact = free.remove(free.size() - 1);
+        contact.reset(a, b);
+      }
+      contacts.put(new PairKey(a, b), contact);
+    }
+
+    contact.stamp = stamp;
+    contact.reused = false;
+    return contact;
+  }
+
+  /**
+   * End a tick, dropping the contacts that were not used during the tick.
+   */
+  public void sweep() {
+    reused = 0;
+    tested = 0;
+
+    Iterator<Contact> it = contacts.values().iterator();
+    while (it.hasNext()) {
+      Contact contact = it.next();
+      if (contact.stamp != stamp) {
+        it.remove();
+        drop(contact);
+      } else if (contact.isReused()) {
+        reused++;
+      } else {
+        tested++;
+      }
+    }
+
+    stamp++;
+  }
+
+  /**
+   * Drop all the contacts, used when shapes are changed in place.
+   */
+  public void clear() {
+    for (Contact contact : contacts.values()) {
+      drop(contact);
+    }
+    contacts.clear();
+  }
+
+  /**
+   * Drop all the contacts of an entity.
+   *
+   * @param entity entity
+   */
+  public void remove(BasicEntity entity) {
+    contacts.values().removeIf(contact -> {
+      if (contact.a == entity || contact.b == entity) {
+        drop(contact);
+        return true;
+      }
+      return false;
+    });
+  }
+
+  /**
+   * Keep a removed contact for a later pair, the contact lets go of its entities.
+   */
+  private void drop(Contact contact) {
+    contact.reset(null, null);
+    free.add(contact);
+  }
+
+  public int size() {
+    return contacts.size();
+  }
+
+  /**
+   * Get the number of pairs that reused their stored result during the last tick.
+   *
+   * @return reused pair count
+   */
+  public int getReused() {
+    return reused;
+  }
+
+  /**
+   * Get the number of pairs that ran the shape tests during the last tick.
+   *
+   * @return tested pair count
+   */
+  public int getTested() {
+    return tested;
+  }
+
+  /**
+   * Ordered entity pair compared by reference.
+   */
+  private static class PairKey {
+
+    BasicEntity a, b;
+
+    PairKey(BasicEntity a, BasicEntity b) {
+      this.a = a;
+      this.b = b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PairKey)) {
+        return false;
+      }
+      PairKey k = (PairKey) o;
+      return a == k.a && b == k.b;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(a) * 31 + System.identityHashCode(b);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+
+/**
+ * Splits concave polygons into convex pieces so they can be tested with the separating axis
+ * collision test.
+ * <p>
+ * The polygon is cut into triangles by clipping ears, then neighbouring pieces are merged back
+ * together as long as the merged piece stays convex, which doesn't always find the fewest pieces.
+ * The pieces keep the vertex order of the polygon, so they are clockwise like it, and each piece
+ * points back at the polygon it was cut from through {@link PolygonShape#getSource()}.
+ * <p>
+ * Decomposing is meant for load time, it is run once per polygon and the pieces are kept by the
+ * polygon until its vertices change.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class ConvexDecomposition {
+
+  private ConvexDecomposition() {
+  }
+
+  /**
+   * Split the concave polygons of a shape into convex pieces ahead of time, so it doesn't happen
+   * on the first collision. Polygons inside of MultiShapes are split as well.
+   *
+   * @param shape shape to prepare
+   */
+  public static void prepare(Shape shape) {
+    if (shape instanceof PolygonShape) {
+      ((PolygonShape) shape).getConvexPieces();
+    } else if (shape instanceof MultiShape) {
+      MultiShape multiShape = (MultiShape) shape;
+      for (int i = 0; i < multiShape.size(); i++) {
+        prepare(multiShape.getShape(i));
+      }
+    }
+  }
+
+  /**
+   * Split a polygon into convex pieces.
+   *
+   * @param polygon clockwise polygon
+   * @return convex pieces, null if the polygon is counter clockwise or crosses itself
+   */
+  public static PolygonShape[] decompose(PolygonShape polygon) {
+    int size = polygon.getSize();
+    if (size < 3 || area(polygon) >= 0) {
+      return null;
+    }
+
+    ArrayList<int[]> pieces = triangulate(polygon);
+    if (pieces == null) {
+      return null;
+    }
+    merge(polygon, pieces);
+
+    PolygonShape[] shapes = new PolygonShape[pieces.size()];
+    for (int i = 0; i < shapes.length; i++) {
+      ArrayList<Vector> vertices = new ArrayList<>();
+      for (int index : pieces.get(i)) {
+        vertices.add(polygon.getVertex(index));
+      }
+
+      PolygonShape piece = new PolygonShape(vertices);
+      if (!piece.isConvex()) {
+        return null;
+      }
+      piece.setSource(polygon);
+      shapes[i] = piece;
+    }
+
+    return shapes;
+  }
+
+  /**
+   * Twice the signed area of a polygon, negative for clockwise polygons.
+   */
+  private static float area(PolygonShape p) {
+    float area = 0;
+    for (int i = 0; i < p.getSize(); i++) {
+      int j = (i + 1) % p.getSize();
+      area += p.getX(i) * p.getY(j) - p.getX(j) * p.getY(i);
+    }
+    return area;
+  }
+
+  /**
+   * The turn from edge ab to edge bc, negative for a clockwise (convex) corner.
+   */
+  private static float turn(PolygonShape p, int a, int b, int c) {
+    return (p.getX(b) - p.getX(a)) * (p.getY(c) - p.getY(b))
+        - (p.getY(b) - p.getY(a)) * (p.getX(c) - p.getX(b));
+  }
+
+  /**
+   * Cut the polygon into triangles by clipping ears, corners that turn clockwise and have no other
+   * vertex inside of them.
+   *
+   * @return triangles as vertex indices, null if no ear can be found
+   */
+  private static ArrayList<int[]> triangulate(PolygonShape p) {
+    ArrayList<int[]> triangles = new ArrayList<>();
+
+    int count = p.getSize();
+    int[] ring = new int[count];
+    for (int i = 0; i < count; i++) {
+      ring[i] = i;
+    }
+
+    while (count > 3) {
+      boolean clipped = false;
+
+      for (int k = 0; k < count && !clipped; k++) {
+        int a = ring[(k + count - 1) % count];
+        int b = ring[k];
+        int c = ring[(k + 1) % count];
+        float turn = turn(p, a, b, c);
+
+        if (turn == 0) {
+          // a vertex in the middle of a straight edge adds nothing, a vertex that doubles back
+          //  on its edge is a spike that can't be cut
+          if ((p.getX(b) - p.getX(a)) * (p.getX(c) - p.getX(b))
+              + (p.getY(b) - p.getY(a)) * (p.getY(c) - p.getY(b)) < 0) {
+            return null;
+          }
+        } else if (turn > 0 || containsVertex(p, ring, count, a, b, c)) {
+          continue;
+        } else {
+          triangles.add(new int[]{a, b, c});
+        }
+
+        System.arraycopy(ring, k + 1, ring, k, count - k - 1);
+        count--;
+        clipped = true;
+      }
+
+      // every corner turns the wrong way or holds a vertex, the polygon crosses itself
+      if (!clipped) {
+        return null;
+      }
+    }
+
+    float turn = turn(p, ring[0], ring[1], ring[2]);
+    if (turn > 0) {
+      return null;
+    } else if (turn < 0) {
+      triangles.add(new int[]{ring[0], ring[1], ring[2]});
+    }
+
+    return triangles;
+  }
+
+  /**
+   * Does any remaining vertex lie inside or on the edge of the triangle abc.
+   */
+  private static boolean containsVertex(PolygonShape p, int[] ring, int count,
+      int a, int b, int c) {
+    for (int i = 0; i < count; i++) {
+      int v = ring[i];
+      if (v == a || v == b || v == c || samePoint(p, v, a) || samePoint(p, v, b)
+          || samePoint(p, v, c)) {
+        continue;
+      }
+
+      if (turn(p, a, b, v) <= 0 && turn(p, b, c, v) <= 0 && turn(p, c, a, v) <= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean samePoint(PolygonShape p, int a, int b) {
+    return p.getX(a) == p.getX(b) && p.getY(a) == p.getY(b);
+  }
+
+  /**
+   * Merge pieces that share an edge while the merged piece stays convex.
+   */
+  private static void merge(PolygonShape p, ArrayList<int[]> pieces) {
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+
+      for (int i = 0; i < pieces.size() && !merged; i++) {
+        for (int j = i + 1; j < pieces.size() && !merged; j++) {
+          int[] joined = join(pieces.get(i), pieces.get(j));
+          if (joined != null && isConvex(p, joined)) {
+            pieces.set(i, joined);
+            pieces.remove(j);
+            merged = true;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Join two pieces along a shared edge. Piece a has the edge from u to v and piece b runs the
+   * other way from v to u, the edge is replaced by the rest of piece b.
+   *
+   * @return joined piece, null if the pieces don't share an edge
+   */
+  private static int[] join(int[] a, int[] b) {
+    for (int i = 0; i < a.length; i++) {
+      int u = a[i];
+      int v = a[(i + 1) % a.length];
+
+      for (int j = 0; j < b.length; j++) {
+        if (b[j] != v || b[(j + 1) % b.length] != u) {
+          continue;
+        }
+
+        int[] joined = new int[a.length + b.length - 2];
+        int n = 0;
+        // piece a from v around to u
+        for (int k = 0; k < a.length; k++) {
+          joined[n++] = a[(i + 1 + k) % a.length];
+        }
+        // piece b between u and v
+        for (int k = 2; k < b.length; k++) {
+          joined[n++] = b[(j + k) % b.length];
+        }
+        return joined;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isConvex(PolygonShape p, int[] piece) {
+    for (int i = 0; i < piece.length; i++) {
+      if (turn(p, piece[i], piece[(i + 1) % piece.length], piece[(i + 2) % piece.length]) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
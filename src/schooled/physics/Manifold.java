@@ -1,6 +1,7 @@
 package schooled.physics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import schooled.entities.BasicEntity;
 import schooled.entities.Entity;
 
@@ -12,6 +13,12 @@ import schooled.entities.Entity;
  * a: entity a
  * b: entity b </pre>
  * Normals are usually pointing from a to b.
+ * <p>
+ * The contacts are stored as floats, room for {@link #CAPACITY} contacts is made when the manifold
+ * is created and only grows for shapes that produce more. The normals and vectors lists are a view
+ * of the stored contacts kept in register vectors owned by the manifold, they are rebuilt when a
+ * contact is added and should only be read. Manifolds handed out by a {@link ManifoldPool} are
+ * reused, they are only valid until the pool is reset.
  * <p></p>
  * Program written by Joseph Straceski
  * <p>
@@ -19,9 +26,17 @@ import schooled.entities.Entity;
  */
 public class Manifold {
 
+  // number of contacts a manifold has room for when created
+  public static final int CAPACITY = 4;
+
+  // contact data, normal x, normal y, depth x and depth y of each contact
+  private float[] contacts = new float[CAPACITY * 4];
+  private int count = 0;
+  private Vector[] registers = new Vector[CAPACITY * 2];
+
   // manifold data
-  public ArrayList<Vector> normals = new ArrayList<>();
-  public ArrayList<Vector> vectors = new ArrayList<>();
+  public ArrayList<Vector> normals = new ArrayList<>(CAPACITY);
+  public ArrayList<Vector> vectors = new ArrayList<>(CAPACITY);
   public BasicEntity a = null, b = null;
   public int aEulerCount = 0, bEulerCount = 0;
 
@@ -29,8 +44,118 @@ public class Manifold {
    * Empty constructor.
    */
   public Manifold() {
+    for (int i = 0; i < registers.length; i++) {
+      registers[i] = new Vector(0, 0);
+    }
+  }
+
+  /**
+   * Add a contact with a normal and a penetration depth along the normal.
+   *
+   * @param normal collision normal
+   * @param depth  penetration depth
+   */
+  public void addContact(Vector normal, float depth) {
+    addContact(normal.getX(), normal.getY(), normal.getX() * depth, normal.getY() * depth);
+  }
+
+  /**
+   * Add a contact with a normal and a penetration vector.
+   *
+   * @param nx normal x
+   * @param ny normal y
+   * @param dx penetration x
+   * @param dy penetration y
+   */
+  public void addContact(float nx, float ny, float dx, float dy) {
+    if (count == registers.length / 2) {
+      grow(count * 2);
+    }
+
+    int i = count * 4;
+    contacts[i] = nx;
+    contacts[i + 1] = ny;
+    contacts[i + 2] = dx;
+    contacts[i + 3] = dy;
+
+    normals.add(registers[count * 2].set(nx, ny));
+    vectors.add(registers[count * 2 + 1].set(dx, dy));
+    count++;
+  }
+
+  /**
+   * Empty the manifold so it can be filled again.
+   */
+  public void clear() {
+    count = 0;
+    normals.clear();
+    vectors.clear();
+    a = null;
+    b = null;
+    aEulerCount = 0;
+    bEulerCount = 0;
+  }
+
+  /**
+   * Copy the contacts and entities of another manifold into this one.
+   *
+   * @param m manifold
+   * @return this
+   */
+  public Manifold set(Manifold m) {
+    clear();
+    for (int i = 0; i < m.count; i++) {
+      int j = i * 4;
+      addContact(m.contacts[j], m.contacts[j + 1], m.contacts[j + 2], m.contacts[j + 3]);
+    }
+    a = m.a;
+    b = m.b;
+    aEulerCount = m.aEulerCount;
+    bEulerCount = m.bEulerCount;
+    return this;
+  }
+
+  /**
+   * Create a copy of the manifold with its own normal and depth vectors.
+   *
+   * @return manifold copy
+   */
+  public Manifold copy() {
+    return new Manifold().set(this);
+  }
+
+  private void grow(int capacity) {
+    contacts = Arrays.copyOf(contacts, capacity * 4);
+    int old = registers.length;
+    registers = Arrays.copyOf(registers, capacity * 2);
+    for (int i = old; i < registers.length; i++) {
+      registers[i] = new Vector(0, 0);
+    }
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="Getters">
+
+  public int getContactCount() {
+    return count;
+  }
+
+  public float getNormalX(int i) {
+    return contacts[i * 4];
+  }
+
+  public float getNormalY(int i) {
+    return contacts[i * 4 + 1];
+  }
+
+  public float getDepthX(int i) {
+    return contacts[i * 4 + 2];
+  }
+
+  public float getDepthY(int i) {
+    return contacts[i * 4 + 3];
   }
 
+  // </editor-fold>
 
   @Override
   public String toString() {
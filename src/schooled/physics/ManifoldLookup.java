@@ -0,0 +1,133 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import schooled.entities.BasicEntity;
+
+/**
+ * Lookup table of the collision manifolds touching each entity, indexed by a dense solver id.
+ * <p>
+ * Building the lookup numbers the entities of a manifold list in the order they first appear and
+ * stores the number in {@link BasicEntity#solverId}. Lookups are then array reads instead of
+ * identity hashes. The id of an entity is only valid for the lookup that assigned it, an entity is
+ * checked against the table before its id is trusted, so stale ids from other lookups are ignored.
+ * <p>
+ * The lists and arrays are kept when the lookup is rebuilt, a lookup reused every tick doesn't
+ * allocate once it has grown to the size of the scene.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class ManifoldLookup {
+
+  private BasicEntity[] entities = new BasicEntity[64];
+  private ArrayList<?>[] lists = new ArrayList<?>[64];
+  private int size = 0;
+
+  /**
+   * Rebuild the lookup from a list of manifolds.
+   *
+   * @param manifolds list of collision manifolds
+   */
+  public void build(List<Manifold> manifolds) {
+    clear();
+
+    for (Manifold manifold : manifolds) {
+      get(add(manifold.a)).add(manifold);
+      get(add(manifold.b)).add(manifold);
+    }
+  }
+
+  /**
+   * Empty the lookup, the manifold lists are cleared and kept for the next build.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      entities[i] = null;
+      lists[i].clear();
+    }
+    size = 0;
+  }
+
+  /**
+   * Get the id of an entity, adding the entity if it isn't in the lookup yet.
+   */
+  private int add(BasicEntity entity) {
+    int id = getId(entity);
+    if (id != -1) {
+      return id;
+    }
+
+    if (size == entities.length) {
+      entities = Arrays.copyOf(entities, size * 2);
+      lists = Arrays.copyOf(lists, size * 2);
+    }
+
+    if (lists[size] == null) {
+      lists[size] = new ArrayList<Manifold>();
+    }
+
+    entities[size] = entity;
+    entity.solverId = size;
+    return size++;
+  }
+
+  /**
+   * Get the solver id of an entity.
+   *
+   * @param entity entity
+   * @return id, -1 if the entity has no manifolds in the lookup
+   */
+  public int getId(BasicEntity entity) {
+    int id = entity.solverId;
+    if (id >= 0 && id < size && entities[id] == entity) {
+      return id;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the manifolds touching an entity.
+   *
+   * @param entity entity
+   * @return list of manifolds, null if the entity has none
+   */
+  public ArrayList<Manifold> get(BasicEntity entity) {
+    int id = getId(entity);
+    return id == -1 ? null : get(id);
+  }
+
+  /**
+   * Get the manifolds touching the entity with a solver id.
+   *
+   * @param id solver id
+   * @return list of manifolds
+   */
+  @SuppressWarnings("unchecked")
+  public ArrayList<Manifold> get(int id) {
+    return (ArrayList<Manifold>) lists[id];
+  }
+
+  public boolean containsKey(BasicEntity entity) {
+    return getId(entity) != -1;
+  }
+
+  public BasicEntity getEntity(int id) {
+    return entities[id];
+  }
+
+  /**
+   * Get the entities in the lookup in id order.
+   *
+   * @return list view of the entities
+   */
+  public List<BasicEntity> getEntities() {
+    return Arrays.asList(entities).subList(0, size);
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,84 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+
+/**
+ * A pool of reusable collision manifolds.
+ * <p>
+ * Manifolds are handed out in order and all of them are taken back at once when the pool is reset,
+ * so once the pool has grown to the number of contacts in a scene no manifolds are created. The
+ * physics engine resets its pool at the start of every processing tick. Manifolds taken from a
+ * pool must not be kept past the next reset.
+ * <p>
+ * A pool is not thread safe, every thread filling manifolds needs its own pool.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class ManifoldPool {
+
+  private final ArrayList<Manifold> manifolds = new ArrayList<>();
+  private int size = 0;
+
+  /**
+   * Take an empty manifold from the pool.
+   *
+   * @return empty manifold
+   */
+  public Manifold obtain() {
+    if (size == manifolds.size()) {
+      manifolds.add(new Manifold());
+    }
+
+    Manifold m = manifolds.get(size++);
+    m.clear();
+    return m;
+  }
+
+  /**
+   * Give back the last manifold taken from the pool, used when a collision test didn't produce a
+   * collision.
+   *
+   * @param m last manifold taken
+   */
+  public void release(Manifold m) {
+    if (size > 0 && manifolds.get(size - 1) == m) {
+      size--;
+    }
+  }
+
+  /**
+   * Give back every manifold taken after a mark.
+   *
+   * @param mark pool size returned by {@link #size()}
+   */
+  public void rewind(int mark) {
+    size = Math.min(size, mark);
+  }
+
+  /**
+   * Take back every manifold.
+   */
+  public void reset() {
+    size = 0;
+  }
+
+  /**
+   * Get the number of manifolds handed out since the last reset.
+   *
+   * @return manifold count
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the number of manifolds the pool has created.
+   *
+   * @return capacity
+   */
+  public int capacity() {
+    return manifolds.size();
+  }
+}
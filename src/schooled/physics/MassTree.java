@@ -103,6 +103,82 @@ public class MassTree implements Serializable {
   public ArrayList<MassTree> revChildren = new ArrayList<>();
   public ArrayList<MassTree> hitChildren = null;
 
+  // lists owned by the tree, kept when the tree is reused by a MassTreeArena
+  private final ArrayList<Vector> ownNormals = normals;
+  private final ArrayList<Float> ownWeights = weights;
+  private final ArrayList<Vector> ownTmpZeros = tmpZeros;
+  private final ArrayList<MassTree> ownChildren = children;
+  private final ArrayList<Integer> ownCIdx = cIdx;
+  private final ArrayList<MassTree> ownLEnds = lEnds;
+  private final ArrayList<MassTree> ownRevChildren = revChildren;
+  private final ArrayList<MassTree> hitStorage = new ArrayList<>();
+  private final ArrayList<Integer> tcStorage = new ArrayList<>();
+
+  /**
+   * Return the tree to the state of a new tree, the owned lists are cleared and kept.
+   */
+  public void reset() {
+    iMass = -1.0f;
+    changed = false;
+    inNormal = null;
+    customIn = null;
+    zeroNormal = null;
+    revIdx = -1;
+    revRemove = false;
+    eScalar = 1.0f;
+    rNormal = null;
+    divScalar = 1;
+    oNormalTotal = null;
+    outNormal = null;
+    entity = null;
+    hitIdx = -1;
+    always = false;
+    hCount = 0;
+    parent = null;
+
+    normals = ownNormals;
+    weights = ownWeights;
+    tmpZeros = ownTmpZeros;
+    children = ownChildren;
+    cIdx = ownCIdx;
+    lEnds = ownLEnds;
+    revChildren = ownRevChildren;
+    normals.clear();
+    weights.clear();
+    tmpZeros.clear();
+    children.clear();
+    cIdx.clear();
+    lEnds.clear();
+    revChildren.clear();
+
+    hitChildren = null;
+    tcIdx = null;
+    hitStorage.clear();
+    tcStorage.clear();
+  }
+
+  /**
+   * Get the empty hit child list owned by the tree, filled by the solver before it is set as
+   * {@link #hitChildren}.
+   *
+   * @return empty list
+   */
+  public ArrayList<MassTree> hitStorage() {
+    hitStorage.clear();
+    return hitStorage;
+  }
+
+  /**
+   * Get the empty hit child index list owned by the tree, filled by the solver before it is set as
+   * {@link #tcIdx}.
+   *
+   * @return empty list
+   */
+  public ArrayList<Integer> tcStorage() {
+    tcStorage.clear();
+    return tcStorage;
+  }
+
   public static int limit = -1;
   public static int count = 0;
 
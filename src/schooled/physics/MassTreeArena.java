@@ -0,0 +1,200 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import schooled.entities.BasicEntity;
+
+/**
+ * Per tick storage of the MassTrees and scratch lists built by the mass propagation solver.
+ * <p>
+ * Trees and lists are handed out in order and all of them are taken back when the arena is reset,
+ * a reused tree keeps its child lists so once the arena has grown to the size of a scene the
+ * solver stops creating them. The arena is owned by a {@link MassTreeTable} and reset with it at
+ * the start of every solve, trees taken from it must not be kept past the reset.
+ * <p>
+ * An arena is not thread safe, every solving thread has its own.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class MassTreeArena {
+
+  private final ArrayList<MassTree> trees = new ArrayList<>();
+  private int treeCount = 0;
+
+  private final ArrayList<ArrayList<MassTree>> treeLists = new ArrayList<>();
+  private int treeListCount = 0;
+
+  private final ArrayList<ArrayList<BasicEntity>> entityLists = new ArrayList<>();
+  private int entityListCount = 0;
+
+  private final ArrayList<ArrayList<Vector>> vectorLists = new ArrayList<>();
+  private int vectorListCount = 0;
+
+  private int[] indices = new int[64];
+
+  /**
+   * Take back every tree and list.
+   */
+  public void reset() {
+    treeCount = 0;
+    treeListCount = 0;
+    entityListCount = 0;
+    vectorListCount = 0;
+  }
+
+  /**
+   * Take an empty tree from the arena.
+   *
+   * @return empty tree
+   */
+  public MassTree obtain() {
+    if (treeCount == trees.size()) {
+      trees.add(new MassTree());
+    }
+
+    MassTree tree = trees.get(treeCount++);
+    tree.reset();
+    return tree;
+  }
+
+  /**
+   * Take a hollow tree, a tree with only an entity and a collision normal.
+   *
+   * @param entity   entity
+   * @param inNormal collision normal
+   * @return hollow tree
+   */
+  public MassTree obtain(BasicEntity entity, Vector inNormal) {
+    MassTree tree = obtain();
+    tree.entity = entity;
+    tree.inNormal = inNormal;
+    return tree;
+  }
+
+  /**
+   * Take a tree with only an inverse mass.
+   *
+   * @param iMass inverse mass
+   * @return tree
+   */
+  public MassTree obtain(float iMass) {
+    MassTree tree = obtain();
+    tree.iMass = iMass;
+    return tree;
+  }
+
+  /**
+   * Take an end tree, used when a collision normal runs into an immovable mass.
+   *
+   * @param iMass  inverse mass
+   * @param in     input normal
+   * @param r      response normal
+   * @param always is the end fixed regardless of the path to it
+   * @return end tree
+   */
+  public MassTree obtain(float iMass, Vector in, Vector r, boolean always) {
+    MassTree tree = obtain();
+    tree.inNormal = in;
+    tree.iMass = iMass;
+    tree.rNormal = r;
+    tree.always = always;
+    return tree;
+  }
+
+  /**
+   * Take an empty tree list.
+   *
+   * @return empty list
+   */
+  public ArrayList<MassTree> treeList() {
+    if (treeListCount == treeLists.size()) {
+      treeLists.add(new ArrayList<>());
+    }
+
+    ArrayList<MassTree> list = treeLists.get(treeListCount++);
+    list.clear();
+    return list;
+  }
+
+  /**
+   * Take a tree list holding a copy of a collection.
+   *
+   * @param source trees to copy
+   * @return list copy
+   */
+  public ArrayList<MassTree> treeList(Collection<MassTree> source) {
+    ArrayList<MassTree> list = treeList();
+    list.addAll(source);
+    return list;
+  }
+
+  /**
+   * Take an empty entity list.
+   *
+   * @return empty list
+   */
+  public ArrayList<BasicEntity> entityList() {
+    if (entityListCount == entityLists.size()) {
+      entityLists.add(new ArrayList<>());
+    }
+
+    ArrayList<BasicEntity> list = entityLists.get(entityListCount++);
+    list.clear();
+    return list;
+  }
+
+  /**
+   * Take an entity list holding a copy of a collection.
+   *
+   * @param source entities to copy
+   * @return list copy
+   */
+  public ArrayList<BasicEntity> entityList(Collection<BasicEntity> source) {
+    ArrayList<BasicEntity> list = entityList();
+    list.addAll(source);
+    return list;
+  }
+
+  /**
+   * Take a vector list holding a copy of a collection.
+   *
+   * @param source vectors to copy
+   * @return list copy
+   */
+  public ArrayList<Vector> vectorList(Collection<Vector> source) {
+    if (vectorListCount == vectorLists.size()) {
+      vectorLists.add(new ArrayList<>());
+    }
+
+    ArrayList<Vector> list = vectorLists.get(vectorListCount++);
+    list.clear();
+    list.addAll(source);
+    return list;
+  }
+
+  /**
+   * Get a scratch index array with room for a number of indices. The array is shared, it is only
+   * valid until the next call.
+   *
+   * @param capacity required length
+   * @return index array
+   */
+  public int[] indices(int capacity) {
+    if (indices.length < capacity) {
+      indices = Arrays.copyOf(indices, Math.max(capacity, indices.length * 2));
+    }
+    return indices;
+  }
+
+  /**
+   * Get the number of trees handed out since the last reset.
+   *
+   * @return tree count
+   */
+  public int size() {
+    return treeCount;
+  }
+}
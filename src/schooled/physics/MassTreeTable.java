@@ -0,0 +1,113 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import schooled.entities.BasicEntity;
+
+/**
+ * The MassTrees calculated for each entity during a solve, indexed by the solver ids of a
+ * {@link ManifoldLookup}.
+ * <p>
+ * Only the slots that were filled are cleared when the table is reset, so one table can be reused
+ * for every island of a tick. Entities without a solver id are kept in a short side list.
+ * <p>
+ * The table owns the {@link MassTreeArena} its trees are taken from, resetting the table resets
+ * the arena.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class MassTreeTable {
+
+  private final MassTreeArena arena = new MassTreeArena();
+  private ManifoldLookup lookup = null;
+  private ArrayList<?>[] lists = new ArrayList<?>[64];
+  private int[] used = new int[64]; // filled slots
+  private int usedCount = 0;
+
+  // entities outside of the lookup
+  private final ArrayList<BasicEntity> otherEntities = new ArrayList<>();
+  private final ArrayList<ArrayList<MassTree>> otherLists = new ArrayList<>();
+
+  /**
+   * Empty the table and index it by a manifold lookup. Takes back every tree of the arena.
+   *
+   * @param mLookup manifold lookup, can be null
+   */
+  public void reset(ManifoldLookup mLookup) {
+    arena.reset();
+
+    for (int i = 0; i < usedCount; i++) {
+      lists[used[i]].clear();
+    }
+    usedCount = 0;
+    otherEntities.clear();
+    otherLists.clear();
+
+    lookup = mLookup;
+    if (lookup != null && lists.length < lookup.size()) {
+      lists = Arrays.copyOf(lists, lookup.size() * 2);
+    }
+  }
+
+  /**
+   * Get the MassTrees of an entity.
+   *
+   * @param entity entity
+   * @return list of MassTrees, null if the entity has none
+   */
+  @SuppressWarnings("unchecked")
+  public ArrayList<MassTree> get(BasicEntity entity) {
+    int id = lookup == null ? -1 : lookup.getId(entity);
+    if (id == -1) {
+      int idx = otherEntities.indexOf(entity);
+      return idx == -1 ? null : otherLists.get(idx);
+    }
+
+    ArrayList<MassTree> list = (ArrayList<MassTree>) lists[id];
+    return list == null || list.isEmpty() ? null : list;
+  }
+
+  public MassTreeArena getArena() {
+    return arena;
+  }
+
+  public boolean containsKey(BasicEntity entity) {
+    return get(entity) != null;
+  }
+
+  /**
+   * Add a MassTree to an entity.
+   *
+   * @param entity entity
+   * @param tree   MassTree
+   */
+  @SuppressWarnings("unchecked")
+  public void add(BasicEntity entity, MassTree tree) {
+    int id = lookup == null ? -1 : lookup.getId(entity);
+    if (id == -1) {
+      int idx = otherEntities.indexOf(entity);
+      if (idx == -1) {
+        otherEntities.add(entity);
+        otherLists.add(new ArrayList<>());
+        idx = otherLists.size() - 1;
+      }
+      otherLists.get(idx).add(tree);
+      return;
+    }
+
+    if (lists[id] == null) {
+      lists[id] = new ArrayList<MassTree>();
+    }
+
+    ArrayList<MassTree> list = (ArrayList<MassTree>) lists[id];
+    if (list.isEmpty()) {
+      if (usedCount == used.length) {
+        used = Arrays.copyOf(used, usedCount * 2);
+      }
+      used[usedCount++] = id;
+    }
+    list.add(tree);
+  }
+}
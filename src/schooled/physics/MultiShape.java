@@ -24,6 +24,8 @@ public class MultiShape implements Shape {
 
   Color debugColor = null;
   BoundingBox box = null;
+  private BoundingBox[] boxSources = null; // child boxes the box was built from
+  private int version = 0; // number of times shapes were added, removed or shifted
 
   @Override
   public void setDebugColor(Color color) {
@@ -81,10 +83,31 @@ public class MultiShape implements Shape {
     return multiShape;
   }
 
+  /**
+   * Get the bounding box around every shape. The box is rebuilt when a shape is added or removed
+   * and when the box of a shape changes, like when an animated or state shape changes its frame.
+   *
+   * @return bounding box
+   */
   @Override
   public BoundingBox getBoundingBox() {
+    int size = size();
+    if (box != null && (boxSources == null || boxSources.length != size)) {
+      box = null;
+    }
+
+    for (int i = 0; box != null && i < size; i++) {
+      if (getShape(i).getBoundingBox() != boxSources[i]) {
+        box = null;
+      }
+    }
+
     if (box == null) {
       box = new BoundingBox(this);
+      boxSources = new BoundingBox[size];
+      for (int i = 0; i < size; i++) {
+        boxSources[i] = getShape(i).getBoundingBox();
+      }
     }
     return box;
   }
@@ -129,6 +152,7 @@ public class MultiShape implements Shape {
     shapes.add(shape);
     shifts.add(vector);
     box = null;
+    version++;
   }
 
   /**
@@ -139,6 +163,17 @@ public class MultiShape implements Shape {
   public void shiftAll(Vector vector) {
     shifts.forEach(listVector -> listVector.add(vector));
     box = null;
+    version++;
+  }
+
+  /**
+   * Get the number of times shapes were added, removed or shifted. Changes inside of the shapes
+   * aren't counted.
+   *
+   * @return shape list version
+   */
+  public int getVersion() {
+    return version;
   }
 
   /**
@@ -152,6 +187,7 @@ public class MultiShape implements Shape {
       shapes.remove(i);
       shifts.remove(i);
       box = null;
+      version++;
     }
     return i;
   }
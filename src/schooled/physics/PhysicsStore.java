@@ -0,0 +1,211 @@
+package schooled.physics;
+
+import java.util.Arrays;
+import schooled.entities.BasicEntity;
+
+/**
+ * Physics state of the entities in a container, stored in primitive arrays indexed by a dense
+ * entity handle.
+ * <p>
+ * Entities get a handle when they are added to an {@link schooled.containers.EntityHolder} and
+ * give it back when they are removed. While an entity has a handle its velocity and force are read
+ * and written through the store instead of the entity's own vectors, so the engine can sweep the
+ * arrays directly. Handles stay dense, removing an entity moves the last entity into its slot.
+ * <p>
+ * The vector getters create a new vector on every call, the engine loops read the components.
+ * <p>
+ * Positions stay on the entities since the game code holds on to and edits position vectors.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class PhysicsStore {
+
+  private BasicEntity[] entities = new BasicEntity[64];
+  private float[] velX = new float[64], velY = new float[64];
+  private float[] forceX = new float[64], forceY = new float[64];
+  private float[] invMass = new float[64];
+  private float[] drag = new float[64];
+  private int size = 0;
+
+  /**
+   * Give an entity a handle in the store, moving it out of any other store it is in.
+   *
+   * @param entity entity
+   */
+  public void add(BasicEntity entity) {
+    PhysicsStore old = entity.getPhysicsStore();
+    if (old == this) {
+      return;
+    } else if (old != null) {
+      old.remove(entity);
+    }
+
+    if (size == entities.length) {
+      grow(size * 2);
+    }
+
+    entities[size] = entity;
+    entity.setPhysicsStore(this, size++);
+  }
+
+  /**
+   * Take an entity's handle back, the entity's state is copied back into the entity.
+   *
+   * @param entity entity
+   */
+  public void remove(BasicEntity entity) {
+    if (entity.getPhysicsStore() != this) {
+      return;
+    }
+
+    int handle = entity.getPhysicsHandle();
+    entity.setPhysicsStore(null, -1);
+
+    int last = --size;
+    if (handle != last) {
+      // move the last entity into the empty slot, it copies its own state over
+      entities[handle] = entities[last];
+      entities[handle].setPhysicsStore(this, handle);
+    }
+    entities[last] = null;
+  }
+
+  /**
+   * Take back every handle.
+   */
+  public void clear() {
+    while (size > 0) {
+      remove(entities[size - 1]);
+    }
+  }
+
+  /**
+   * Write the state of an entity into its slot. Used by the entity when it gets a handle.
+   *
+   * @param handle   entity handle
+   * @param velocity velocity
+   * @param force    force
+   * @param iMass    inverse mass
+   * @param airDrag  air drag scalar
+   */
+  public void set(int handle, Vector velocity, Vector force, float iMass, float airDrag) {
+    velX[handle] = velocity.getX();
+    velY[handle] = velocity.getY();
+    forceX[handle] = force.getX();
+    forceY[handle] = force.getY();
+    invMass[handle] = iMass;
+    drag[handle] = airDrag;
+  }
+
+  /**
+   * Scale the velocities of the awake entities by their air drag over a time difference. The drag
+   * is read from the entities on every call like the engine does for entities without a store, so
+   * changes to the air drag while the game runs are followed.
+   *
+   * @param t time difference
+   */
+  public void applyDrag(float t) {
+    for (int i = 0; i < size; i++) {
+      BasicEntity entity = entities[i];
+      if (entity.isSleeping()) {
+        continue;
+      }
+      drag[i] = entity.getAirDrag();
+      // calculate the air drag in context of the time difference
+      float scalar = Math.max(0.0f, 1.0f - (1.0f - drag[i]) * t * 60);
+      velX[i] *= scalar;
+      velY[i] *= scalar;
+    }
+  }
+
+  private void grow(int capacity) {
+    entities = Arrays.copyOf(entities, capacity);
+    velX = Arrays.copyOf(velX, capacity);
+    velY = Arrays.copyOf(velY, capacity);
+    forceX = Arrays.copyOf(forceX, capacity);
+    forceY = Arrays.copyOf(forceY, capacity);
+    invMass = Arrays.copyOf(invMass, capacity);
+    drag = Arrays.copyOf(drag, capacity);
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="Getters and Setters">
+
+  public int size() {
+    return size;
+  }
+
+  public BasicEntity getEntity(int handle) {
+    return entities[handle];
+  }
+
+  public Vector getVelocity(int handle) {
+    return new Vector(velX[handle], velY[handle]);
+  }
+
+  public float getVelocityX(int handle) {
+    return velX[handle];
+  }
+
+  public float getVelocityY(int handle) {
+    return velY[handle];
+  }
+
+  public void setVelocity(int handle, float x, float y) {
+    velX[handle] = x;
+    velY[handle] = y;
+  }
+
+  public void addVelocity(int handle, float x, float y) {
+    velX[handle] += x;
+    velY[handle] += y;
+  }
+
+  public void scaleVelocity(int handle, float scale) {
+    velX[handle] *= scale;
+    velY[handle] *= scale;
+  }
+
+  public Vector getForce(int handle) {
+    return new Vector(forceX[handle], forceY[handle]);
+  }
+
+  public float getForceX(int handle) {
+    return forceX[handle];
+  }
+
+  public float getForceY(int handle) {
+    return forceY[handle];
+  }
+
+  public void setForce(int handle, float x, float y) {
+    forceX[handle] = x;
+    forceY[handle] = y;
+  }
+
+  public void addForce(int handle, float x, float y) {
+    forceX[handle] += x;
+    forceY[handle] += y;
+  }
+
+  public float getInvMass(int handle) {
+    return invMass[handle];
+  }
+
+  public void setInvMass(int handle, float iMass) {
+    invMass[handle] = iMass;
+  }
+
+  /**
+   * Get the air drag of an entity as of the last drag sweep.
+   *
+   * @param handle entity handle
+   * @return air drag scalar
+   */
+  public float getDrag(int handle) {
+    return drag[handle];
+  }
+
+  // </editor-fold>
+}
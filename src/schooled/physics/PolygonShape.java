@@ -16,6 +16,11 @@ import schooled.entities.State;
  * Stores a list of vertices. Has an additional PolygonShape value to store a shape traced from the
  * original. The height and width are calculated on the fly and reset by changing the polygon's
  * structure.
+ * <p>
+ * The vertices are packed in a float array. The edge vectors, edge normals and bounding box are
+ * recalculated whenever the vertices change, so collision tests read them instead of calculating
+ * them for every pair. The vertices translated to the shape's world position are cached by
+ * {@link #getWorldVertices(Vector)} and shared by every test in a tick.
  * <p></p>
  * Program written by Joseph Straceski
  * <p>
@@ -45,7 +50,34 @@ public class PolygonShape implements Shape, Serializable {
   @Override
   public void reset() {}
 
-  private final ArrayList<Vector> vertices = new ArrayList<>();
+  // vertices packed as x, y pairs
+  private float[] points = new float[8];
+  private int size = 0;
+
+  // edge vectors from the previous vertex to each vertex and their normalized outward normals,
+  //  packed as x, y pairs and rebuilt whenever the vertices change
+  private float[] edges = new float[8];
+  private float[] normals = new float[8];
+
+  // is the polygon convex and wound clockwise, calculated with the edges
+  private boolean convex = false;
+
+  // local bounding box of the vertices
+  private float xMin = Float.MAX_VALUE, yMin = Float.MAX_VALUE;
+  private float xMax = -Float.MAX_VALUE, yMax = -Float.MAX_VALUE;
+
+  // number of times the vertices changed, lets cached collision results notice in place edits
+  private transient int version = 0;
+
+  // vertices translated to the last position they were requested at
+  private transient volatile WorldVertices world = null;
+
+  // convex pieces of the polygon, calculated on first use
+  private static final PolygonShape[] NO_PIECES = new PolygonShape[0];
+  private transient volatile PolygonShape[] pieces = null;
+  // polygon a convex piece was cut from
+  private transient PolygonShape source = null;
+
   private PolygonShape traceShape = null;
   private float height = -1, width = -1;
 
@@ -134,16 +166,32 @@ public class PolygonShape implements Shape, Serializable {
 
   @Override
   public PolygonShape clone() {
-    PolygonShape polygonShape = new PolygonShape(vertices);
+    PolygonShape polygonShape = new PolygonShape();
+    polygonShape.points = Arrays.copyOf(points, points.length);
+    polygonShape.size = size;
+    polygonShape.rebuild();
     polygonShape.height = height;
     polygonShape.width = width;
     polygonShape.traceShape = traceShape;
+
+    // carry over the decomposition so cloned room data doesn't decompose again
+    PolygonShape[] p = pieces;
+    if (p == NO_PIECES) {
+      polygonShape.pieces = NO_PIECES;
+    } else if (p != null && !convex) {
+      PolygonShape[] copies = new PolygonShape[p.length];
+      for (int i = 0; i < p.length; i++) {
+        copies[i] = p[i].clone();
+        copies[i].source = polygonShape;
+      }
+      polygonShape.pieces = copies;
+    }
     return polygonShape;
   }
 
   public schooled.physics.BoundingBox getBoundingBox() {
     if (box == null) {
-      box = new BoundingBox(this);
+      box = new BoundingBox(xMax, yMax, xMin, yMin);
     }
     return box;
   }
@@ -155,8 +203,11 @@ public class PolygonShape implements Shape, Serializable {
    */
   public void addVertices(ArrayList<Vector> v) {
     for (Vector vector : v) {
-      addVertex(vector.clone());
+      append(vector.getX(), vector.getY());
     }
+    height = -1;
+    width = -1;
+    rebuild();
   }
 
   /**
@@ -165,10 +216,10 @@ public class PolygonShape implements Shape, Serializable {
    * @param v vertex to add
    */
   public void addVertex(Vector v) {
-    vertices.add(v);
+    append(v.getX(), v.getY());
     height = -1;
     width = -1;
-    box = null;
+    rebuild();
   }
 
   /**
@@ -178,7 +229,123 @@ public class PolygonShape implements Shape, Serializable {
    * @param y y position
    */
   public void addVertex(float x, float y) {
-    vertices.add(new Vector(x, y));
+    append(x, y);
+    rebuild();
+  }
+
+  private void append(float x, float y) {
+    if (size * 2 == points.length) {
+      points = Arrays.copyOf(points, points.length * 2);
+    }
+    points[size * 2] = x;
+    points[size * 2 + 1] = y;
+    size++;
+  }
+
+  /**
+   * Recalculate the edges, normals and bounding box from the vertices. Called by every method
+   * that changes the vertices so the collision code can read them without checking.
+   */
+  private void rebuild() {
+    if (edges.length < points.length) {
+      edges = new float[points.length];
+      normals = new float[points.length];
+    }
+
+    xMin = Float.MAX_VALUE;
+    yMin = Float.MAX_VALUE;
+    xMax = -Float.MAX_VALUE;
+    yMax = -Float.MAX_VALUE;
+
+    for (int i = 0; i < size; i++) {
+      int c = i * 2;
+      int b = (i == 0 ? size - 1 : i - 1) * 2;
+
+      float ex = points[c] - points[b];
+      float ey = points[c + 1] - points[b + 1];
+      edges[c] = ex;
+      edges[c + 1] = ey;
+
+      // the edge perpendicular pointing out of a clockwise polygon
+      float nx = -ey, ny = ex;
+      float mag = (float) Math.sqrt(nx * nx + ny * ny);
+      if (mag != 0) {
+        nx *= 1.0f / mag;
+        ny *= 1.0f / mag;
+      }
+      normals[c] = nx;
+      normals[c + 1] = ny;
+
+      xMax = Math.max(points[c], xMax);
+      xMin = Math.min(points[c], xMin);
+      yMax = Math.max(points[c + 1], yMax);
+      yMin = Math.min(points[c + 1], yMin);
+    }
+
+    convex = calculateConvex();
+    box = null;
+    world = null;
+    pieces = null;
+    version++;
+  }
+
+  /**
+   * Get the number of times the vertices have changed.
+   *
+   * @return vertex version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * A polygon is convex if every corner turns clockwise, the same direction as the edge normals,
+   * and the edges only change horizontal and vertical direction twice. The second check rules out
+   * self intersecting shapes like stars, which also only turn one way.
+   */
+  private boolean calculateConvex() {
+    if (size < 3) {
+      return false;
+    }
+
+    boolean turned = false;
+    for (int i = 0; i < size; i++) {
+      int c = i * 2;
+      int b = (i == 0 ? size - 1 : i - 1) * 2;
+
+      // edges without a length have no normal
+      if (edges[c] == 0 && edges[c + 1] == 0) {
+        return false;
+      }
+
+      float cross = edges[b] * edges[c + 1] - edges[b + 1] * edges[c];
+      if (cross > 0) {
+        return false;
+      }
+      turned |= cross < 0;
+    }
+
+    // go around twice so the first edges are compared with the last, only count the second lap
+    int xFlips = 0, yFlips = 0;
+    float lastX = 0, lastY = 0;
+    for (int i = 0; i < size * 2; i++) {
+      float ex = edges[(i % size) * 2];
+      float ey = edges[(i % size) * 2 + 1];
+      if (ex != 0) {
+        if (i >= size && Math.signum(lastX) != Math.signum(ex)) {
+          xFlips++;
+        }
+        lastX = ex;
+      }
+      if (ey != 0) {
+        if (i >= size && Math.signum(lastY) != Math.signum(ey)) {
+          yFlips++;
+        }
+        lastY = ey;
+      }
+    }
+
+    return turned && xFlips <= 2 && yFlips <= 2;
   }
 
 
@@ -204,34 +371,31 @@ public class PolygonShape implements Shape, Serializable {
    * Mirror the polygon's vertices around the y axis.
    */
   public void flipHorizontal() {
-    // swaps the relative locations and vertex order to prevent turning the polygon inside out
-    for (int i = 0; i < ((int) Math.round(vertices.size() / 2.0)); i++) {
-      Vector pointa = new Vector(vertices.get(i));
-      pointa.setX(-pointa.getX());
-
-      Vector pointb = new Vector(vertices.get(vertices.size() - i - 1));
-      pointb.setX(-pointb.getX());
-
-      vertices.set(vertices.size() - i - 1, pointa);
-      vertices.set(i, pointb);
-    }
+    flip(0);
   }
 
   /**
    * Mirror the polygon's vertices around the x axis.
    */
   public void flipVertical() {
+    flip(1);
+  }
+
+  private void flip(int axis) {
     // swaps the relative locations and vertex order to prevent turning the polygon inside out
-    for (int i = 0; i < ((int) Math.round(vertices.size() / 2.0)); i++) {
-      Vector pointa = new Vector(vertices.get(i));
-      pointa.setY(-pointa.getY());
+    for (int i = 0; i < ((int) Math.round(size / 2.0)); i++) {
+      int a = i * 2;
+      int b = (size - i - 1) * 2;
 
-      Vector pointb = new Vector(vertices.get(vertices.size() - i - 1));
-      pointb.setY(-pointb.getY());
+      float ax = points[a], ay = points[a + 1];
+      float bx = points[b], by = points[b + 1];
 
-      vertices.set(vertices.size() - i - 1, pointa);
-      vertices.set(i, pointb);
+      points[b] = axis == 0 ? -ax : ax;
+      points[b + 1] = axis == 1 ? -ay : ay;
+      points[a] = axis == 0 ? -bx : bx;
+      points[a + 1] = axis == 1 ? -by : by;
     }
+    rebuild();
   }
 
   /**
@@ -240,9 +404,11 @@ public class PolygonShape implements Shape, Serializable {
    * @param shift shift Vector
    */
   public void addShift(Vector shift) {
-    for (Vector vert : vertices) {
-      vert.add(shift);
+    for (int i = 0; i < size * 2; i += 2) {
+      points[i] += shift.getX();
+      points[i + 1] += shift.getY();
     }
+    rebuild();
   }
 
   /**
@@ -252,9 +418,10 @@ public class PolygonShape implements Shape, Serializable {
    * @return scaled shape
    */
   public Shape scale(float scale) {
-    for (Vector vert : vertices) {
-      vert.scale(scale);
+    for (int i = 0; i < size * 2; i++) {
+      points[i] *= scale;
     }
+    rebuild();
 
     width *= scale;
     height *= scale;
@@ -270,11 +437,11 @@ public class PolygonShape implements Shape, Serializable {
           yMin = Float.MAX_VALUE,
           xMax = -1, yMax = -1;
 
-      for (Vector vertex : vertices) {
-        xMin = Math.min(xMin, vertex.getX());
-        yMin = Math.min(yMin, vertex.getY());
-        xMax = Math.min(xMax, vertex.getX());
-        yMax = Math.min(yMax, vertex.getY());
+      for (int i = 0; i < size * 2; i += 2) {
+        xMin = Math.min(xMin, points[i]);
+        yMin = Math.min(yMin, points[i + 1]);
+        xMax = Math.min(xMax, points[i]);
+        yMax = Math.min(yMax, points[i + 1]);
       }
 
       width = xMax - xMin;
@@ -302,13 +469,120 @@ public class PolygonShape implements Shape, Serializable {
   }
 
   /**
-   * Get the vertex at a given index in the list of vertices.
+   * Get a copy of the vertex at a given index in the list of vertices.
    *
    * @param index index of the vertex
    * @return vertex Vector
    */
   public Vector getVertex(int index) {
-    return vertices.get(index);
+    return new Vector(getX(index), getY(index));
+  }
+
+  /**
+   * Get the vertices translated to a position. The translated vertices are kept until the shape is
+   * requested at a different position or changed, so every collision test of an entity in a tick
+   * shares them. The array is packed as x, y pairs and must not be changed.
+   *
+   * @param pos position of the shape
+   * @return packed world space vertices
+   */
+  public float[] getWorldVertices(Vector pos) {
+    // read the cache once, the narrowphase can run on several threads
+    WorldVertices w = world;
+    if (w == null || w.x != pos.getX() || w.y != pos.getY()) {
+      w = new WorldVertices(pos.getX(), pos.getY(), points, size);
+      world = w;
+    }
+    return w.points;
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="Packed Getters">
+
+  public float getX(int index) {
+    checkIndex(index);
+    return points[index * 2];
+  }
+
+  public float getY(int index) {
+    checkIndex(index);
+    return points[index * 2 + 1];
+  }
+
+  /**
+   * Get the x value of the edge from the previous vertex to a vertex.
+   */
+  public float getEdgeX(int index) {
+    checkIndex(index);
+    return edges[index * 2];
+  }
+
+  public float getEdgeY(int index) {
+    checkIndex(index);
+    return edges[index * 2 + 1];
+  }
+
+  /**
+   * Get the x value of the normalized outward normal of the edge ending at a vertex.
+   */
+  public float getNormalX(int index) {
+    checkIndex(index);
+    return normals[index * 2];
+  }
+
+  public float getNormalY(int index) {
+    checkIndex(index);
+    return normals[index * 2 + 1];
+  }
+
+  // </editor-fold>
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Is the polygon convex with its vertices in clockwise order. Convex polygons can be tested with
+   * the separating axis collision test.
+   *
+   * @return true if the polygon is convex
+   */
+  public boolean isConvex() {
+    return convex;
+  }
+
+  /**
+   * Get the polygon split into convex pieces. A convex polygon is its own only piece, a concave
+   * polygon is split by {@link ConvexDecomposition} the first time it is asked for and keeps the
+   * pieces until its vertices change. The pieces share the polygon's position.
+   *
+   * @return convex pieces, null if the polygon can't be split
+   */
+  public PolygonShape[] getConvexPieces() {
+    // read the pieces once, the narrowphase can run on several threads
+    PolygonShape[] p = pieces;
+    if (p == null) {
+      p = convex ? new PolygonShape[]{this} : ConvexDecomposition.decompose(this);
+      if (p == null) {
+        p = NO_PIECES;
+      }
+      pieces = p;
+    }
+    return p == NO_PIECES ? null : p;
+  }
+
+  /**
+   * Get the concave polygon a convex piece was cut from.
+   *
+   * @return source polygon, null if the polygon isn't a piece
+   */
+  public PolygonShape getSource() {
+    return source;
+  }
+
+  void setSource(PolygonShape source) {
+    this.source = source;
   }
 
   /**
@@ -317,7 +591,7 @@ public class PolygonShape implements Shape, Serializable {
    * @return number of vertices
    */
   public int getSize() {
-    return vertices.size();
+    return size;
   }
 
   public void addPoint(int a, int b) {
@@ -325,25 +599,31 @@ public class PolygonShape implements Shape, Serializable {
   }
 
   public String toString() {
-    return "Polygon[vertices=" + Arrays.toString(vertices.toArray()) + "]";
+    return "Polygon[vertices=" + Arrays.toString(getVertices().toArray()) + "]";
   }
 
   /**
-   * Returns a shallow copy of the vertex list.
+   * Returns a copy of the vertex list. Changing the list or its vectors doesn't change the
+   * polygon.
    *
    * @return copied vertex list
    */
   public ArrayList<Vector> getVertices() {
-    return (ArrayList<Vector>) vertices.clone();
+    ArrayList<Vector> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(getVertex(i));
+    }
+    return list;
   }
 
   /**
    * Clear all the vertices and size values.
    */
   public void clear() {
-    vertices.clear();
+    size = 0;
     width = -1;
     height = -1;
+    rebuild();
   }
 
   /**
@@ -353,4 +633,23 @@ public class PolygonShape implements Shape, Serializable {
   public boolean isValid() {
     return getSize() > 2;
   }
+
+  /**
+   * Vertices translated to a position. Never changed after creation so threads can share it.
+   */
+  private static final class WorldVertices {
+
+    final float x, y;
+    final float[] points;
+
+    WorldVertices(float x, float y, float[] local, int size) {
+      this.x = x;
+      this.y = y;
+      points = new float[size * 2];
+      for (int i = 0; i < size * 2; i += 2) {
+        points[i] = x + local[i];
+        points[i + 1] = y + local[i + 1];
+      }
+    }
+  }
 }
@@ -0,0 +1,99 @@
+package schooled.physics;
+
+import java.util.ArrayList;
+import schooled.entities.BasicEntity;
+
+/**
+ * The entities overlapping an entity through sensor pairs, kept from one tick to the next so the
+ * overlaps can be turned into enter, stay and exit events.
+ * <p>
+ * The engine adds every overlap it finds during the pair search and dispatches the events of the
+ * tick once the search is done, see {@link BasicEntity#sensorEnter(BasicEntity)}. An overlap that
+ * isn't found again is only an exit if both entities are awake, sleeping entities don't pair so
+ * their overlaps are carried over as they are.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class SensorOverlaps {
+
+  private ArrayList<BasicEntity> previous = new ArrayList<>(); // overlaps of the last tick
+  private ArrayList<BasicEntity> current = new ArrayList<>(); // overlaps found this tick
+
+  /**
+   * Add an overlap found this tick.
+   *
+   * @param other overlapping entity
+   */
+  public void add(BasicEntity other) {
+    if (!current.contains(other)) {
+      current.add(other);
+    }
+  }
+
+  /**
+   * Does the entity overlap another entity as of the last dispatch.
+   *
+   * @param other other entity
+   * @return true if the entities overlap
+   */
+  public boolean contains(BasicEntity other) {
+    return previous.contains(other);
+  }
+
+  /**
+   * Are there no overlaps left to dispatch.
+   *
+   * @return true if the entity overlapped nothing last tick and nothing this tick
+   */
+  public boolean isEmpty() {
+    return previous.isEmpty() && current.isEmpty();
+  }
+
+  /**
+   * Call the sensor callbacks of an entity for the overlaps found this tick. Exits are sent first,
+   * then the enters and stays in the order the overlaps were found.
+   *
+   * @param owner entity the overlaps belong to
+   */
+  public void dispatch(BasicEntity owner) {
+    int found = current.size();
+
+    for (int i = 0; i < previous.size(); i++) {
+      BasicEntity other = previous.get(i);
+      if (current.contains(other)) {
+        continue;
+      }
+
+      if (owner.isSleeping() || other.isSleeping()) {
+        // the pair wasn't tested, the overlap still holds
+        current.add(other);
+      } else {
+        owner.sensorExit(other);
+      }
+    }
+
+    for (int i = 0; i < found; i++) {
+      BasicEntity other = current.get(i);
+      if (previous.contains(other)) {
+        owner.sensorStay(other);
+      } else {
+        owner.sensorEnter(other);
+      }
+    }
+
+    ArrayList<BasicEntity> temp = previous;
+    previous = current;
+    current = temp;
+    current.clear();
+  }
+
+  /**
+   * Forget every overlap without sending any events.
+   */
+  public void clear() {
+    previous.clear();
+    current.clear();
+  }
+}
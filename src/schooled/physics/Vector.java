@@ -13,6 +13,10 @@ import schooled.visuals.sprite.Sprite;
  * <p>
  * Stores x and y values as Floats, with (0, 0) default values respectively. Also contains a name
  * string for debugging purposes.
+ * <p>
+ * Modification methods change the vector in place and return it so calls can be chained without
+ * allocating, instance creation methods (ending in i) leave the vector alone and return a new one.
+ * The physics engine uses the modification methods on its own temporary vectors in hot paths.
  * <p></p>
  * Program written by Joseph Straceski
  * <p>
@@ -503,6 +507,17 @@ public class Vector implements Serializable {
     return a != null && (x == a.x) && (y == a.y);
   }
 
+  /**
+   * Find if vector a is the negation of this, the same as {@code negatei().equals(a)} without
+   * creating a vector.
+   *
+   * @param a vector a
+   * @return if vector a equals -this return true, otherwise false
+   */
+  public boolean equalsNegated(Vector a) {
+    return a != null && (-x == a.x) && (-y == a.y);
+  }
+
   /**
    * Calculate if vector a is within distance f from this.
    * <p>
@@ -581,9 +596,23 @@ public class Vector implements Serializable {
    *
    * @param v vector v
    */
-  public void set(Vector v) {
-    setX(v.getX());
-    setY(v.getY());
+  public Vector set(Vector v) {
+    x = v.x;
+    y = v.y;
+    return this;
+  }
+
+  /**
+   * Set the x and y values.
+   *
+   * @param x x value
+   * @param y y value
+   * @return this
+   */
+  public Vector set(float x, float y) {
+    this.x = x;
+    this.y = y;
+    return this;
   }
 
   public String getName() {
@@ -660,10 +689,13 @@ public class Vector implements Serializable {
    * Negate this vector.
    * <p>
    * x = -x, y = -y
+   *
+   * @return this
    */
-  public void negate() {
+  public Vector negate() {
     x = -x;
     y = -y;
+    return this;
   }
 
   /**
@@ -672,6 +704,7 @@ public class Vector implements Serializable {
    * x = x + a.x, y = y + a.y
    *
    * @param a vector a
+   * @return this
    */
   public Vector add(Vector a) {
     x += a.x;
@@ -679,16 +712,33 @@ public class Vector implements Serializable {
     return this;
   }
 
+  /**
+   * Add the values x and y to this.
+   * <p>
+   * this.x = this.x + x, this.y = this.y + y
+   *
+   * @param x x value
+   * @param y y value
+   * @return this
+   */
+  public Vector add(float x, float y) {
+    this.x += x;
+    this.y += y;
+    return this;
+  }
+
   /**
    * Subtract vector a from this.
    * <p>
    * x = x - a.x, y = y - a.y
    *
    * @param a vector a
+   * @return this
    */
-  public void sub(Vector a) {
+  public Vector sub(Vector a) {
     x -= a.x;
     y -= a.y;
+    return this;
   }
 
   /**
@@ -697,10 +747,12 @@ public class Vector implements Serializable {
    * x = x * a, y = y * a
    *
    * @param a scalar
+   * @return this
    */
-  public void scale(float a) {
+  public Vector scale(float a) {
     x *= a;
     y *= a;
+    return this;
   }
 
   /**
@@ -709,10 +761,12 @@ public class Vector implements Serializable {
    * x = x * a.x, y = y * a.y
    *
    * @param a vector a
+   * @return this
    */
-  public void scale(Vector a) {
+  public Vector scale(Vector a) {
     x *= a.x;
     y *= a.y;
+    return this;
   }
 
   /**
@@ -722,9 +776,12 @@ public class Vector implements Serializable {
    *
    * @param v vector v
    * @param a scalar a
+   * @return this
    */
-  public void addScaled(Vector v, float a) {
-    add(scale(v, a));
+  public Vector addScaled(Vector v, float a) {
+    x += v.x * a;
+    y += v.y * a;
+    return this;
   }
 
   /**
@@ -733,47 +790,120 @@ public class Vector implements Serializable {
    * x = 1/x, y = 1/y
    * <p>
    * If any components of the vector are 0 keep it as 0 instead.
+   *
+   * @return this
    */
-  public void invert() {
+  public Vector invert() {
     if (x != 0) {
       x = 1 / x;
     }
     if (y != 0) {
       y = 1 / y;
     }
+    return this;
   }
 
   /**
    * Make this vector a unit vector.
+   *
+   * @return this
    */
-  public void normalize() {
+  public Vector normalize() {
     float a = mag();
     if (a != 0) {
-      scale(1 / mag());
+      scale(1.0f / a);
     }
+    return this;
+  }
+
+  /**
+   * Rotate this vector 90 degrees counter-clockwise.
+   * <p>
+   * x = -y, y = x
+   *
+   * @return this
+   */
+  public Vector perp() {
+    float t = x;
+    x = -y;
+    y = t;
+    return this;
+  }
+
+  /**
+   * Set this to the difference of vectors a and b.
+   * <p>
+   * x = a.x - b.x, y = a.y - b.y
+   *
+   * @param a vector a
+   * @param b vector b
+   * @return this
+   */
+  public Vector setSub(Vector a, Vector b) {
+    x = a.x - b.x;
+    y = a.y - b.y;
+    return this;
+  }
+
+  /**
+   * Set this to the sum of vectors a and b.
+   * <p>
+   * x = a.x + b.x, y = a.y + b.y
+   *
+   * @param a vector a
+   * @param b vector b
+   * @return this
+   */
+  public Vector setAdd(Vector a, Vector b) {
+    x = a.x + b.x;
+    y = a.y + b.y;
+    return this;
+  }
+
+  /**
+   * Set this to the perpendicular vector of the difference between vectors a and b, see
+   * {@link Vector#perp(Vector, Vector)}.
+   * <p>
+   * x = -(a.y - b.y), y = (a.x - b.x)
+   *
+   * @param a vector a
+   * @param b vector b
+   * @return this
+   */
+  public Vector setPerp(Vector a, Vector b) {
+    float px = -(a.y - b.y);
+    float py = a.x - b.x;
+    x = px;
+    y = py;
+    return this;
   }
 
   /**
    * Round this vector.
    * <p>
    * Uses getXi() and getYi().
+   *
+   * @return this
    */
-  public void round() {
+  public Vector round() {
     x = getXi();
     y = getYi();
+    return this;
   }
 
 
   /**
    * Rotate this vector by rad radians.
    * @param rad
+   * @return this
    */
-  public void rot(float rad) {
+  public Vector rot(float rad) {
     float xx = x * (float) Math.cos(rad) - y * (float) Math.sin(rad);
     float yy = x * (float) Math.sin(rad) - y * (float) Math.cos(rad);
 
     x = xx;
     y = yy;
+    return this;
   }
 
   // </editor-fold>
@@ -0,0 +1,107 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import schooled.entities.BasicEntity;
+
+/**
+ * First stage of the collision search.
+ * <p>
+ * A broadphase turns a list of entities into a list of candidate pairs that might collide. It is
+ * allowed to report pairs that do not collide (the engine still runs the exact bounding box and
+ * shape tests on every candidate) but it must never drop a pair that the exact tests would accept.
+ * Pairs are reported as indices into the input list, see {@link PairList}.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public interface Broadphase {
+
+  /**
+   * Find the candidate collision pairs of an entity list.
+   * <p>
+   * The returned list is owned by the broadphase and is only valid until the next call.
+   *
+   * @param entities entity list
+   * @return sorted and de-duplicated candidate pairs
+   */
+  PairList findPairs(ArrayList<BasicEntity> entities);
+
+  /**
+   * Find the entities whose boxes touch a world space box, using what the broadphase built during
+   * the last call to {@link #findPairs}.
+   * <p>
+   * Only entities that could collide during that call are found, with the boxes they had then.
+   * The results are candidates that still have to be tested against the current boxes of the
+   * entities. Each entity is reported once, in ascending entity index order.
+   * <p>
+   * Results are read with {@link #getHit(int)} and are valid until the next query or pair search.
+   *
+   * @param xMin world space box
+   * @param yMin world space box
+   * @param xMax world space box
+   * @param yMax world space box
+   * @return number of entities found
+   */
+  int query(float xMin, float yMin, float xMax, float yMax);
+
+  /**
+   * Get a query result as an index into the entity list of the last pair search.
+   *
+   * @param i result index
+   * @return entity index
+   */
+  int getHit(int i);
+
+  /**
+   * Can an entity form any collision pair at all. Entities that can't are left out of the
+   * broadphase structures.
+   *
+   * @param entity entity
+   * @return true if the entity collides and is on a layer and collides with a layer
+   */
+  static boolean canCollide(BasicEntity entity) {
+    return entity.isCollides() && entity.getCollisionCategory() != 0
+        && entity.getCollisionMask() != 0;
+  }
+
+  /**
+   * Can entity a and entity b form a collision pair at all.
+   * <p>
+   * Filters out entities that do not collide, pairs whose collision layers don't match and pairs
+   * of static entities that don't interact. Sleeping entities count as static, two sleeping
+   * entities never pair.
+   *
+   * @param a entity a
+   * @param b entity b
+   * @return true if the pair should be tested, false otherwise
+   */
+  static boolean canPair(BasicEntity a, BasicEntity b) {
+    if (!a.layersCollide(b) || !a.isCollides() || !b.isCollides()) {
+      return false;
+    }
+
+    return (a.getInvMass() != 0 && !a.isSleeping()) || (b.getInvMass() != 0 && !b.isSleeping())
+        || a.isInteractAll() || b.isInteractAll();
+  }
+
+  /**
+   * Create a broadphase from its name.
+   * <p>
+   * Used by the room loaders. Unknown names produce the spatial hash.
+   *
+   * @param name broadphase name
+   * @return broadphase
+   */
+  static Broadphase fromName(String name) {
+    if (name != null && (name.equalsIgnoreCase("brute") || name.equalsIgnoreCase("reference"))) {
+      return new BruteForceBroadphase();
+    } else if (name != null && (name.equalsIgnoreCase("sap") || name.equalsIgnoreCase("sweep"))) {
+      return new SweepAndPruneBroadphase();
+    } else if (name != null && (name.equalsIgnoreCase("tree") || name.equalsIgnoreCase("aabb"))) {
+      return new DynamicTreeBroadphase();
+    }
+
+    return new SpatialHashBroadphase();
+  }
+}
@@ -0,0 +1,72 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import schooled.entities.BasicEntity;
+import schooled.physics.BoundingBox;
+
+/**
+ * Reference broadphase that reports every pair that passes {@link Broadphase#canPair}.
+ * <p>
+ * This is the original O(n^2) nested loop of the engine. It is kept so the output of the faster
+ * broadphases can be compared against it.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class BruteForceBroadphase implements Broadphase {
+
+  private final PairList pairs = new PairList();
+  private final HitList hits = new HitList();
+  private ArrayList<BasicEntity> entities = null; // entity list of the last pair search
+
+  @Override
+  public PairList findPairs(ArrayList<BasicEntity> entities) {
+    pairs.clear();
+    this.entities = entities;
+
+    for (int a = 0; a < entities.size(); a++) {
+      BasicEntity entity_a = entities.get(a);
+
+      if (!Broadphase.canCollide(entity_a)) {
+        continue;
+      }
+
+      for (int b = (a + 1); b < entities.size(); b++) {
+        if (Broadphase.canPair(entity_a, entities.get(b))) {
+          pairs.add(a, b);
+        }
+      }
+    }
+
+    // the loop already produces sorted unique pairs
+    return pairs;
+  }
+
+  /**
+   * Test the current box of every entity of the last pair search, the reference for the other
+   * broadphases.
+   */
+  @Override
+  public int query(float xMin, float yMin, float xMax, float yMax) {
+    hits.clear();
+    if (entities == null) {
+      return 0;
+    }
+
+    for (int i = 0; i < entities.size(); i++) {
+      BasicEntity entity = entities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+      if (box != null && box.xMax >= xMin && xMax >= box.xMin && box.yMax >= yMin
+          && yMax >= box.yMin) {
+        hits.add(i);
+      }
+    }
+    return hits.size();
+  }
+
+  @Override
+  public int getHit(int i) {
+    return hits.get(i);
+  }
+}
@@ -0,0 +1,638 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import schooled.engines.Logger;
+import schooled.entities.BasicEntity;
+import schooled.physics.BoundingBox;
+import schooled.physics.Vector;
+
+/**
+ * Dynamic bounding box tree broadphase.
+ * <p>
+ * Every entity is a leaf of a balanced binary tree of boxes. The leaf box is a fattened version of
+ * the entity's box, grown by a fixed margin and stretched in the direction of the entity's
+ * velocity. As long as the entity stays inside its fat box the tree is left alone, only entities
+ * that leave their box are removed and reinserted. Inner nodes are rotated on the way back up
+ * after an insert or removal to keep the tree balanced.
+ * <p>
+ * Pairs are found by querying the tree with the real box of every entity. Pairs between a parent
+ * and one of its children are dropped when the entities exclude each other through
+ * {@link BasicEntity#getBoundingBox(BasicEntity)}.
+ * <p>
+ * Tree depth, node count, reinserts and rotations are reported through
+ * {@link Logger#setDebugStat(String, float)} every tick.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class DynamicTreeBroadphase implements Broadphase {
+
+  public static final float DEFAULT_MARGIN = 4f;
+  public static final float DEFAULT_PREDICTION = 4f;
+
+  private final PairList pairs = new PairList();
+  private final HitList hits = new HitList();
+  private float margin; // fixed growth of the fat boxes
+  private float prediction; // number of ticks of velocity the fat boxes are stretched by
+
+  // node data, indexed by node id
+  private float[] nodeBox = new float[64 * 4]; // fat box, xMin, yMin, xMax, yMax
+  private float[] leafBox = new float[64 * 4]; // real box of leaf nodes
+  private int[] nodeParent = new int[64]; // parent node, next free node for free nodes
+  private int[] nodeChild1 = new int[64]; // -1 for leaf nodes
+  private int[] nodeChild2 = new int[64];
+  private int[] nodeHeight = new int[64]; // 0 for leaves, -1 for free nodes
+  private BasicEntity[] nodeEntity = new BasicEntity[64];
+  private int[] nodeIndex = new int[64]; // index of the leaf's entity in the current list
+  private int[] nodeStamp = new int[64]; // last tick the leaf was seen
+  private int nodeCapacity = 64;
+  private int nodeCount = 0;
+  private int freeNode = -1;
+  private int root = -1;
+
+  private final IdentityHashMap<BasicEntity, Integer> leafLookup = new IdentityHashMap<>();
+  private int[] leaves = new int[64];
+  private int leafCount = 0;
+  private int stamp = 0;
+
+  private int[] stack = new int[64];
+
+  // statistics of the last tick
+  private int reinserts = 0;
+  private int rotations = 0;
+
+  public DynamicTreeBroadphase() {
+    this(DEFAULT_MARGIN, DEFAULT_PREDICTION);
+  }
+
+  /**
+   * Create a tree broadphase with custom fat box settings.
+   *
+   * @param margin     distance the boxes are grown by on all sides
+   * @param prediction number of ticks of velocity the boxes are stretched by
+   */
+  public DynamicTreeBroadphase(float margin, float prediction) {
+    this.margin = margin;
+    this.prediction = prediction;
+  }
+
+  @Override
+  public PairList findPairs(ArrayList<BasicEntity> entities) {
+    stamp++;
+    reinserts = 0;
+    rotations = 0;
+    pairs.clear();
+
+    updateLeaves(entities);
+    removeStaleLeaves();
+
+    for (int i = 0; i < leafCount; i++) {
+      queryLeaf(leaves[i]);
+    }
+
+    pairs.sortUnique();
+
+    Logger.setDebugStat("tree_depth", getDepth());
+    Logger.setDebugStat("tree_nodes", nodeCount);
+    Logger.setDebugStat("tree_reinserts", reinserts);
+    Logger.setDebugStat("tree_rotations", rotations);
+    return pairs;
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="Statistics">
+
+  /**
+   * Get the height of the tree, 0 for an empty tree.
+   *
+   * @return tree depth
+   */
+  public int getDepth() {
+    return root == -1 ? 0 : nodeHeight[root] + 1;
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getLeafCount() {
+    return leafCount;
+  }
+
+  /**
+   * Get the number of leaves that left their fat box during the last tick.
+   *
+   * @return reinsert count
+   */
+  public int getReinserts() {
+    return reinserts;
+  }
+
+  /**
+   * Get the number of balancing rotations done during the last tick.
+   *
+   * @return rotation count
+   */
+  public int getRotations() {
+    return rotations;
+  }
+
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="Leaf Maintenance">
+
+  /**
+   * Create leaves for new entities and reinsert the leaves of entities that left their fat box.
+   *
+   * @param entities entity list
+   */
+  private void updateLeaves(ArrayList<BasicEntity> entities) {
+    for (int i = 0; i < entities.size(); i++) {
+      BasicEntity entity = entities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+      if (box == null) {
+        continue;
+      }
+
+      Integer leaf = leafLookup.get(entity);
+      if (leaf != null && nodeStamp[leaf] == stamp) {
+        // entity listed twice, keep the first index
+        continue;
+      }
+
+      float xMin = box.xMin;
+      float yMin = box.yMin;
+      float xMax = box.xMax;
+      float yMax = box.yMax;
+
+      if (leaf == null) {
+        leaf = allocateNode();
+        nodeEntity[leaf] = entity;
+        leafLookup.put(entity, leaf);
+
+        if (leafCount == leaves.length) {
+          leaves = Arrays.copyOf(leaves, leafCount * 2);
+        }
+        leaves[leafCount++] = leaf;
+
+        setLeafBox(leaf, xMin, yMin, xMax, yMax);
+        setFatBox(leaf, entity);
+        insertLeaf(leaf);
+      } else {
+        setLeafBox(leaf, xMin, yMin, xMax, yMax);
+
+        int b = leaf * 4;
+        if (xMin < nodeBox[b] || yMin < nodeBox[b + 1]
+            || xMax > nodeBox[b + 2] || yMax > nodeBox[b + 3]) {
+          removeLeaf(leaf);
+          setFatBox(leaf, entity);
+          insertLeaf(leaf);
+          reinserts++;
+        }
+      }
+
+      nodeIndex[leaf] = i;
+      nodeStamp[leaf] = stamp;
+    }
+  }
+
+  /**
+   * Remove the leaves of entities that left the list or lost their box.
+   */
+  private void removeStaleLeaves() {
+    for (int i = leafCount - 1; i >= 0; i--) {
+      int leaf = leaves[i];
+      if (nodeStamp[leaf] == stamp) {
+        continue;
+      }
+
+      removeLeaf(leaf);
+      leafLookup.remove(nodeEntity[leaf]);
+      freeNode(leaf);
+      leaves[i] = leaves[--leafCount];
+    }
+  }
+
+  private void setLeafBox(int leaf, float xMin, float yMin, float xMax, float yMax) {
+    leafBox[leaf * 4] = xMin;
+    leafBox[leaf * 4 + 1] = yMin;
+    leafBox[leaf * 4 + 2] = xMax;
+    leafBox[leaf * 4 + 3] = yMax;
+  }
+
+  /**
+   * Grow the real box of a leaf by the margin and stretch it along the entity's velocity.
+   *
+   * @param leaf   leaf node
+   * @param entity leaf entity
+   */
+  private void setFatBox(int leaf, BasicEntity entity) {
+    Vector velocity = entity.getVelocity();
+    float dx = velocity.getX() * prediction;
+    float dy = velocity.getY() * prediction;
+
+    int b = leaf * 4;
+    nodeBox[b] = leafBox[b] - margin + Math.min(dx, 0);
+    nodeBox[b + 1] = leafBox[b + 1] - margin + Math.min(dy, 0);
+    nodeBox[b + 2] = leafBox[b + 2] + margin + Math.max(dx, 0);
+    nodeBox[b + 3] = leafBox[b + 3] + margin + Math.max(dy, 0);
+  }
+
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="Pair Query">
+
+  /**
+   * Find the pairs of a leaf by walking the tree with the leaf's real box.
+   * <p>
+   * A pair found from both of its leaves is only stored from the lower node id.
+   *
+   * @param leaf leaf node
+   */
+  private void queryLeaf(int leaf) {
+    int l = leaf * 4;
+    float xMin = leafBox[l], yMin = leafBox[l + 1], xMax = leafBox[l + 2], yMax = leafBox[l + 3];
+
+    int top = 0;
+    stack[top++] = root;
+
+    while (top > 0) {
+      int node = stack[--top];
+      int b = node * 4;
+
+      if (nodeBox[b + 2] < xMin || xMax < nodeBox[b]
+          || nodeBox[b + 3] < yMin || yMax < nodeBox[b + 1]) {
+        continue;
+      }
+
+      if (nodeChild1[node] != -1) {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = nodeChild1[node];
+        stack[top++] = nodeChild2[node];
+        continue;
+      }
+
+      if (node == leaf || (node < leaf && leafBox[b + 2] >= nodeBox[l]
+          && nodeBox[l + 2] >= leafBox[b] && leafBox[b + 3] >= nodeBox[l + 1]
+          && nodeBox[l + 3] >= leafBox[b + 1])) {
+        // the pair is also found from the other leaf
+        continue;
+      }
+
+      BasicEntity a = nodeEntity[leaf];
+      BasicEntity o = nodeEntity[node];
+      if (Broadphase.canPair(a, o) && !excludes(a, o)) {
+        pairs.add(nodeIndex[leaf], nodeIndex[node]);
+      }
+    }
+  }
+
+  /**
+   * Walk the tree with the box, the fat boxes of the inner nodes are used to find the leaves and
+   * the real boxes of the leaves to test them.
+   */
+  @Override
+  public int query(float xMin, float yMin, float xMax, float yMax) {
+    hits.clear();
+    if (root == -1) {
+      return 0;
+    }
+
+    int top = 0;
+    stack[top++] = root;
+
+    while (top > 0) {
+      int node = stack[--top];
+      int b = node * 4;
+
+      if (nodeChild1[node] == -1) {
+        if (leafBox[b + 2] >= xMin && xMax >= leafBox[b]
+            && leafBox[b + 3] >= yMin && yMax >= leafBox[b + 1]) {
+          hits.add(nodeIndex[node]);
+        }
+        continue;
+      }
+
+      if (nodeBox[b + 2] < xMin || xMax < nodeBox[b]
+          || nodeBox[b + 3] < yMin || yMax < nodeBox[b + 1]) {
+        continue;
+      }
+
+      if (top + 2 > stack.length) {
+        stack = Arrays.copyOf(stack, stack.length * 2);
+      }
+      stack[top++] = nodeChild1[node];
+      stack[top++] = nodeChild2[node];
+    }
+
+    hits.sortUnique();
+    return hits.size();
+  }
+
+  @Override
+  public int getHit(int i) {
+    return hits.get(i);
+  }
+
+  /**
+   * Do two entities exclude each other through their parent relation.
+   *
+   * @param a entity a
+   * @param b entity b
+   * @return true if the pair can never collide
+   */
+  private static boolean excludes(BasicEntity a, BasicEntity b) {
+    if (!a.isParent(b) && !b.isParent(a)) {
+      return false;
+    }
+
+    return a.getBoundingBox(b) == null || b.getBoundingBox(a) == null;
+  }
+
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="Tree Maintenance">
+
+  private int allocateNode() {
+    int node;
+    if (freeNode != -1) {
+      node = freeNode;
+      freeNode = nodeParent[node];
+    } else {
+      if (nodeCount == nodeCapacity) {
+        nodeCapacity *= 2;
+        nodeBox = Arrays.copyOf(nodeBox, nodeCapacity * 4);
+        leafBox = Arrays.copyOf(leafBox, nodeCapacity * 4);
+        nodeParent = Arrays.copyOf(nodeParent, nodeCapacity);
+        nodeChild1 = Arrays.copyOf(nodeChild1, nodeCapacity);
+        nodeChild2 = Arrays.copyOf(nodeChild2, nodeCapacity);
+        nodeHeight = Arrays.copyOf(nodeHeight, nodeCapacity);
+        nodeEntity = Arrays.copyOf(nodeEntity, nodeCapacity);
+        nodeIndex = Arrays.copyOf(nodeIndex, nodeCapacity);
+        nodeStamp = Arrays.copyOf(nodeStamp, nodeCapacity);
+      }
+      node = nodeCount;
+    }
+
+    nodeCount++;
+    nodeParent[node] = -1;
+    nodeChild1[node] = -1;
+    nodeChild2[node] = -1;
+    nodeHeight[node] = 0;
+    nodeEntity[node] = null;
+    nodeStamp[node] = 0;
+    return node;
+  }
+
+  private void freeNode(int node) {
+    nodeParent[node] = freeNode;
+    nodeHeight[node] = -1;
+    nodeEntity[node] = null;
+    freeNode = node;
+    nodeCount--;
+  }
+
+  /**
+   * Insert a leaf next to the sibling that grows the tree's total perimeter the least.
+   *
+   * @param leaf leaf node
+   */
+  private void insertLeaf(int leaf) {
+    if (root == -1) {
+      root = leaf;
+      nodeParent[leaf] = -1;
+      return;
+    }
+
+    int l = leaf * 4;
+    int index = root;
+    while (nodeChild1[index] != -1) {
+      int child1 = nodeChild1[index];
+      int child2 = nodeChild2[index];
+
+      float perimeter = perimeter(index, -1);
+      float combined = perimeter(index, leaf);
+
+      // cost of creating a new parent for this node and the leaf
+      float cost = 2 * combined;
+      // minimum cost of pushing the leaf further down the tree
+      float inheritance = 2 * (combined - perimeter);
+
+      float cost1 = descentCost(child1, leaf) + inheritance;
+      float cost2 = descentCost(child2, leaf) + inheritance;
+
+      if (cost < cost1 && cost < cost2) {
+        break;
+      }
+
+      index = cost1 < cost2 ? child1 : child2;
+    }
+
+    int sibling = index;
+    int oldParent = nodeParent[sibling];
+    int newParent = allocateNode();
+    int s = sibling * 4, p = newParent * 4;
+    nodeParent[newParent] = oldParent;
+    nodeBox[p] = Math.min(nodeBox[s], nodeBox[l]);
+    nodeBox[p + 1] = Math.min(nodeBox[s + 1], nodeBox[l + 1]);
+    nodeBox[p + 2] = Math.max(nodeBox[s + 2], nodeBox[l + 2]);
+    nodeBox[p + 3] = Math.max(nodeBox[s + 3], nodeBox[l + 3]);
+    nodeHeight[newParent] = nodeHeight[sibling] + 1;
+
+    if (oldParent != -1) {
+      if (nodeChild1[oldParent] == sibling) {
+        nodeChild1[oldParent] = newParent;
+      } else {
+        nodeChild2[oldParent] = newParent;
+      }
+    } else {
+      root = newParent;
+    }
+
+    nodeChild1[newParent] = sibling;
+    nodeChild2[newParent] = leaf;
+    nodeParent[sibling] = newParent;
+    nodeParent[leaf] = newParent;
+
+    fixUpwards(nodeParent[leaf]);
+  }
+
+  /**
+   * Remove a leaf from the tree, its parent is replaced by its sibling. The leaf node itself is
+   * kept.
+   *
+   * @param leaf leaf node
+   */
+  private void removeLeaf(int leaf) {
+    if (leaf == root) {
+      root = -1;
+      return;
+    }
+
+    int parent = nodeParent[leaf];
+    int grandParent = nodeParent[parent];
+    int sibling = nodeChild1[parent] == leaf ? nodeChild2[parent] : nodeChild1[parent];
+
+    if (grandParent != -1) {
+      if (nodeChild1[grandParent] == parent) {
+        nodeChild1[grandParent] = sibling;
+      } else {
+        nodeChild2[grandParent] = sibling;
+      }
+      nodeParent[sibling] = grandParent;
+      freeNode(parent);
+      fixUpwards(grandParent);
+    } else {
+      root = sibling;
+      nodeParent[sibling] = -1;
+      freeNode(parent);
+    }
+
+    nodeParent[leaf] = -1;
+  }
+
+  /**
+   * Walk from a node up to the root balancing the nodes and refitting their boxes and heights.
+   *
+   * @param node start node
+   */
+  private void fixUpwards(int node) {
+    while (node != -1) {
+      node = balance(node);
+
+      int child1 = nodeChild1[node];
+      int child2 = nodeChild2[node];
+      nodeHeight[node] = 1 + Math.max(nodeHeight[child1], nodeHeight[child2]);
+      union(node, child1, child2);
+
+      node = nodeParent[node];
+    }
+  }
+
+  /**
+   * Rotate node a if its children's heights differ by more than one.
+   *
+   * @param a node
+   * @return the node that took the place of a
+   */
+  private int balance(int a) {
+    if (nodeChild1[a] == -1 || nodeHeight[a] < 2) {
+      return a;
+    }
+
+    int b = nodeChild1[a];
+    int c = nodeChild2[a];
+    int balance = nodeHeight[c] - nodeHeight[b];
+
+    if (balance > 1) {
+      rotations++;
+      return rotateUp(a, c, b, false);
+    }
+
+    if (balance < -1) {
+      rotations++;
+      return rotateUp(a, b, c, true);
+    }
+
+    return a;
+  }
+
+  /**
+   * Rotate the taller child of node a up into a's place.
+   *
+   * @param a          node
+   * @param up         taller child of a, takes a's place
+   * @param other      shorter child of a, stays under a
+   * @param upIsChild1 is the taller child child 1 of a
+   * @return the rotated up node
+   */
+  private int rotateUp(int a, int up, int other, boolean upIsChild1) {
+    int f = nodeChild1[up];
+    int g = nodeChild2[up];
+
+    // swap a and up
+    nodeChild1[up] = a;
+    nodeParent[up] = nodeParent[a];
+    nodeParent[a] = up;
+
+    int parent = nodeParent[up];
+    if (parent != -1) {
+      if (nodeChild1[parent] == a) {
+        nodeChild1[parent] = up;
+      } else {
+        nodeChild2[parent] = up;
+      }
+    } else {
+      root = up;
+    }
+
+    // the taller grand child stays with the rotated node, the other one moves under a
+    int keep = nodeHeight[f] > nodeHeight[g] ? f : g;
+    int move = keep == f ? g : f;
+
+    nodeChild2[up] = keep;
+    if (upIsChild1) {
+      nodeChild1[a] = move;
+    } else {
+      nodeChild2[a] = move;
+    }
+    nodeParent[move] = a;
+
+    union(a, other, move);
+    union(up, a, keep);
+    nodeHeight[a] = 1 + Math.max(nodeHeight[other], nodeHeight[move]);
+    nodeHeight[up] = 1 + Math.max(nodeHeight[a], nodeHeight[keep]);
+    return up;
+  }
+
+  /**
+   * Set the box of a node to the union of two other nodes' boxes.
+   */
+  private void union(int node, int a, int b) {
+    int n = node * 4, i = a * 4, j = b * 4;
+    nodeBox[n] = Math.min(nodeBox[i], nodeBox[j]);
+    nodeBox[n + 1] = Math.min(nodeBox[i + 1], nodeBox[j + 1]);
+    nodeBox[n + 2] = Math.max(nodeBox[i + 2], nodeBox[j + 2]);
+    nodeBox[n + 3] = Math.max(nodeBox[i + 3], nodeBox[j + 3]);
+  }
+
+  /**
+   * Get the perimeter of a node's box, or of the union of two nodes' boxes.
+   *
+   * @param a node a
+   * @param b node b, -1 for only node a
+   * @return perimeter
+   */
+  private float perimeter(int a, int b) {
+    int i = a * 4;
+    if (b == -1) {
+      return 2 * ((nodeBox[i + 2] - nodeBox[i]) + (nodeBox[i + 3] - nodeBox[i + 1]));
+    }
+
+    int j = b * 4;
+    float width = Math.max(nodeBox[i + 2], nodeBox[j + 2]) - Math.min(nodeBox[i], nodeBox[j]);
+    float height = Math.max(nodeBox[i + 3], nodeBox[j + 3])
+        - Math.min(nodeBox[i + 1], nodeBox[j + 1]);
+    return 2 * (width + height);
+  }
+
+  /**
+   * Cost of descending into a child node while inserting a leaf.
+   *
+   * @param child child node
+   * @param leaf  inserted leaf
+   * @return added perimeter
+   */
+  private float descentCost(int child, int leaf) {
+    if (nodeChild1[child] == -1) {
+      return perimeter(child, leaf);
+    }
+    return perimeter(child, leaf) - perimeter(child, -1);
+  }
+
+  // </editor-fold>
+}
@@ -0,0 +1,62 @@
+package schooled.physics.broadphase;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of entity indices found by a {@link Broadphase} query.
+ * <p>
+ * The indices point into the entity list that was handed to the broadphase by the last pair
+ * search. Like {@link PairList} the list keeps its storage between queries.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+class HitList {
+
+  private int[] hits = new int[16];
+  private int size = 0;
+
+  /**
+   * Add an entity index.
+   *
+   * @param index entity index
+   */
+  void add(int index) {
+    if (size == hits.length) {
+      hits = Arrays.copyOf(hits, size * 2);
+    }
+    hits[size++] = index;
+  }
+
+  /**
+   * Sort the indices and remove any duplicates.
+   */
+  void sortUnique() {
+    if (size < 2) {
+      return;
+    }
+
+    Arrays.sort(hits, 0, size);
+
+    int out = 1;
+    for (int i = 1; i < size; i++) {
+      if (hits[i] != hits[out - 1]) {
+        hits[out++] = hits[i];
+      }
+    }
+    size = out;
+  }
+
+  int get(int i) {
+    return hits[i];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
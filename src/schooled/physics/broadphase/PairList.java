@@ -0,0 +1,94 @@
+package schooled.physics.broadphase;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of candidate collision pairs produced by a {@link Broadphase}.
+ * <p>
+ * Each pair is stored as two indices into the entity list that was handed to the broadphase,
+ * packed into a single long with the lower index in the high bits. Sorting the packed values
+ * therefore orders the pairs exactly the same way the original nested a/b loop visits them, which
+ * keeps the narrowphase output identical between broadphase implementations.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class PairList {
+
+  private long[] pairs = new long[64];
+  private int size = 0;
+
+  /**
+   * Add a pair of entity indices. The order of the indices does not matter.
+   *
+   * @param a index of entity a
+   * @param b index of entity b
+   */
+  public void add(int a, int b) {
+    if (size == pairs.length) {
+      pairs = Arrays.copyOf(pairs, size * 2);
+    }
+
+    if (a < b) {
+      pairs[size++] = ((long) a << 32) | b;
+    } else {
+      pairs[size++] = ((long) b << 32) | a;
+    }
+  }
+
+  /**
+   * Sort the pairs into nested loop order and remove any duplicates.
+   */
+  public void sortUnique() {
+    if (size < 2) {
+      return;
+    }
+
+    Arrays.sort(pairs, 0, size);
+
+    int out = 1;
+    for (int i = 1; i < size; i++) {
+      if (pairs[i] != pairs[out - 1]) {
+        pairs[out++] = pairs[i];
+      }
+    }
+    size = out;
+  }
+
+  /**
+   * Get the lower entity index of pair i.
+   *
+   * @param i pair index
+   * @return entity index a
+   */
+  public int getA(int i) {
+    return (int) (pairs[i] >>> 32);
+  }
+
+  /**
+   * Get the higher entity index of pair i.
+   *
+   * @param i pair index
+   * @return entity index b
+   */
+  public int getB(int i) {
+    return (int) pairs[i];
+  }
+
+  /**
+   * Get the number of stored pairs.
+   *
+   * @return pair count
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove all pairs, keeping the allocated storage.
+   */
+  public void clear() {
+    size = 0;
+  }
+}
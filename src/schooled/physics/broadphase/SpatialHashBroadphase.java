@@ -0,0 +1,278 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import schooled.entities.BasicEntity;
+import schooled.physics.BoundingBox;
+
+/**
+ * Uniform grid broadphase.
+ * <p>
+ * Every entity is dropped into the grid cells its world bounding box covers, and only entities that
+ * share a cell are paired. The grid is never stored as a map; each (cell, entity) entry is packed
+ * into a long and the entry array is sorted, so entities of the same cell end up next to each
+ * other. This keeps the broadphase allocation free once the arrays have grown to the room size.
+ * <p>
+ * Entities that cover more than {@link #maxCellSpan} cells on an axis (room walls, large areas) are
+ * not hashed, they are tested against every other entity instead.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class SpatialHashBroadphase implements Broadphase {
+
+  public static final float DEFAULT_CELL_SIZE = 64.0f;
+
+  private static final int INDEX_BITS = 24;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+  private static final int CELL_BITS = 20;
+  private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+  private float cellSize;
+  private int maxCellSpan = 16;
+
+  private final PairList pairs = new PairList();
+  private final HitList hits = new HitList();
+
+  // (cell key << INDEX_BITS | entity index) entries
+  private long[] entries = new long[256];
+  private int entryCount = 0;
+
+  // world space boxes of the current entity list, indexed by entity
+  private float[] boxes = new float[64 * 4];
+  private boolean[] valid = new boolean[64];
+  private int boxCount = 0;
+
+  // entities too large to hash
+  private int[] oversized = new int[16];
+  private int oversizedCount = 0;
+
+  /**
+   * Create a spatial hash with the default cell size.
+   */
+  public SpatialHashBroadphase() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Create a spatial hash with a given cell size.
+   *
+   * @param cellSize width and height of a grid cell
+   */
+  public SpatialHashBroadphase(float cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  public float getCellSize() {
+    return cellSize;
+  }
+
+  public void setCellSize(float cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  public int getMaxCellSpan() {
+    return maxCellSpan;
+  }
+
+  public void setMaxCellSpan(int maxCellSpan) {
+    this.maxCellSpan = maxCellSpan;
+  }
+
+  @Override
+  public PairList findPairs(ArrayList<BasicEntity> entities) {
+    pairs.clear();
+    entryCount = 0;
+    oversizedCount = 0;
+
+    int n = entities.size();
+    if (valid.length < n) {
+      valid = new boolean[n * 2];
+      boxes = new float[n * 2 * 4];
+    }
+
+    float invCell = 1.0f / cellSize;
+    boxCount = n;
+
+    for (int i = 0; i < n; i++) {
+      BasicEntity entity = entities.get(i);
+      valid[i] = false;
+
+      if (!Broadphase.canCollide(entity)) {
+        continue;
+      }
+
+      BoundingBox box = entity.getWorldBoundingBox();
+      if (box == null) {
+        continue;
+      }
+
+      float xMin = box.xMin;
+      float yMin = box.yMin;
+      float xMax = box.xMax;
+      float yMax = box.yMax;
+
+      valid[i] = true;
+      boxes[i * 4] = xMin;
+      boxes[i * 4 + 1] = yMin;
+      boxes[i * 4 + 2] = xMax;
+      boxes[i * 4 + 3] = yMax;
+
+      int cxMin = (int) Math.floor(xMin * invCell);
+      int cyMin = (int) Math.floor(yMin * invCell);
+      int cxMax = (int) Math.floor(xMax * invCell);
+      int cyMax = (int) Math.floor(yMax * invCell);
+
+      if (cxMax - cxMin >= maxCellSpan || cyMax - cyMin >= maxCellSpan) {
+        if (oversizedCount == oversized.length) {
+          oversized = Arrays.copyOf(oversized, oversizedCount * 2);
+        }
+        oversized[oversizedCount++] = i;
+        continue;
+      }
+
+      for (int cx = cxMin; cx <= cxMax; cx++) {
+        for (int cy = cyMin; cy <= cyMax; cy++) {
+          addEntry(cx, cy, i);
+        }
+      }
+    }
+
+    // group the entries by cell
+    Arrays.sort(entries, 0, entryCount);
+
+    int start = 0;
+    while (start < entryCount) {
+      long cell = entries[start] >>> INDEX_BITS;
+      int end = start + 1;
+      while (end < entryCount && (entries[end] >>> INDEX_BITS) == cell) {
+        end++;
+      }
+
+      for (int j = start; j < end; j++) {
+        int a = (int) (entries[j] & INDEX_MASK);
+        for (int k = j + 1; k < end; k++) {
+          addCandidate(entities, a, (int) (entries[k] & INDEX_MASK));
+        }
+      }
+
+      start = end;
+    }
+
+    // oversized entities are tested against everything else
+    for (int o = 0; o < oversizedCount; o++) {
+      int a = oversized[o];
+      for (int b = 0; b < n; b++) {
+        if (b != a && valid[b]) {
+          addCandidate(entities, a, b);
+        }
+      }
+    }
+
+    pairs.sortUnique();
+    return pairs;
+  }
+
+  /**
+   * Look the box up in the cells it covers. Boxes covering more cells than there are entries are
+   * tested against every hashed entity instead.
+   */
+  @Override
+  public int query(float xMin, float yMin, float xMax, float yMax) {
+    hits.clear();
+
+    float invCell = 1.0f / cellSize;
+    int cxMin = (int) Math.floor(xMin * invCell);
+    int cyMin = (int) Math.floor(yMin * invCell);
+    int cxMax = (int) Math.floor(xMax * invCell);
+    int cyMax = (int) Math.floor(yMax * invCell);
+
+    if ((long) (cxMax - cxMin + 1) * (cyMax - cyMin + 1) > entryCount) {
+      for (int i = 0; i < boxCount; i++) {
+        if (valid[i] && touches(i, xMin, yMin, xMax, yMax)) {
+          hits.add(i);
+        }
+      }
+    } else {
+      for (int cx = cxMin; cx <= cxMax; cx++) {
+        for (int cy = cyMin; cy <= cyMax; cy++) {
+          queryCell(cx, cy, xMin, yMin, xMax, yMax);
+        }
+      }
+
+      for (int o = 0; o < oversizedCount; o++) {
+        if (touches(oversized[o], xMin, yMin, xMax, yMax)) {
+          hits.add(oversized[o]);
+        }
+      }
+    }
+
+    hits.sortUnique();
+    return hits.size();
+  }
+
+  @Override
+  public int getHit(int i) {
+    return hits.get(i);
+  }
+
+  /**
+   * Add the entities of a cell that touch a box to the query results.
+   */
+  private void queryCell(int cx, int cy, float xMin, float yMin, float xMax, float yMax) {
+    long key = ((cx & CELL_MASK) << CELL_BITS) | (cy & CELL_MASK);
+    int start = Arrays.binarySearch(entries, 0, entryCount, key << INDEX_BITS);
+    if (start < 0) {
+      start = -start - 1;
+    }
+
+    for (int j = start; j < entryCount && (entries[j] >>> INDEX_BITS) == key; j++) {
+      int index = (int) (entries[j] & INDEX_MASK);
+      if (touches(index, xMin, yMin, xMax, yMax)) {
+        hits.add(index);
+      }
+    }
+  }
+
+  private boolean touches(int i, float xMin, float yMin, float xMax, float yMax) {
+    return boxes[i * 4 + 2] >= xMin && xMax >= boxes[i * 4]
+        && boxes[i * 4 + 3] >= yMin && yMax >= boxes[i * 4 + 1];
+  }
+
+  /**
+   * Store a cell entry for an entity.
+   *
+   * @param cx    cell x
+   * @param cy    cell y
+   * @param index entity index
+   */
+  private void addEntry(int cx, int cy, int index) {
+    if (entryCount == entries.length) {
+      entries = Arrays.copyOf(entries, entryCount * 2);
+    }
+
+    // far away cells can share a key after masking, that only adds extra candidates
+    long key = ((cx & CELL_MASK) << CELL_BITS) | (cy & CELL_MASK);
+    entries[entryCount++] = (key << INDEX_BITS) | index;
+  }
+
+  /**
+   * Add a pair if the two entities can interact and their world boxes touch.
+   *
+   * @param entities entity list
+   * @param a        index of entity a
+   * @param b        index of entity b
+   */
+  private void addCandidate(ArrayList<BasicEntity> entities, int a, int b) {
+    // inclusive test, the engine runs the exact (exclusive) test later
+    if (boxes[a * 4 + 2] < boxes[b * 4] || boxes[b * 4 + 2] < boxes[a * 4]
+        || boxes[a * 4 + 3] < boxes[b * 4 + 1] || boxes[b * 4 + 3] < boxes[a * 4 + 1]) {
+      return;
+    }
+
+    if (Broadphase.canPair(entities.get(a), entities.get(b))) {
+      pairs.add(a, b);
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import schooled.entities.BasicEntity;
+import schooled.physics.BoundingBox;
+import schooled.physics.MultiShape;
+import schooled.physics.Shape;
+import schooled.physics.Vector;
+
+/**
+ * Bounding volume hierarchy over entities that never move, like room walls.
+ * <p>
+ * The tree is built once from the entity list and queried with world space boxes. Plain
+ * MultiShapes are split into one leaf per sub-shape so a wall entity made of several long wall
+ * pieces (see {@link schooled.containers.Room#generateRectangleWalls(float, float)}) is only
+ * reported when one of the pieces is actually near the query box. The tree has to be rebuilt if
+ * any of the entities move or change shape.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class StaticBVH {
+
+  private static final int LEAF_SIZE = 4;
+
+  private final ArrayList<BasicEntity> entities;
+
+  // leaf data
+  private int leafCount = 0;
+  private int[] leafEntity = new int[16];
+  private float[] leafBox = new float[16 * 4]; // xMin, yMin, xMax, yMax
+
+  // node data, leaf nodes have a leaf range, inner nodes have two children
+  private int nodeCount = 0;
+  private float[] nodeBox = new float[16 * 4];
+  private int[] nodeLeft = new int[16];
+  private int[] nodeRight = new int[16];
+  private int[] nodeStart = new int[16];
+  private int[] nodeSize = new int[16];
+  private int depth = 0;
+
+  // query registers
+  private int[] stack = new int[64];
+  private int[] hits = new int[16];
+  private int[] seen;
+  private int queryStamp = 0;
+
+  /**
+   * Build a tree from a list of static entities.
+   *
+   * @param statics static entities
+   */
+  public StaticBVH(List<? extends BasicEntity> statics) {
+    entities = new ArrayList<>(statics);
+    seen = new int[entities.size()];
+
+    for (int i = 0; i < entities.size(); i++) {
+      BasicEntity entity = entities.get(i);
+      Shape shape = entity.getShape();
+
+      if (shape != null && shape.getClass() == MultiShape.class) {
+        addLeaves(i, (MultiShape) shape, entity.getPosition());
+      } else {
+        BoundingBox bb = entity.getBroadBoundingBox();
+        if (bb != null) {
+          addLeaf(i, bb, entity.getPosition());
+        }
+      }
+    }
+
+    if (leafCount > 0) {
+      int[] order = new int[leafCount];
+      for (int i = 0; i < leafCount; i++) {
+        order[i] = i;
+      }
+      build(order, 0, leafCount, 1);
+
+      // store leaves in tree order so leaf nodes reference contiguous ranges
+      int[] sortedEntity = new int[leafCount];
+      float[] sortedBox = new float[leafCount * 4];
+      for (int i = 0; i < leafCount; i++) {
+        sortedEntity[i] = leafEntity[order[i]];
+        System.arraycopy(leafBox, order[i] * 4, sortedBox, i * 4, 4);
+      }
+      leafEntity = sortedEntity;
+      leafBox = sortedBox;
+    }
+
+    stack = new int[Math.max(stack.length, depth * 2 + 2)];
+  }
+
+  /**
+   * Add one leaf for each sub-shape of a MultiShape.
+   *
+   * @param index entity index
+   * @param ms    shape
+   * @param pos   world position of the shape
+   */
+  private void addLeaves(int index, MultiShape ms, Vector pos) {
+    for (int i = 0; i < ms.size(); i++) {
+      Shape shape = ms.getShape(i);
+      Vector shift = pos.addi(ms.getShift(i));
+
+      if (shape != null && shape.getClass() == MultiShape.class) {
+        addLeaves(index, (MultiShape) shape, shift);
+      } else if (shape != null && shape.getBoundingBox() != null) {
+        addLeaf(index, shape.getBoundingBox(), shift);
+      }
+    }
+  }
+
+  private void addLeaf(int index, BoundingBox bb, Vector pos) {
+    if (leafCount == leafEntity.length) {
+      leafEntity = Arrays.copyOf(leafEntity, leafCount * 2);
+      leafBox = Arrays.copyOf(leafBox, leafCount * 2 * 4);
+    }
+
+    leafEntity[leafCount] = index;
+    leafBox[leafCount * 4] = pos.getX() + bb.xMin;
+    leafBox[leafCount * 4 + 1] = pos.getY() + bb.yMin;
+    leafBox[leafCount * 4 + 2] = pos.getX() + bb.xMax;
+    leafBox[leafCount * 4 + 3] = pos.getY() + bb.yMax;
+    leafCount++;
+  }
+
+  /**
+   * Recursively build a node from a range of leaves, splitting on the median of the longest axis.
+   *
+   * @param order leaf order
+   * @param start range start
+   * @param end   range end (exclusive)
+   * @param level depth of the node
+   * @return node index
+   */
+  private int build(int[] order, int start, int end, int level) {
+    int node = nodeCount++;
+    if (node == nodeLeft.length) {
+      int size = nodeLeft.length * 2;
+      nodeBox = Arrays.copyOf(nodeBox, size * 4);
+      nodeLeft = Arrays.copyOf(nodeLeft, size);
+      nodeRight = Arrays.copyOf(nodeRight, size);
+      nodeStart = Arrays.copyOf(nodeStart, size);
+      nodeSize = Arrays.copyOf(nodeSize, size);
+    }
+    depth = Math.max(depth, level);
+
+    float xMin = Float.MAX_VALUE, yMin = Float.MAX_VALUE;
+    float xMax = -Float.MAX_VALUE, yMax = -Float.MAX_VALUE;
+    for (int i = start; i < end; i++) {
+      int l = order[i] * 4;
+      xMin = Math.min(xMin, leafBox[l]);
+      yMin = Math.min(yMin, leafBox[l + 1]);
+      xMax = Math.max(xMax, leafBox[l + 2]);
+      yMax = Math.max(yMax, leafBox[l + 3]);
+    }
+
+    nodeBox[node * 4] = xMin;
+    nodeBox[node * 4 + 1] = yMin;
+    nodeBox[node * 4 + 2] = xMax;
+    nodeBox[node * 4 + 3] = yMax;
+    nodeLeft[node] = -1;
+    nodeRight[node] = -1;
+    nodeStart[node] = start;
+    nodeSize[node] = end - start;
+
+    if (end - start <= LEAF_SIZE) {
+      return node;
+    }
+
+    // sort the range by leaf center on the longest axis and split in half
+    int axis = (xMax - xMin) >= (yMax - yMin) ? 0 : 1;
+    Integer[] range = new Integer[end - start];
+    for (int i = start; i < end; i++) {
+      range[i - start] = order[i];
+    }
+    Arrays.sort(range, (a, b) -> Float.compare(leafBox[a * 4 + axis] + leafBox[a * 4 + 2 + axis],
+        leafBox[b * 4 + axis] + leafBox[b * 4 + 2 + axis]));
+    for (int i = start; i < end; i++) {
+      order[i] = range[i - start];
+    }
+
+    int mid = (start + end) / 2;
+    int left = build(order, start, mid, level + 1);
+    int right = build(order, mid, end, level + 1);
+    nodeLeft[node] = left;
+    nodeRight[node] = right;
+    return node;
+  }
+
+  /**
+   * Find all the entities with a leaf that touches a world space box. Each entity is reported
+   * once, in ascending entity index order.
+   * <p>
+   * Results are read with {@link #getHit(int)} and are valid until the next query.
+   *
+   * @return number of entities found
+   */
+  public int query(float xMin, float yMin, float xMax, float yMax) {
+    int count = 0;
+    if (nodeCount == 0) {
+      return 0;
+    }
+
+    queryStamp++;
+    int top = 0;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      int node = stack[--top];
+      int b = node * 4;
+
+      if (nodeBox[b + 2] < xMin || xMax < nodeBox[b]
+          || nodeBox[b + 3] < yMin || yMax < nodeBox[b + 1]) {
+        continue;
+      }
+
+      if (nodeLeft[node] == -1) {
+        for (int i = nodeStart[node]; i < nodeStart[node] + nodeSize[node]; i++) {
+          int l = i * 4;
+          int entity = leafEntity[i];
+          if (seen[entity] == queryStamp || leafBox[l + 2] < xMin || xMax < leafBox[l]
+              || leafBox[l + 3] < yMin || yMax < leafBox[l + 1]) {
+            continue;
+          }
+
+          seen[entity] = queryStamp;
+          if (count == hits.length) {
+            hits = Arrays.copyOf(hits, count * 2);
+          }
+          hits[count++] = entity;
+        }
+      } else {
+        stack[top++] = nodeLeft[node];
+        stack[top++] = nodeRight[node];
+      }
+    }
+
+    Arrays.sort(hits, 0, count);
+    return count;
+  }
+
+  /**
+   * Get the entity index of a query result.
+   *
+   * @param i result index
+   * @return entity index
+   */
+  public int getHit(int i) {
+    return hits[i];
+  }
+
+  /**
+   * Get a static entity by index.
+   *
+   * @param i entity index
+   * @return entity
+   */
+  public BasicEntity getEntity(int i) {
+    return entities.get(i);
+  }
+
+  /**
+   * Get the static entities of the tree.
+   *
+   * @return entity list
+   */
+  public ArrayList<BasicEntity> getEntities() {
+    return entities;
+  }
+
+  public int size() {
+    return entities.size();
+  }
+
+  public int getLeafCount() {
+    return leafCount;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+}
@@ -0,0 +1,372 @@
+package schooled.physics.broadphase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import schooled.entities.BasicEntity;
+import schooled.physics.BoundingBox;
+
+/**
+ * Persistent sweep and prune broadphase.
+ * <p>
+ * Every entity gets a proxy that survives between ticks. The min and max x values of all proxies
+ * are kept in one sorted endpoint array that is re-sorted with an insertion sort each tick. Since
+ * entities only move a few pixels per tick the array is almost sorted already and the sort is
+ * close to linear. A single sweep over the endpoints then produces the overlapping pairs.
+ * <p>
+ * The pair list of the previous tick is kept so the pairs that started or stopped overlapping can
+ * be queried with {@link #getAddedPairs()} and {@link #getRemovedPairs()}. The deltas hold proxy
+ * ids like the pair list holds entity indices, {@link #getProxyEntity(int)} turns them into
+ * entities.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class SweepAndPruneBroadphase implements Broadphase {
+
+  private final PairList pairs = new PairList();
+  private final HitList hits = new HitList();
+
+  // proxy data, indexed by proxy id
+  private final IdentityHashMap<BasicEntity, Integer> proxyLookup = new IdentityHashMap<>();
+  private BasicEntity[] proxyEntity = new BasicEntity[64];
+  private float[] proxyBox = new float[64 * 4]; // xMin, yMin, xMax, yMax
+  private int[] proxyIndex = new int[64]; // index of the proxy's entity in the current list
+  private int[] proxyStamp = new int[64]; // last tick the proxy was seen
+  private int[] activeSlot = new int[64]; // slot of the proxy in the active list of the sweep
+  private int[] freeIds = new int[16];
+  private int[] dropped = new int[16];
+  private int droppedCount = 0;
+  private int freeCount = 0;
+  private int proxyCount = 0;
+  private int stamp = 0;
+
+  // sorted endpoints, data is (proxy id << 1 | 1 if max endpoint)
+  private float[] endValue = new float[128];
+  private int[] endData = new int[128];
+  private int endCount = 0;
+
+  private int[] active = new int[64];
+  private int activeCount = 0;
+
+  // overlapping proxy id pairs of this tick and the previous tick
+  private long[] current = new long[64];
+  private int currentCount = 0;
+  private long[] previous = new long[64];
+  private int previousCount = 0;
+
+  // proxy id pairs that started and stopped overlapping during the last pair search
+  private final PairList added = new PairList();
+  private final PairList removed = new PairList();
+
+  @Override
+  public PairList findPairs(ArrayList<BasicEntity> entities) {
+    stamp++;
+    pairs.clear();
+
+    releaseDropped();
+    updateProxies(entities);
+    sortEndpoints();
+    sweep();
+    buildDeltas();
+
+    for (int i = 0; i < currentCount; i++) {
+      int a = (int) (current[i] >>> 32);
+      int b = (int) current[i];
+      if (Broadphase.canPair(proxyEntity[a], proxyEntity[b])) {
+        pairs.add(proxyIndex[a], proxyIndex[b]);
+      }
+    }
+
+    pairs.sortUnique();
+    return pairs;
+  }
+
+  /**
+   * Walk the sorted endpoints up to the right side of the box, every proxy that starts before it
+   * is tested on both axes.
+   */
+  @Override
+  public int query(float xMin, float yMin, float xMax, float yMax) {
+    hits.clear();
+
+    for (int i = 0; i < endCount && endValue[i] <= xMax; i++) {
+      if ((endData[i] & 1) == 1) {
+        continue;
+      }
+
+      int id = endData[i] >> 1;
+      if (proxyBox[id * 4 + 2] >= xMin && proxyBox[id * 4 + 3] >= yMin
+          && yMax >= proxyBox[id * 4 + 1]) {
+        hits.add(proxyIndex[id]);
+      }
+    }
+
+    hits.sortUnique();
+    return hits.size();
+  }
+
+  @Override
+  public int getHit(int i) {
+    return hits.get(i);
+  }
+
+  /**
+   * Get the proxy pairs that started overlapping during the last call to {@link #findPairs}.
+   * <p>
+   * The pairs hold proxy ids instead of entity indices, see {@link #getProxyEntity(int)}. The list
+   * is reused and valid until the next pair search.
+   *
+   * @return added pairs
+   */
+  public PairList getAddedPairs() {
+    return added;
+  }
+
+  /**
+   * Get the proxy pairs that stopped overlapping during the last call to {@link #findPairs}, like
+   * {@link #getAddedPairs()}.
+   * <p>
+   * Includes pairs of entities that left the entity list, their proxies are kept until the next
+   * pair search.
+   *
+   * @return removed pairs
+   */
+  public PairList getRemovedPairs() {
+    return removed;
+  }
+
+  /**
+   * Get the entity of a proxy id from the pair deltas.
+   *
+   * @param id proxy id
+   * @return entity of the proxy
+   */
+  public BasicEntity getProxyEntity(int id) {
+    return proxyEntity[id];
+  }
+
+  /**
+   * Get the number of entities tracked by the broadphase.
+   *
+   * @return proxy count
+   */
+  public int getProxyCount() {
+    return proxyLookup.size() - droppedCount;
+  }
+
+  /**
+   * Create, update and remove proxies to match the entity list.
+   *
+   * @param entities entity list
+   */
+  private void updateProxies(ArrayList<BasicEntity> entities) {
+    for (int i = 0; i < entities.size(); i++) {
+      BasicEntity entity = entities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+
+      Integer id = proxyLookup.get(entity);
+      if (box == null) {
+        continue;
+      }
+
+      if (id == null) {
+        id = createProxy(entity);
+      } else if (proxyStamp[id] == stamp) {
+        // entity listed twice, keep the first index
+        continue;
+      }
+
+      proxyBox[id * 4] = box.xMin;
+      proxyBox[id * 4 + 1] = box.yMin;
+      proxyBox[id * 4 + 2] = box.xMax;
+      proxyBox[id * 4 + 3] = box.yMax;
+      proxyIndex[id] = i;
+      proxyStamp[id] = stamp;
+    }
+
+    // drop proxies whose entity left the list or lost its box, the ids are released at the start
+    //  of the next pair search so removed pairs can still name their entities
+    droppedCount = 0;
+    for (int id = 0; id < proxyCount; id++) {
+      if (proxyEntity[id] != null && proxyStamp[id] != stamp) {
+        if (droppedCount == dropped.length) {
+          dropped = Arrays.copyOf(dropped, droppedCount * 2);
+        }
+        dropped[droppedCount++] = id;
+      }
+    }
+
+    if (droppedCount > 0) {
+      int out = 0;
+      for (int i = 0; i < endCount; i++) {
+        if (proxyStamp[endData[i] >> 1] == stamp) {
+          endValue[out] = endValue[i];
+          endData[out++] = endData[i];
+        }
+      }
+      endCount = out;
+    }
+
+    // refresh the endpoint values from the proxy boxes
+    for (int i = 0; i < endCount; i++) {
+      int id = endData[i] >> 1;
+      endValue[i] = (endData[i] & 1) == 0 ? proxyBox[id * 4] : proxyBox[id * 4 + 2];
+    }
+  }
+
+  /**
+   * Allocate a proxy for an entity and append its endpoints.
+   *
+   * @param entity entity
+   * @return proxy id
+   */
+  private int createProxy(BasicEntity entity) {
+    int id;
+    if (freeCount > 0) {
+      id = freeIds[--freeCount];
+    } else {
+      id = proxyCount++;
+      if (id == proxyEntity.length) {
+        int size = proxyEntity.length * 2;
+        proxyEntity = Arrays.copyOf(proxyEntity, size);
+        proxyBox = Arrays.copyOf(proxyBox, size * 4);
+        proxyIndex = Arrays.copyOf(proxyIndex, size);
+        proxyStamp = Arrays.copyOf(proxyStamp, size);
+        activeSlot = Arrays.copyOf(activeSlot, size);
+        active = Arrays.copyOf(active, size);
+      }
+    }
+
+    proxyEntity[id] = entity;
+    proxyLookup.put(entity, id);
+
+    if (endCount + 2 > endValue.length) {
+      endValue = Arrays.copyOf(endValue, endValue.length * 2);
+      endData = Arrays.copyOf(endData, endData.length * 2);
+    }
+
+    // values are refreshed before sorting, new endpoints get sorted in from the end
+    endData[endCount++] = id << 1;
+    endData[endCount++] = (id << 1) | 1;
+    return id;
+  }
+
+  /**
+   * Insertion sort the endpoint array. Min endpoints are sorted before max endpoints of the same
+   * value so touching boxes are reported.
+   */
+  private void sortEndpoints() {
+    for (int i = 1; i < endCount; i++) {
+      float value = endValue[i];
+      int data = endData[i];
+      int j = i - 1;
+
+      while (j >= 0 && (endValue[j] > value
+          || (endValue[j] == value && (endData[j] & 1) > (data & 1)))) {
+        endValue[j + 1] = endValue[j];
+        endData[j + 1] = endData[j];
+        j--;
+      }
+
+      endValue[j + 1] = value;
+      endData[j + 1] = data;
+    }
+  }
+
+  /**
+   * Sweep the sorted endpoints and collect every proxy pair that overlaps on both axes.
+   */
+  private void sweep() {
+    long[] swap = previous;
+    previous = current;
+    previousCount = currentCount;
+    current = swap;
+    currentCount = 0;
+    activeCount = 0;
+
+    for (int i = 0; i < endCount; i++) {
+      int id = endData[i] >> 1;
+
+      if ((endData[i] & 1) == 1) {
+        // remove the proxy from the active list
+        int slot = activeSlot[id];
+        int last = active[--activeCount];
+        active[slot] = last;
+        activeSlot[last] = slot;
+        continue;
+      }
+
+      float yMin = proxyBox[id * 4 + 1];
+      float yMax = proxyBox[id * 4 + 3];
+
+      for (int k = 0; k < activeCount; k++) {
+        int other = active[k];
+        if (proxyBox[other * 4 + 3] >= yMin && yMax >= proxyBox[other * 4 + 1]) {
+          addCurrent(id, other);
+        }
+      }
+
+      activeSlot[id] = activeCount;
+      active[activeCount++] = id;
+    }
+
+    Arrays.sort(current, 0, currentCount);
+  }
+
+  /**
+   * Store an overlapping proxy pair for this tick.
+   *
+   * @param a proxy a
+   * @param b proxy b
+   */
+  private void addCurrent(int a, int b) {
+    if (currentCount == current.length) {
+      current = Arrays.copyOf(current, currentCount * 2);
+    }
+
+    current[currentCount++] = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+  }
+
+  /**
+   * Compare the sorted pair lists of this tick and the last tick to find the pair deltas.
+   * <p>
+   * Both lists come out sorted like the pair lists they are built from.
+   */
+  private void buildDeltas() {
+    added.clear();
+    removed.clear();
+
+    int i = 0, j = 0;
+    while (i < currentCount || j < previousCount) {
+      if (j >= previousCount || (i < currentCount && current[i] < previous[j])) {
+        added.add((int) (current[i] >>> 32), (int) current[i]);
+        i++;
+      } else if (i >= currentCount || previous[j] < current[i]) {
+        removed.add((int) (previous[j] >>> 32), (int) previous[j]);
+        j++;
+      } else {
+        i++;
+        j++;
+      }
+    }
+  }
+
+  /**
+   * Release the ids of the proxies dropped by the last pair search.
+   */
+  private void releaseDropped() {
+    for (int i = 0; i < droppedCount; i++) {
+      int id = dropped[i];
+      proxyLookup.remove(proxyEntity[id]);
+      proxyEntity[id] = null;
+
+      if (freeCount == freeIds.length) {
+        freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+      }
+      freeIds[freeCount++] = id;
+    }
+    droppedCount = 0;
+  }
+}
@@ -0,0 +1,258 @@
+package schooled.test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import schooled.engines.Engine;
+import schooled.physics.Manifold;
+import schooled.physics.PolygonShape;
+import schooled.physics.Vector;
+
+/**
+ * Differential test of the convex polygon collision test against the general polygon collision
+ * test. Random convex polygons are placed around each other and both tests have to agree on the
+ * collision, the normal, the depth and which entity positions are inside the other polygon.
+ * <p>
+ * Every tenth pair is two boxes on a grid so edges and corners lying on each other are tested.
+ * Pairs only the convex test reports are counted on their own if the polygons only touch, the
+ * tests are allowed to disagree there.
+ * <p>
+ * Concave polygons split into convex pieces are compared with the general test as well.
+ * <p>
+ * Run from the main method, an optional first argument sets the number of pairs.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class ConvexCollisionTest {
+
+  private static final float TOUCH = 1e-3f;
+
+  public static void main(String[] args) {
+    int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    Random random = new Random(16);
+
+    checkConvexity(random);
+
+    int collisions = 0, touching = 0, mismatches = 0;
+    for (int i = 0; i < pairs; i++) {
+      PolygonShape sA, sB;
+      Vector pA, pB;
+      if (i % 10 == 0) {
+        // boxes on a grid, these touch along their edges and corners like walls and crates do
+        sA = new PolygonShape(10 * (1 + random.nextInt(3)), 10 * (1 + random.nextInt(3)));
+        sB = new PolygonShape(10 * (1 + random.nextInt(3)), 10 * (1 + random.nextInt(3)));
+        pA = new Vector(5 * random.nextInt(20), 5 * random.nextInt(20));
+        pB = new Vector(pA.getX() + 5 * (random.nextInt(9) - 4),
+            pA.getY() + 5 * (random.nextInt(9) - 4));
+      } else {
+        sA = randomConvex(random);
+        sB = randomConvex(random);
+        pA = new Vector(random.nextFloat() * 100, random.nextFloat() * 100);
+        pB = new Vector(pA.getX() + (random.nextFloat() - 0.5f) * 120,
+            pA.getY() + (random.nextFloat() - 0.5f) * 120);
+      }
+
+      Manifold general = new Manifold();
+      Manifold convex = new Manifold();
+      boolean gHit = Engine.eulerPollyCollision(null, sA, pA, null, sB, pB, general);
+      boolean cHit = Engine.convexPollyCollision(null, sA, pA, null, sB, pB, convex);
+
+      if (gHit != cHit) {
+        // a pair only the convex test catches is fine if the polygons only touch
+        if (cHit && convex.getContactCount() == 1 && depth(convex) < TOUCH) {
+          touching++;
+        } else {
+          mismatches++;
+          report(i, sA, pA, sB, pB, general, convex);
+        }
+        continue;
+      }
+
+      if (!gHit) {
+        continue;
+      }
+
+      collisions++;
+      boolean same = general.getContactCount() == convex.getContactCount()
+          && general.getNormalX(0) == convex.getNormalX(0)
+          && general.getNormalY(0) == convex.getNormalY(0)
+          && general.getDepthX(0) == convex.getDepthX(0)
+          && general.getDepthY(0) == convex.getDepthY(0)
+          && general.aEulerCount % 2 == convex.aEulerCount % 2
+          && general.bEulerCount % 2 == convex.bEulerCount % 2;
+
+      if (!same) {
+        mismatches++;
+        report(i, sA, pA, sB, pB, general, convex);
+      }
+    }
+
+    System.out.println("pairs " + pairs + ", collisions " + collisions + ", touching "
+        + touching + ", mismatches " + mismatches);
+
+    compareConcave(random, pairs / 10);
+  }
+
+  /**
+   * Compare concave polygons split into convex pieces with the general test on the whole polygon.
+   * The pieces give one manifold each so only the collision and the euler counts are compared,
+   * {@link Engine#isInside} has to give the same answer for every manifold of the pair.
+   */
+  private static void compareConcave(Random random, int pairs) {
+    int collisions = 0, pieces = 0, unsplit = 0, mismatches = 0;
+    for (int i = 0; i < pairs; i++) {
+      PolygonShape sA = randomStar(random);
+      PolygonShape sB = new PolygonShape(5 + random.nextInt(20), 5 + random.nextInt(20));
+      Vector pA = new Vector(random.nextFloat() * 100, random.nextFloat() * 100);
+      Vector pB = new Vector(pA.getX() + (random.nextFloat() - 0.5f) * 80,
+          pA.getY() + (random.nextFloat() - 0.5f) * 80);
+
+      if (sA.getConvexPieces() == null) {
+        unsplit++;
+        continue;
+      }
+      pieces += sA.getConvexPieces().length;
+
+      Manifold general = new Manifold();
+      boolean gHit = Engine.eulerPollyCollision(null, sA, pA, null, sB, pB, general);
+      ArrayList<Manifold> split = Engine.routeEntityShapes(null, sA, pA, null, sB, pB);
+
+      boolean same = gHit == !split.isEmpty();
+      for (Manifold m : split) {
+        same &= m.aEulerCount % 2 == general.aEulerCount % 2
+            && m.bEulerCount % 2 == general.bEulerCount % 2;
+      }
+
+      if (gHit) {
+        collisions++;
+      }
+      if (!same) {
+        mismatches++;
+        System.out.println("concave pair " + i + ": " + sA + " at " + pA + ", " + sB + " at " + pB);
+      }
+    }
+
+    System.out.println("concave pairs " + pairs + ", collisions " + collisions + ", pieces "
+        + pieces + ", unsplit " + unsplit + ", mismatches " + mismatches);
+  }
+
+  /**
+   * Check the convexity detection on shapes with a known answer.
+   */
+  private static void checkConvexity(Random random) {
+    check("box", new PolygonShape(10, 20).isConvex());
+
+    PolygonShape flipped = new PolygonShape(10, 20);
+    flipped.flipHorizontal();
+    check("flipped box", flipped.isConvex());
+
+    // counter clockwise polygons have inward edge normals
+    PolygonShape reversed = new PolygonShape();
+    PolygonShape box = new PolygonShape(10, 20);
+    for (int i = box.getSize() - 1; i >= 0; i--) {
+      reversed.addVertex(box.getVertex(i));
+    }
+    check("counter clockwise box", !reversed.isConvex());
+
+    // an L shape
+    PolygonShape concave = new PolygonShape();
+    concave.addVertex(0, 20);
+    concave.addVertex(10, 20);
+    concave.addVertex(10, 10);
+    concave.addVertex(20, 10);
+    concave.addVertex(20, 0);
+    concave.addVertex(0, 0);
+    check("L shape", !concave.isConvex());
+
+    // a five pointed star only turns one way but crosses itself
+    PolygonShape star = new PolygonShape();
+    for (int i = 0; i < 5; i++) {
+      double angle = -i * 4 * Math.PI / 5;
+      star.addVertex((float) Math.cos(angle) * 10, (float) Math.sin(angle) * 10);
+    }
+    check("star", !star.isConvex());
+
+    for (int i = 0; i < 1000; i++) {
+      check("random convex", randomConvex(random).isConvex());
+    }
+  }
+
+  private static void check(String name, boolean passed) {
+    if (!passed) {
+      System.out.println("convexity check failed: " + name);
+    }
+  }
+
+  /**
+   * Create a clockwise convex polygon from points on an ellipse. The general test counts an entity
+   * position inside the other polygon as a collision, so the polygon has to contain the origin like
+   * the shape of an entity contains its position.
+   */
+  private static PolygonShape randomConvex(Random random) {
+    PolygonShape shape;
+    do {
+      shape = randomPolygon(random);
+    } while (!containsOrigin(shape));
+    return shape;
+  }
+
+  private static boolean containsOrigin(PolygonShape shape) {
+    for (int i = 0; i < shape.getSize(); i++) {
+      if (-shape.getX(i) * shape.getNormalX(i) - shape.getY(i) * shape.getNormalY(i) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Create a clockwise polygon around the origin with points at random distances, most of these
+   * are concave.
+   */
+  private static PolygonShape randomStar(Random random) {
+    int size = 4 + random.nextInt(12);
+    PolygonShape shape = new PolygonShape();
+    for (int i = 0; i < size; i++) {
+      double angle = -(i + random.nextDouble() * 0.5) * Math.PI * 2 / size;
+      double radius = 5 + random.nextDouble() * 30;
+      shape.addVertex((float) (Math.cos(angle) * radius), (float) (Math.sin(angle) * radius));
+    }
+    return shape;
+  }
+
+  private static PolygonShape randomPolygon(Random random) {
+    int size = 3 + random.nextInt(6);
+    float rx = 5 + random.nextFloat() * 30;
+    float ry = 5 + random.nextFloat() * 30;
+    double offset = random.nextDouble() * Math.PI * 2;
+
+    PolygonShape shape = new PolygonShape();
+    for (int i = 0; i < size; i++) {
+      // keep the angles in order with some jitter so the points never swap
+      double angle = offset - (i + random.nextDouble() * 0.8) * Math.PI * 2 / size;
+      shape.addVertex((float) Math.cos(angle) * rx, (float) Math.sin(angle) * ry);
+    }
+    return shape;
+  }
+
+  private static float depth(Manifold m) {
+    return (float) Math.hypot(m.getDepthX(0), m.getDepthY(0));
+  }
+
+  private static void report(int i, PolygonShape sA, Vector pA, PolygonShape sB, Vector pB,
+      Manifold general, Manifold convex) {
+    System.out.println("pair " + i + ": " + sA + " at " + pA + ", " + sB + " at " + pB);
+    System.out.println("  general " + describe(general));
+    System.out.println("  convex  " + describe(convex));
+  }
+
+  private static String describe(Manifold m) {
+    if (m.getContactCount() == 0) {
+      return "no collision";
+    }
+    return "normal (" + m.getNormalX(0) + ", " + m.getNormalY(0) + ") depth ("
+        + m.getDepthX(0) + ", " + m.getDepthY(0) + ") euler " + m.aEulerCount + " "
+        + m.bEulerCount;
+  }
+}
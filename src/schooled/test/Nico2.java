@@ -7,7 +7,6 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import org.lwjgl.glfw.GLFW;
 import schooled.Game;
 import schooled.Window;
@@ -17,6 +16,7 @@ import schooled.entities.BasicEntity;
 import schooled.menu.MenuEntity;
 import schooled.menu.Origin;
 import schooled.physics.Manifold;
+import schooled.physics.ManifoldLookup;
 import schooled.physics.MassTree;
 import schooled.physics.PolygonShape;
 import schooled.physics.Vector;
@@ -140,7 +140,7 @@ public class Nico2 {
 
     ArrayList<BasicEntity> entities = new ArrayList<>(Arrays.asList(e1, e2, e3, e4, e5, e6, e7, e8, e9, e10, e11, e12, e13, e14, e15, e16, e17, e18, e19, e20, e21, e22, e23, e26, e27, e28));
     ArrayList<Manifold> manifolds = new ArrayList<>();
-    HashMap<BasicEntity, ArrayList<Manifold>> map;
+    ManifoldLookup map;
     MassTree data = new MassTree();
 
     boolean move = false;
@@ -0,0 +1,123 @@
+package schooled.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import schooled.containers.Room;
+import schooled.engines.Engine;
+import schooled.entities.Entity;
+import schooled.physics.BoundingBox;
+import schooled.physics.PolygonShape;
+import schooled.physics.Vector;
+import schooled.physics.broadphase.Broadphase;
+import schooled.physics.broadphase.BruteForceBroadphase;
+import schooled.physics.broadphase.DynamicTreeBroadphase;
+import schooled.physics.broadphase.SpatialHashBroadphase;
+import schooled.physics.broadphase.SweepAndPruneBroadphase;
+
+/**
+ * Differential test of the spatial queries of a room against a search of the whole entity list.
+ * <p>
+ * Crates drift around a room and every few ticks one of them is teleported much further than the
+ * query margin of the room between two ticks. Fast crates move further than the margin during
+ * every tick. Box queries around the old and new positions of the teleported crates and random
+ * box queries have to find exactly the entities the list search finds, in the same order.
+ * <p>
+ * Run from the main method, every broadphase is tested.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class RoomQueryTest {
+
+  private static final int CRATES = 200;
+  private static final int TICKS = 60;
+  private static final int QUERIES = 50;
+
+  public static void main(String[] args) {
+    Broadphase[] broadphases = {new BruteForceBroadphase(), new SpatialHashBroadphase(),
+        new SweepAndPruneBroadphase(), new DynamicTreeBroadphase()};
+
+    int mismatches = 0;
+    for (Broadphase broadphase : broadphases) {
+      Random random = new Random(24);
+      Room room = new Room(null);
+      room.setBroadphase(broadphase);
+      for (int i = 0; i < CRATES; i++) {
+        Entity crate = new Entity(null, new Vector(random.nextFloat() * 800,
+            random.nextFloat() * 600), new PolygonShape(10, 10), 1);
+        float speed = i % 10 == 0 ? 40 : 2; // every tenth crate outruns the margin
+        crate.setVelocity(new Vector((random.nextFloat() * 2 - 1) * speed,
+            (random.nextFloat() * 2 - 1) * speed));
+        room.addEntity(crate);
+      }
+
+      int queries = 0;
+      for (int tick = 0; tick < TICKS; tick++) {
+        Engine.process(room, 1 / 60f);
+        mismatches += randomQueries(room, random);
+        queries += QUERIES;
+
+        if (tick % 5 == 0) {
+          // teleport a crate far past the margin and look for it at both ends of the jump
+          Entity crate = room.getEntities().get(random.nextInt(CRATES));
+          Vector from = crate.getPosition().clone();
+          Vector to = new Vector(random.nextFloat() * 800, random.nextFloat() * 600);
+          crate.setPosition(to);
+
+          mismatches += compare(room, from.getX() - 5, from.getY() - 5, from.getX() + 5,
+              from.getY() + 5);
+          mismatches += compare(room, to.getX() - 5, to.getY() - 5, to.getX() + 5,
+              to.getY() + 5);
+          mismatches += randomQueries(room, random);
+          queries += QUERIES + 2;
+        }
+      }
+
+      System.out.println(broadphase.getClass().getSimpleName() + ": " + queries + " queries");
+    }
+
+    System.out.println("mismatches: " + mismatches);
+  }
+
+  private static int randomQueries(Room room, Random random) {
+    int mismatches = 0;
+    for (int q = 0; q < QUERIES; q++) {
+      float x = random.nextFloat() * 800;
+      float y = random.nextFloat() * 600;
+      mismatches += compare(room, x, y, x + random.nextFloat() * 100,
+          y + random.nextFloat() * 100);
+    }
+    return mismatches;
+  }
+
+  /**
+   * Run a box query and compare it with a search of the entity list.
+   *
+   * @return 1 if the results differ, 0 otherwise
+   */
+  private static int compare(Room room, float xMin, float yMin, float xMax, float yMax) {
+    ArrayList<Entity> found = new ArrayList<>();
+    room.queryAabb(xMin, yMin, xMax, yMax, found::add);
+
+    ArrayList<Entity> expected = new ArrayList<>();
+    List<Entity> entities = room.getAllEntities();
+    for (int i = 0; i < entities.size(); i++) {
+      Entity entity = entities.get(i);
+      BoundingBox box = Broadphase.canCollide(entity) ? entity.getWorldBoundingBox() : null;
+      if (box != null && box.xMax >= xMin && xMax >= box.xMin && box.yMax >= yMin
+          && yMax >= box.yMin) {
+        expected.add(entity);
+      }
+    }
+
+    if (found.equals(expected)) {
+      return 0;
+    }
+
+    System.out.println("query " + xMin + ", " + yMin + " - " + xMax + ", " + yMax + " found "
+        + found.size() + " expected " + expected.size());
+    return 1;
+  }
+}
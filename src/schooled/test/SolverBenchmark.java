@@ -0,0 +1,159 @@
+package schooled.test;
+
+import java.util.ArrayList;
+import java.util.function.Supplier;
+import schooled.engines.ContactSolver;
+import schooled.engines.Engine;
+import schooled.engines.SequentialImpulseSolver;
+import schooled.entities.BasicEntity;
+import schooled.physics.PolygonShape;
+import schooled.physics.Vector;
+import schooled.physics.broadphase.SpatialHashBroadphase;
+import schooled.physics.broadphase.StaticBVH;
+
+/**
+ * Compares the mass tree solver with the sequential impulse solver on stacked and chained crates.
+ * <p>
+ * Every tick of a run is timed on its own so the worst tick can be reported next to the average,
+ * the mass tree solver's cost depends on how the crates touch while the impulse solver's cost only
+ * grows with its iteration count. The deepest overlap left between two crates at the end of a run
+ * shows what the iteration budget costs in accuracy.
+ * <p>
+ * Run from the main method, the first runs of each case are a warm up and aren't reported.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class SolverBenchmark {
+
+  private static final int WARMUP = 3;
+  private static final int RUNS = 5;
+  private static final int TICKS = 600;
+  private static final int SETTLE_TICKS = 100; // ticks the crates fall into place before timing
+
+  private static final float SIZE = 40;
+  private static final float GRAVITY = 0.2f;
+
+  public static void main(String[] args) {
+    Engine.SLEEP_TICKS = Integer.MAX_VALUE; // keep the whole scene awake
+
+    String[] names = {"mass_tree", "impulse_4", "impulse_8", "impulse_16"};
+    ArrayList<Supplier<ContactSolver>> solvers = new ArrayList<>();
+    solvers.add(() -> ContactSolver.MASS_TREE);
+    solvers.add(() -> new SequentialImpulseSolver(4, 2));
+    solvers.add(() -> new SequentialImpulseSolver(8, 3));
+    solvers.add(() -> new SequentialImpulseSolver(16, 4));
+
+    System.out.printf("%-10s %-12s %12s %12s %10s%n", "scene", "solver", "avg us/tick",
+        "worst us", "overlap");
+    for (int s = 0; s < solvers.size(); s++) {
+      measure("stacked", names[s], solvers.get(s), false);
+    }
+    for (int s = 0; s < solvers.size(); s++) {
+      measure("chained", names[s], solvers.get(s), true);
+    }
+  }
+
+  /**
+   * Run a scene a number of times with a fresh solver each run.
+   */
+  private static void measure(String scene, String name, Supplier<ContactSolver> solver,
+      boolean chained) {
+    long total = 0;
+    long worst = 0;
+    float overlap = 0;
+
+    for (int run = 0; run < WARMUP + RUNS; run++) {
+      ArrayList<BasicEntity> walls = new ArrayList<>();
+      ArrayList<BasicEntity> crates = new ArrayList<>();
+      BasicEntity pusher = chained ? chained(walls, crates) : stacked(walls, crates);
+      StaticBVH statics = new StaticBVH(walls);
+      SpatialHashBroadphase broadphase = new SpatialHashBroadphase();
+      ContactSolver contactSolver = solver.get();
+
+      for (int t = 0; t < SETTLE_TICKS + TICKS; t++) {
+        for (int i = 0; i < crates.size(); i++) {
+          crates.get(i).addVelocity(new Vector(0, GRAVITY));
+        }
+        if (pusher != null) {
+          pusher.addVelocity(new Vector(0.3f, 0));
+        }
+
+        long start = System.nanoTime();
+        Engine.process(crates, statics, 1 / 60f, broadphase, null, null, contactSolver);
+        long time = System.nanoTime() - start;
+
+        if (run >= WARMUP && t >= SETTLE_TICKS) {
+          total += time;
+          worst = Math.max(worst, time);
+        }
+      }
+
+      if (run >= WARMUP) {
+        overlap = Math.max(overlap, deepestOverlap(crates));
+      }
+    }
+
+    System.out.printf("%-10s %-12s %12.1f %12.1f %10.3f%n", scene, name,
+        total / 1000.0 / RUNS / TICKS, worst / 1000.0, overlap);
+  }
+
+  /**
+   * Columns of crates standing on a floor.
+   *
+   * @return null, nothing pushes the stacks
+   */
+  private static BasicEntity stacked(ArrayList<BasicEntity> walls,
+      ArrayList<BasicEntity> crates) {
+    walls.add(new BasicEntity(new Vector(400, 900), new PolygonShape(1200, 40), 0));
+    for (int c = 0; c < 8; c++) {
+      for (int k = 0; k < 15; k++) {
+        crates.add(new BasicEntity(new Vector(100 + c * 60, 859 - k * 40.5f),
+            new PolygonShape(SIZE, SIZE), 10));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A long row of crates on a floor pushed from one end by a heavy crate, with stacks on top of
+   * the row so the push has to travel through the stacks as well.
+   *
+   * @return the pushing crate
+   */
+  private static BasicEntity chained(ArrayList<BasicEntity> walls,
+      ArrayList<BasicEntity> crates) {
+    walls.add(new BasicEntity(new Vector(1200, 900), new PolygonShape(3000, 40), 0));
+    for (int c = 0; c < 40; c++) {
+      int height = c % 4 == 0 ? 4 : 1;
+      for (int k = 0; k < height; k++) {
+        crates.add(new BasicEntity(new Vector(100 + c * 40.5f, 859 - k * 40.5f),
+            new PolygonShape(SIZE, SIZE), 10));
+      }
+    }
+
+    BasicEntity pusher = new BasicEntity(new Vector(40, 859), new PolygonShape(SIZE, SIZE), 100);
+    crates.add(pusher);
+    return pusher;
+  }
+
+  /**
+   * The deepest overlap between two crates, the crates never turn so their boxes are compared.
+   */
+  private static float deepestOverlap(ArrayList<BasicEntity> crates) {
+    float deepest = 0;
+    for (int i = 0; i < crates.size(); i++) {
+      Vector a = crates.get(i).getPosition();
+      for (int j = i + 1; j < crates.size(); j++) {
+        Vector b = crates.get(j).getPosition();
+        float x = SIZE - Math.abs(a.getX() - b.getX());
+        float y = SIZE - Math.abs(a.getY() - b.getY());
+        if (x > 0 && y > 0) {
+          deepest = Math.max(deepest, Math.min(x, y));
+        }
+      }
+    }
+    return deepest;
+  }
+}
@@ -0,0 +1,145 @@
+package schooled.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import schooled.engines.Engine;
+import schooled.entities.BasicEntity;
+import schooled.physics.Circle;
+import schooled.physics.PolygonShape;
+import schooled.physics.Shape;
+import schooled.physics.Vector;
+import schooled.physics.broadphase.SpatialHashBroadphase;
+
+/**
+ * Compares the allocating vector methods with the in place vector methods, then times a physics
+ * scene and reports the memory allocated per tick.
+ * <p>
+ * Run from the main method, each case is warmed up before it is measured.
+ * <p></p>
+ * Program written by Joseph Straceski
+ * <p>
+ * contact: straceski.joseph@gmail.com, https://github.com/Crepox
+ */
+public class VectorBenchmark {
+
+  private static final int WARMUP = 5;
+  private static final int RUNS = 10;
+  private static final int OPS = 2_000_000;
+  private static final int TICKS = 200;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static float sink = 0;
+  // results of the last ops, kept reachable so escape analysis can't remove the allocations, like
+  //  the vectors the engine stores in manifolds and entity registers
+  private static final Vector[] ESCAPED = new Vector[1024];
+
+  public static void main(String[] args) {
+    Vector[] points = new Vector[1024];
+    Random random = new Random(1);
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Vector(random.nextFloat() * 100, random.nextFloat() * 100);
+    }
+
+    measure("vector_allocating", OPS, () -> allocating(points));
+    measure("vector_in_place", OPS, () -> inPlace(points));
+
+    ArrayList<BasicEntity> entities = scene();
+    SpatialHashBroadphase broadphase = new SpatialHashBroadphase();
+    Engine.SLEEP_TICKS = Integer.MAX_VALUE; // keep the whole scene awake
+    measure("physics_tick", TICKS, () -> {
+      for (int t = 0; t < TICKS; t++) {
+        Engine.process(entities, null, 1 / 60f, broadphase, null);
+      }
+    });
+
+    System.out.println("checksum " + sink);
+  }
+
+  /**
+   * Edge normal and projection math written with the instance creation methods.
+   */
+  private static void allocating(Vector[] points) {
+    float total = 0;
+    for (int i = 0; i < OPS; i++) {
+      Vector a = points[i & 1023];
+      Vector b = points[(i + 1) & 1023];
+      Vector normal = a.perpi(b).normalizei();
+      Vector edge = a.subi(b).normalizei();
+      total += Vector.dot(Vector.sub(a, b), normal) + edge.dot(normal);
+      ESCAPED[i & 1023] = normal;
+      ESCAPED[(i + 512) & 1023] = edge;
+    }
+    sink += total;
+  }
+
+  /**
+   * The same math written with a reused register and the modification methods.
+   */
+  private static void inPlace(Vector[] points) {
+    float total = 0;
+    Vector normal = new Vector(0, 0);
+    Vector edge = new Vector(0, 0);
+    for (int i = 0; i < OPS; i++) {
+      Vector a = points[i & 1023];
+      Vector b = points[(i + 1) & 1023];
+      normal.setPerp(a, b).normalize();
+      edge.setSub(a, b);
+      total += edge.dot(normal) + edge.normalize().dot(normal);
+      ESCAPED[i & 1023] = normal;
+      ESCAPED[(i + 512) & 1023] = edge;
+    }
+    sink += total;
+  }
+
+  /**
+   * A mix of moving circles, boxes and triangles.
+   */
+  private static ArrayList<BasicEntity> scene() {
+    Random random = new Random(10);
+    ArrayList<BasicEntity> entities = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      Shape shape;
+      int kind = random.nextInt(3);
+      if (kind == 0) {
+        shape = new Circle(5 + random.nextFloat() * 10);
+      } else if (kind == 1) {
+        shape = new PolygonShape(5 + random.nextFloat() * 15, 5 + random.nextFloat() * 15);
+      } else {
+        PolygonShape triangle = new PolygonShape();
+        triangle.addPoint(0, -8);
+        triangle.addPoint(7, 5);
+        triangle.addPoint(-6, 6);
+        shape = triangle;
+      }
+
+      BasicEntity entity = new BasicEntity(
+          new Vector(random.nextFloat() * 500, random.nextFloat() * 400), shape,
+          random.nextInt(5) == 0 ? 0 : 10);
+      entity.setVelocity(new Vector(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2));
+      entities.add(entity);
+    }
+    return entities;
+  }
+
+  private static void measure(String name, int ops, Runnable run) {
+    for (int i = 0; i < WARMUP; i++) {
+      run.run();
+    }
+
+    long best = Long.MAX_VALUE;
+    long bytes = 0;
+    for (int i = 0; i < RUNS; i++) {
+      long startBytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+      long start = System.nanoTime();
+      run.run();
+      best = Math.min(best, System.nanoTime() - start);
+      bytes += THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes;
+    }
+
+    System.out.printf("%-20s %10.1f ns/op %10.1f bytes/op%n", name, best / (double) ops,
+        bytes / (double) RUNS / ops);
+  }
+}